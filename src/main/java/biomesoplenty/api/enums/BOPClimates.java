@@ -114,6 +114,16 @@ public enum BOPClimates
         return item.biome;
     }
 
+    public int getTotalBiomesWeight()
+    {
+        return this.totalBiomesWeight;
+    }
+
+    public int getTotalIslandBiomesWeight()
+    {
+        return this.totalIslandBiomesWeight;
+    }
+
     public RegistryKey<Biome> getRandomOceanBiome(INoiseRandom context, boolean deep)
     {
         return (deep ? Biomes.DEEP_OCEAN : Biomes.OCEAN);
@@ -17,16 +17,17 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
-import com.google.gson.reflect.TypeToken;
 import net.minecraft.util.RegistryKey;
 import net.minecraft.util.ResourceLocation;
 import net.minecraft.world.biome.Biome;
 import net.minecraftforge.fml.loading.FMLPaths;
 import net.minecraftforge.registries.ForgeRegistries;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.tuple.Pair;
 
 import javax.annotation.Nullable;
 import java.io.File;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
@@ -38,6 +39,13 @@ public class BiomeRegistry
 
     private static Map<RegistrationType, List<DeferredRegistration>> deferrances = Maps.newHashMap();
 
+    // The contents of biomes.json whilst biomes are being configured
+    private static BiomeConfigData configData;
+    @Nullable
+    private static String loadedConfig;
+    private static boolean configWritable;
+    private static final Map<String, Long> configTimings = Maps.newLinkedHashMap();
+
     public static void deferStandardRegistration(BiomeTemplate biome, String name)
     {
         defer(RegistrationType.STANDARD_BIOME, new StandardBiomeRegistrationData(biome, name));
@@ -76,6 +84,7 @@ public class BiomeRegistry
 
     public static void configureStandardBiomes()
     {
+        long startTime = System.nanoTime();
         List<DeferredRegistration> standardRegistrations = deferrances.get(RegistrationType.STANDARD_BIOME);
         TreeMap<String, BiomeConfigData.WeightedBiomeEntry> defaultEntries = Maps.newTreeMap();
         Map<String, StandardBiomeRegistrationData> regDataMap = Maps.newHashMap();
@@ -94,9 +103,7 @@ public class BiomeRegistry
             }
         }
 
-        BiomeConfigData defaultConfigData = new BiomeConfigData();
-        defaultConfigData.standardBiomeWeights = defaultEntries;
-        BiomeConfigData configData = getConfigData(defaultConfigData);
+        BiomeConfigData configData = getConfigData();
 
         TreeMap<String, BiomeConfigData.WeightedBiomeEntry> revisedStandardBiomeWeights = Maps.newTreeMap(defaultEntries);
 
@@ -109,9 +116,8 @@ public class BiomeRegistry
             }
         }
 
-        // Write back to the config file
+        // Written back to the config file once every type has been configured
         configData.standardBiomeWeights = revisedStandardBiomeWeights;
-        JsonUtil.writeFile(getConfigFile(), configData);
 
         for (Map.Entry<String, BiomeConfigData.WeightedBiomeEntry> biomeEntry : configData.standardBiomeWeights.entrySet())
         {
@@ -125,10 +131,13 @@ public class BiomeRegistry
                 registrationData.setPrimaryWeight(weight.weight);
             }
         }
+
+        recordTiming("standard biomes", startTime);
     }
 
     public static void configureTechnicalBiomes()
     {
+        long startTime = System.nanoTime();
         List<DeferredRegistration> biomeRegistrations = deferrances.get(RegistrationType.TECHNICAL_BIOME);
         TreeMap<String, BiomeConfigData.ToggleableBiomeEntry> defaultBiomeEntries = Maps.newTreeMap();
 
@@ -139,9 +148,7 @@ public class BiomeRegistry
             defaultBiomeEntries.put(biomeName, new BiomeConfigData.ToggleableBiomeEntry(true));
         }
 
-        BiomeConfigData defaultConfigData = new BiomeConfigData();
-        defaultConfigData.technicalBiomeEntries = defaultBiomeEntries;
-        BiomeConfigData configData = getConfigData(defaultConfigData);
+        BiomeConfigData configData = getConfigData();
 
         TreeMap<String, BiomeConfigData.ToggleableBiomeEntry> revisedBiomeEntries = Maps.newTreeMap(defaultBiomeEntries);
 
@@ -154,9 +161,8 @@ public class BiomeRegistry
             }
         }
 
-        // Write back to the config file
+        // Written back to the config file once every type has been configured
         configData.technicalBiomeEntries = revisedBiomeEntries;
-        JsonUtil.writeFile(getConfigFile(), configData);
 
         for (DeferredRegistration<ToggleableStandardBiomeRegistrationData> registration : biomeRegistrations)
         {
@@ -173,10 +179,13 @@ public class BiomeRegistry
                 }
             }
         }
+
+        recordTiming("technical biomes", startTime);
     }
 
     public static void configureSubBiomes()
     {
+        long startTime = System.nanoTime();
         List<DeferredRegistration> subBiomeRegistrations = deferrances.get(RegistrationType.SUB_BIOME);
         TreeMap<String, BiomeConfigData.SubBiomeEntry> defaultSubBiomeEntries = Maps.newTreeMap();
         Map<String, SubBiomeRegistrationData> regDataMap = Maps.newHashMap();
@@ -189,9 +198,7 @@ public class BiomeRegistry
             regDataMap.put(biomeName, registration.regData);
         }
 
-        BiomeConfigData defaultConfigData = new BiomeConfigData();
-        defaultConfigData.subBiomeEntries = defaultSubBiomeEntries;
-        BiomeConfigData configData = getConfigData(defaultConfigData);
+        BiomeConfigData configData = getConfigData();
 
         TreeMap<String, BiomeConfigData.SubBiomeEntry> revisedSubBiomeEntries = Maps.newTreeMap(defaultSubBiomeEntries);
 
@@ -204,9 +211,8 @@ public class BiomeRegistry
             }
         }
 
-        // Write back to the config file
+        // Written back to the config file once every type has been configured
         configData.subBiomeEntries = revisedSubBiomeEntries;
-        JsonUtil.writeFile(getConfigFile(), configData);
 
         for (Map.Entry<String, BiomeConfigData.SubBiomeEntry> biomeEntry : configData.subBiomeEntries.entrySet())
         {
@@ -221,10 +227,13 @@ public class BiomeRegistry
                 registrationData.setRarity(subBiomeEntry.rarity);
             }
         }
+
+        recordTiming("sub biomes", startTime);
     }
 
     public static void configureIslandBiomes()
     {
+        long startTime = System.nanoTime();
         List<DeferredRegistration> biomeRegistrations = deferrances.get(RegistrationType.ISLAND_BIOME);
         TreeMap<String, BiomeConfigData.ToggleableBiomeEntry> defaultBiomeEntries = Maps.newTreeMap();
 
@@ -235,9 +244,7 @@ public class BiomeRegistry
             defaultBiomeEntries.put(biomeName, new BiomeConfigData.ToggleableBiomeEntry(true));
         }
 
-        BiomeConfigData defaultConfigData = new BiomeConfigData();
-        defaultConfigData.islandBiomeEntries = defaultBiomeEntries;
-        BiomeConfigData configData = getConfigData(defaultConfigData);
+        BiomeConfigData configData = getConfigData();
 
         TreeMap<String, BiomeConfigData.ToggleableBiomeEntry> revisedBiomeEntries = Maps.newTreeMap(defaultBiomeEntries);
 
@@ -250,9 +257,8 @@ public class BiomeRegistry
             }
         }
 
-        // Write back to the config file
+        // Written back to the config file once every type has been configured
         configData.islandBiomeEntries = revisedBiomeEntries;
-        JsonUtil.writeFile(getConfigFile(), configData);
 
         for (DeferredRegistration<SingleClimateRegistrationData> registration : biomeRegistrations)
         {
@@ -269,10 +275,13 @@ public class BiomeRegistry
                 }
             }
         }
+
+        recordTiming("island biomes", startTime);
     }
 
     public static void configureVanillaBiomes()
     {
+        long startTime = System.nanoTime();
         List<DeferredRegistration> biomeRegistrations = deferrances.get(RegistrationType.VANILLA_BIOME);
         TreeMap<String, BiomeConfigData.WeightedBiomeEntry> defaultBiomeEntries = Maps.newTreeMap();
         Map<String, SingleClimateRegistrationData> regDataMap = Maps.newHashMap();
@@ -285,9 +294,7 @@ public class BiomeRegistry
             regDataMap.put(biomeName, registration.regData);
         }
 
-        BiomeConfigData defaultConfigData = new BiomeConfigData();
-        defaultConfigData.vanillaBiomeEntries = defaultBiomeEntries;
-        BiomeConfigData configData = getConfigData(defaultConfigData);
+        BiomeConfigData configData = getConfigData();
 
         TreeMap<String, BiomeConfigData.WeightedBiomeEntry> revisedBiomeEntries = Maps.newTreeMap(defaultBiomeEntries);
 
@@ -300,9 +307,8 @@ public class BiomeRegistry
             }
         }
 
-        // Write back to the config file
+        // Written back to the config file once every type has been configured
         configData.vanillaBiomeEntries = revisedBiomeEntries;
-        JsonUtil.writeFile(getConfigFile(), configData);
 
         for (Map.Entry<String, BiomeConfigData.WeightedBiomeEntry> biomeEntry : configData.vanillaBiomeEntries.entrySet())
         {
@@ -316,6 +322,8 @@ public class BiomeRegistry
                 registrationData.setWeight(islandBiomeEntry.weight);
             }
         }
+
+        recordTiming("vanilla biomes", startTime);
     }
 
     private static File getConfigDirFile()
@@ -330,12 +338,92 @@ public class BiomeRegistry
         return new File(getConfigDirFile(), CONFIG_FILE_NAME);
     }
 
-    private static BiomeConfigData getConfigData(BiomeConfigData defaultConfigData)
+    private static BiomeConfigData getConfigData()
     {
-        BiomeConfigData configData = JsonUtil.getOrCreateConfigFile(getConfigDirFile(), CONFIG_FILE_NAME, defaultConfigData, new TypeToken<BiomeConfigData>(){}.getType());
+        // The file is only read once, each type of registration then merges its own section in memory
+        if (configData == null)
+        {
+            long startTime = System.nanoTime();
+            configData = loadConfigData();
+            recordTiming("load", startTime);
+        }
+
         return configData;
     }
 
+    private static BiomeConfigData loadConfigData()
+    {
+        File configFile = getConfigFile();
+        BiomeConfigData data = null;
+        loadedConfig = null;
+        configWritable = true;
+
+        if (configFile.exists())
+        {
+            try
+            {
+                loadedConfig = FileUtils.readFileToString(configFile, StandardCharsets.UTF_8);
+                data = JsonUtil.SERIALIZER.fromJson(loadedConfig, BiomeConfigData.class);
+            }
+            catch (Exception e)
+            {
+                // Leave the file alone so any changes made to it aren't lost
+                BiomesOPlenty.logger.error("Error parsing config from json: " + configFile.toString() + ", default biome settings will be used", e);
+                configWritable = false;
+            }
+        }
+
+        if (data == null)
+            data = new BiomeConfigData();
+
+        // Sections which are missing entirely are treated as empty
+        if (data.standardBiomeWeights == null) data.standardBiomeWeights = Maps.newTreeMap();
+        if (data.technicalBiomeEntries == null) data.technicalBiomeEntries = Maps.newTreeMap();
+        if (data.subBiomeEntries == null) data.subBiomeEntries = Maps.newTreeMap();
+        if (data.islandBiomeEntries == null) data.islandBiomeEntries = Maps.newTreeMap();
+        if (data.vanillaBiomeEntries == null) data.vanillaBiomeEntries = Maps.newTreeMap();
+
+        return data;
+    }
+
+    /**
+     * Writes the merged config back to biomes.json once every type of registration has been configured. Nothing is
+     * written if the file is already up to date.
+     */
+    public static void saveConfig()
+    {
+        if (configData == null)
+            return;
+
+        long startTime = System.nanoTime();
+        String json = JsonUtil.SERIALIZER.toJson(configData);
+
+        if (configWritable && !json.equals(loadedConfig))
+        {
+            JsonUtil.writeFileAtomically(getConfigFile(), json);
+            recordTiming("write", startTime);
+        }
+
+        StringJoiner timings = new StringJoiner(", ");
+
+        // The first type configured also includes the time taken to load the file
+        for (Map.Entry<String, Long> timing : configTimings.entrySet())
+        {
+            timings.add(String.format("%s %.2f ms", timing.getKey(), timing.getValue() / 1.0E6D));
+        }
+
+        BiomesOPlenty.logger.info("Biome configuration timings: " + timings);
+
+        configData = null;
+        loadedConfig = null;
+        configTimings.clear();
+    }
+
+    private static void recordTiming(String phase, long startTime)
+    {
+        configTimings.merge(phase, System.nanoTime() - startTime, Long::sum);
+    }
+
     private static <T extends IRegistrationData> void defer(RegistrationType type, T data)
     {
         if (!deferrances.containsKey(type))
@@ -8,6 +8,9 @@
 package biomesoplenty.common.block;
 
 import biomesoplenty.api.block.BOPBlocks;
+import biomesoplenty.common.block.trees.IPlannableTree;
+import biomesoplenty.common.block.trees.PlannedTreeGrowth;
+import biomesoplenty.init.ModConfig;
 import net.minecraft.block.*;
 import net.minecraft.block.trees.Tree;
 import net.minecraft.state.IntegerProperty;
@@ -64,7 +67,15 @@ public class SaplingBlockBOP extends SaplingBlock implements IGrowable
       else
       {
          if (!net.minecraftforge.event.ForgeEventFactory.saplingGrowTree(world, rand, pos)) return;
-         this.tree.growTree(world, world.getChunkSource().getGenerator(), pos, state, rand);
+
+         if (ModConfig.GenerationConfig.usePlannedSaplingGrowth.get() && this.tree instanceof IPlannableTree)
+         {
+            PlannedTreeGrowth.grow(world, (IPlannableTree)this.tree, pos, state, rand);
+         }
+         else
+         {
+            this.tree.growTree(world, world.getChunkSource().getGenerator(), pos, state, rand);
+         }
       }
 
    }
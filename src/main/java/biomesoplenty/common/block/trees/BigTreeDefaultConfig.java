@@ -11,6 +11,7 @@ import net.minecraft.block.BlockState;
 import net.minecraft.block.Blocks;
 import net.minecraft.block.trees.BigTree;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.ISeedReader;
 import net.minecraft.world.IWorld;
 import net.minecraft.world.biome.DefaultBiomeFeatures;
 import net.minecraft.world.gen.ChunkGenerator;
@@ -20,7 +21,7 @@ import net.minecraft.world.server.ServerWorld;
 import javax.annotation.Nullable;
 import java.util.Random;
 
-public abstract class BigTreeDefaultConfig extends BigTree
+public abstract class BigTreeDefaultConfig extends BigTree implements IPlannableTree
 {
     @Override
     @Nullable
@@ -41,6 +42,12 @@ public abstract class BigTreeDefaultConfig extends BigTree
 
     @Override
     public boolean growTree(ServerWorld world, ChunkGenerator generator, BlockPos pos, BlockState state, Random random)
+    {
+        return this.growTree((ISeedReader)world, generator, pos, state, random);
+    }
+
+    @Override
+    public boolean growTree(ISeedReader world, ChunkGenerator generator, BlockPos pos, BlockState state, Random random)
     {
         for (int i = 0; i >= -1; --i)
         {
@@ -76,6 +83,11 @@ public abstract class BigTreeDefaultConfig extends BigTree
 
     @Override
     public boolean placeMega(ServerWorld world, ChunkGenerator generator, BlockPos pos, BlockState state, Random random, int x, int z)
+    {
+        return this.placeMega((ISeedReader)world, generator, pos, state, random, x, z);
+    }
+
+    public boolean placeMega(ISeedReader world, ChunkGenerator generator, BlockPos pos, BlockState state, Random random, int x, int z)
     {
         Feature<BaseTreeFeatureConfig> feature = (Feature<BaseTreeFeatureConfig>)this.getBigFeature(random);
         if (feature == null)
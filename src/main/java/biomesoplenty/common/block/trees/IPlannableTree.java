@@ -0,0 +1,24 @@
+/*******************************************************************************
+ * Copyright 2014-2019, the Biomes O' Plenty Team
+ *
+ * This work is licensed under a Creative Commons Attribution-NonCommercial-NoDerivatives 4.0 International Public License.
+ *
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/4.0/.
+ ******************************************************************************/
+package biomesoplenty.common.block.trees;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.ISeedReader;
+import net.minecraft.world.gen.ChunkGenerator;
+
+import java.util.Random;
+
+/***
+ * A tree which can be grown in any world, rather than only a ServerWorld, so its growth can be planned in a region
+ * away from the server thread.
+ */
+public interface IPlannableTree
+{
+    boolean growTree(ISeedReader world, ChunkGenerator generator, BlockPos pos, BlockState state, Random random);
+}
@@ -0,0 +1,541 @@
+/*******************************************************************************
+ * Copyright 2014-2019, the Biomes O' Plenty Team
+ *
+ * This work is licensed under a Creative Commons Attribution-NonCommercial-NoDerivatives 4.0 International Public License.
+ *
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/4.0/.
+ ******************************************************************************/
+package biomesoplenty.common.block.trees;
+
+import biomesoplenty.core.BiomesOPlenty;
+import com.google.common.collect.Lists;
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.entity.Entity;
+import net.minecraft.fluid.Fluid;
+import net.minecraft.fluid.FluidState;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.Util;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.ITickList;
+import net.minecraft.world.TickPriority;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.ChunkStatus;
+import net.minecraft.world.chunk.IChunk;
+import net.minecraft.world.gen.ChunkGenerator;
+import net.minecraft.world.gen.Heightmap;
+import net.minecraft.world.gen.WorldGenRegion;
+import net.minecraft.world.server.ServerWorld;
+
+import javax.annotation.Nullable;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/***
+ * Grows saplings in two phases, so working out the shape of large trees doesn't hold up the server tick. The tree is
+ * first planned on a worker thread in a region which records every block and height it reads and keeps every block
+ * written to itself. The plan is then committed on the server thread, provided none of the blocks or heights it read
+ * have changed in the meantime, otherwise the tree is planned again.
+ *
+ * Trees which can't be planned, such as those reaching beyond the region or needing block entities, are grown on the
+ * server thread as usual.
+ */
+public class PlannedTreeGrowth
+{
+    // How many chunks either side of the sapling's chunk the region covers
+    private static final int REGION_RADIUS = 2;
+
+    // Plans discarded this many times in a row give way to growing the tree directly
+    private static final int MAX_ATTEMPTS = 3;
+
+    // Saplings with a plan in progress, only accessed on the server thread
+    private static final Map<ServerWorld, LongSet> PENDING = new WeakHashMap<>();
+
+    private static final LongAdder PLANS = new LongAdder();
+    private static final LongAdder COMMITS = new LongAdder();
+    private static final LongAdder DISCARDS = new LongAdder();
+    private static final LongAdder FALLBACKS = new LongAdder();
+    private static final LongAdder PLANNING_NANOS = new LongAdder();
+    private static final LongAdder COMMIT_NANOS = new LongAdder();
+
+    private final ServerWorld world;
+    private final ChunkGenerator generator;
+    private final IPlannableTree tree;
+    private final BlockPos pos;
+    private final BlockState state;
+    // The caller's random, which seeds each plan and is used as is when the tree is grown directly
+    private final Random random;
+    private int attempts;
+
+    private PlannedTreeGrowth(ServerWorld world, IPlannableTree tree, BlockPos pos, BlockState state, Random random)
+    {
+        this.world = world;
+        this.generator = world.getChunkSource().getGenerator();
+        this.tree = tree;
+        this.pos = pos;
+        this.state = state;
+        this.random = random;
+    }
+
+    /**
+     * Starts growing the sapling at the given position, unless it is already growing. Must be called on the server
+     * thread.
+     */
+    public static void grow(ServerWorld world, IPlannableTree tree, BlockPos pos, BlockState state, Random random)
+    {
+        LongSet pending = PENDING.computeIfAbsent(world, (key) -> new LongOpenHashSet());
+
+        if (pending.add(pos.asLong()))
+        {
+            new PlannedTreeGrowth(world, tree, pos.immutable(), state, random).plan();
+        }
+    }
+
+    public static Stats getStats()
+    {
+        return new Stats(PLANS.sum(), COMMITS.sum(), DISCARDS.sum(), FALLBACKS.sum(), PLANNING_NANOS.sum(), COMMIT_NANOS.sum());
+    }
+
+    private void plan()
+    {
+        Region region = this.createRegion();
+
+        if (region == null)
+        {
+            this.growNow();
+            return;
+        }
+
+        long seed = this.random.nextLong();
+
+        // Failures are handled on the server thread too, as that is the only thread which may touch the pending set
+        CompletableFuture.supplyAsync(() -> this.createPlan(region, seed), Util.backgroundExecutor()).handleAsync((plan, error) ->
+        {
+            try
+            {
+                if (error != null)
+                    throw error;
+
+                this.commit(plan);
+            }
+            catch (Throwable e)
+            {
+                BiomesOPlenty.logger.error("Failed to grow tree at " + this.pos, e);
+                this.finish();
+            }
+
+            return null;
+        }, this.world.getServer());
+    }
+
+    @Nullable
+    private Region createRegion()
+    {
+        int size = REGION_RADIUS * 2 + 1;
+        int centerX = this.pos.getX() >> 4;
+        int centerZ = this.pos.getZ() >> 4;
+        List<IChunk> chunks = Lists.newArrayListWithCapacity(size * size);
+
+        // The region expects its chunks row by row, with the sapling's chunk in the middle
+        for (int z = -REGION_RADIUS; z <= REGION_RADIUS; ++z)
+        {
+            for (int x = -REGION_RADIUS; x <= REGION_RADIUS; ++x)
+            {
+                // Trees beside unloaded chunks are grown directly, which loads them as it always has
+                Chunk chunk = this.world.getChunkSource().getChunkNow(centerX + x, centerZ + z);
+
+                if (chunk == null)
+                    return null;
+
+                chunks.add(chunk);
+            }
+        }
+
+        return new Region(this.world, chunks);
+    }
+
+    // Runs on a worker thread
+    private Region createPlan(Region region, long seed)
+    {
+        long start = System.nanoTime();
+
+        try
+        {
+            region.grown = this.tree.growTree(region, this.generator, this.pos, this.state, new Random(seed));
+        }
+        catch (UnplannableException e)
+        {
+            region.unplannable = true;
+        }
+        catch (RuntimeException e)
+        {
+            // Chunks may be written to by the server thread whilst they are read, which is treated like any other
+            // change to the region
+            region.failed = true;
+        }
+
+        PLANS.increment();
+        PLANNING_NANOS.add(System.nanoTime() - start);
+        return region;
+    }
+
+    private void commit(Region region)
+    {
+        long start = System.nanoTime();
+        this.world.getProfiler().push("biomesoplenty:commit_tree");
+
+        if (!this.isSaplingPresent())
+        {
+            this.finish();
+        }
+        else if (region.unplannable)
+        {
+            this.growNow();
+        }
+        else if (region.failed || !region.isUnchanged(this.world))
+        {
+            DISCARDS.increment();
+
+            if (++this.attempts < MAX_ATTEMPTS)
+            {
+                this.plan();
+            }
+            else
+            {
+                this.growNow();
+            }
+        }
+        else
+        {
+            if (region.grown)
+            {
+                region.apply(this.world);
+            }
+
+            COMMITS.increment();
+            this.finish();
+        }
+
+        this.world.getProfiler().pop();
+        COMMIT_NANOS.add(System.nanoTime() - start);
+    }
+
+    private void growNow()
+    {
+        if (this.isSaplingPresent())
+        {
+            FALLBACKS.increment();
+            this.tree.growTree(this.world, this.generator, this.pos, this.state, this.random);
+        }
+
+        this.finish();
+    }
+
+    private boolean isSaplingPresent()
+    {
+        // Don't load the sapling's chunk again if it has been unloaded
+        return this.world.getChunkSource().getChunkNow(this.pos.getX() >> 4, this.pos.getZ() >> 4) != null && this.world.getBlockState(this.pos) == this.state;
+    }
+
+    private void finish()
+    {
+        LongSet pending = PENDING.get(this.world);
+
+        if (pending != null)
+        {
+            pending.remove(this.pos.asLong());
+        }
+    }
+
+    private static class Region extends WorldGenRegion
+    {
+        private final List<IChunk> chunks;
+
+        // The state first read at every position which hadn't been written to, for checking before the plan is
+        // committed. Later reads see the same state, even if the chunk has since changed.
+        private final Long2ObjectOpenHashMap<BlockState> reads = new Long2ObjectOpenHashMap<>();
+
+        // The latest state written to each position, which is read in place of the chunk's
+        private final Long2ObjectOpenHashMap<BlockState> written = new Long2ObjectOpenHashMap<>();
+
+        // Likewise for the heights read from each heightmap, which are read from the chunks without locking too
+        private final Map<Heightmap.Type, Long2IntOpenHashMap> heights = new EnumMap<>(Heightmap.Type.class);
+
+        private final List<Write> writes = Lists.newArrayList();
+        private final RecordingTickList<Block> blockTicks = new RecordingTickList<>();
+        private final RecordingTickList<Fluid> liquidTicks = new RecordingTickList<>();
+
+        private boolean grown;
+        private boolean unplannable;
+        private boolean failed;
+
+        private Region(ServerWorld world, List<IChunk> chunks)
+        {
+            super(world, chunks);
+            this.chunks = chunks;
+        }
+
+        @Override
+        public BlockState getBlockState(BlockPos pos)
+        {
+            // As the world does
+            if (World.isOutsideBuildHeight(pos))
+                return Blocks.VOID_AIR.defaultBlockState();
+
+            long key = pos.asLong();
+            BlockState state = this.written.get(key);
+
+            if (state == null)
+            {
+                state = this.reads.get(key);
+
+                if (state == null)
+                {
+                    state = super.getBlockState(pos);
+                    this.reads.put(key, state);
+                }
+            }
+
+            return state;
+        }
+
+        @Override
+        public int getHeight(Heightmap.Type type, int x, int z)
+        {
+            Long2IntOpenHashMap heights = this.heights.computeIfAbsent(type, (key) -> new Long2IntOpenHashMap());
+            long key = ChunkPos.asLong(x, z);
+
+            if (heights.containsKey(key))
+                return heights.get(key);
+
+            int height = super.getHeight(type, x, z);
+            heights.put(key, height);
+            return height;
+        }
+
+        @Override
+        public FluidState getFluidState(BlockPos pos)
+        {
+            return this.getBlockState(pos).getFluidState();
+        }
+
+        @Override
+        public boolean isStateAtPosition(BlockPos pos, Predicate<BlockState> predicate)
+        {
+            return predicate.test(this.getBlockState(pos));
+        }
+
+        @Override
+        public boolean setBlock(BlockPos pos, BlockState state, int flags, int recursionLeft)
+        {
+            if (World.isOutsideBuildHeight(pos))
+                return false;
+
+            // Like the world, nothing happens if the state is unchanged
+            if (this.getBlockState(pos) == state)
+                return false;
+
+            long key = pos.asLong();
+            this.written.put(key, state);
+            this.writes.add(new Write(key, state, flags, recursionLeft));
+            return true;
+        }
+
+        @Override
+        public boolean destroyBlock(BlockPos pos, boolean dropBlock, @Nullable Entity entity, int recursionLeft)
+        {
+            // Destroying blocks plays effects and spawns drops in the world
+            throw new UnplannableException();
+        }
+
+        @Override
+        @Nullable
+        public TileEntity getBlockEntity(BlockPos pos)
+        {
+            // Block entities are created and changed in the chunks themselves
+            throw new UnplannableException();
+        }
+
+        @Override
+        @Nullable
+        public IChunk getChunk(int x, int z, ChunkStatus status, boolean nonnull)
+        {
+            // The region would log an error before failing
+            if (nonnull && !this.hasChunk(x, z))
+                throw new UnplannableException();
+
+            return super.getChunk(x, z, status, nonnull);
+        }
+
+        @Override
+        public ITickList<Block> getBlockTicks()
+        {
+            return this.blockTicks;
+        }
+
+        @Override
+        public ITickList<Fluid> getLiquidTicks()
+        {
+            return this.liquidTicks;
+        }
+
+        private boolean isUnchanged(ServerWorld world)
+        {
+            for (IChunk chunk : this.chunks)
+            {
+                ChunkPos chunkPos = chunk.getPos();
+
+                // Chunks which have been unloaded and loaded again aren't the chunks which were read
+                if (world.getChunkSource().getChunkNow(chunkPos.x, chunkPos.z) != chunk)
+                    return false;
+            }
+
+            for (Long2ObjectMap.Entry<BlockState> entry : this.reads.long2ObjectEntrySet())
+            {
+                if (world.getBlockState(BlockPos.of(entry.getLongKey())) != entry.getValue())
+                    return false;
+            }
+
+            for (Map.Entry<Heightmap.Type, Long2IntOpenHashMap> heights : this.heights.entrySet())
+            {
+                for (Long2IntMap.Entry entry : heights.getValue().long2IntEntrySet())
+                {
+                    if (world.getHeight(heights.getKey(), ChunkPos.getX(entry.getLongKey()), ChunkPos.getZ(entry.getLongKey())) != entry.getIntValue())
+                        return false;
+                }
+            }
+
+            return true;
+        }
+
+        private void apply(ServerWorld world)
+        {
+            for (Write write : this.writes)
+            {
+                world.setBlock(BlockPos.of(write.pos), write.state, write.flags, write.recursionLeft);
+            }
+
+            this.blockTicks.apply(world.getBlockTicks());
+            this.liquidTicks.apply(world.getLiquidTicks());
+        }
+    }
+
+    private static class Write
+    {
+        private final long pos;
+        private final BlockState state;
+        private final int flags;
+        private final int recursionLeft;
+
+        private Write(long pos, BlockState state, int flags, int recursionLeft)
+        {
+            this.pos = pos;
+            this.state = state;
+            this.flags = flags;
+            this.recursionLeft = recursionLeft;
+        }
+    }
+
+    private static class RecordingTickList<T> implements ITickList<T>
+    {
+        private final List<ScheduledTick<T>> ticks = Lists.newArrayList();
+
+        @Override
+        public boolean hasScheduledTick(BlockPos pos, T item)
+        {
+            // The world's tick lists can't be read away from the server thread
+            throw new UnplannableException();
+        }
+
+        @Override
+        public void scheduleTick(BlockPos pos, T item, int delay, TickPriority priority)
+        {
+            this.ticks.add(new ScheduledTick<>(pos.asLong(), item, delay, priority));
+        }
+
+        @Override
+        public boolean willTickThisTick(BlockPos pos, T item)
+        {
+            throw new UnplannableException();
+        }
+
+        private void apply(ITickList<T> target)
+        {
+            for (ScheduledTick<T> tick : this.ticks)
+            {
+                target.scheduleTick(BlockPos.of(tick.pos), tick.item, tick.delay, tick.priority);
+            }
+        }
+    }
+
+    private static class ScheduledTick<T>
+    {
+        private final long pos;
+        private final T item;
+        private final int delay;
+        private final TickPriority priority;
+
+        private ScheduledTick(long pos, T item, int delay, TickPriority priority)
+        {
+            this.pos = pos;
+            this.item = item;
+            this.delay = delay;
+            this.priority = priority;
+        }
+    }
+
+    private static class UnplannableException extends RuntimeException
+    {
+        private UnplannableException()
+        {
+            // Thrown as part of normal operation, so there's no need for a stack trace
+            super(null, null, false, false);
+        }
+    }
+
+    public static class Stats
+    {
+        public final long plans;
+        public final long commits;
+        public final long discards;
+        public final long fallbacks;
+        public final long planningNanos;
+        public final long commitNanos;
+
+        public Stats(long plans, long commits, long discards, long fallbacks, long planningNanos, long commitNanos)
+        {
+            this.plans = plans;
+            this.commits = commits;
+            this.discards = discards;
+            this.fallbacks = fallbacks;
+            this.planningNanos = planningNanos;
+            this.commitNanos = commitNanos;
+        }
+
+        public double getDiscardRate()
+        {
+            return this.plans == 0 ? 0.0D : (double)this.discards / (double)this.plans;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("plans=%d commits=%d discards=%d fallbacks=%d discardRate=%.3f planningMs=%.1f commitMs=%.1f", this.plans, this.commits, this.discards, this.fallbacks, this.getDiscardRate(), this.planningNanos / 1.0E6D, this.commitNanos / 1.0E6D);
+        }
+    }
+}
@@ -11,6 +11,7 @@ import net.minecraft.block.BlockState;
 import net.minecraft.block.Blocks;
 import net.minecraft.block.trees.Tree;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.ISeedReader;
 import net.minecraft.world.IWorld;
 import net.minecraft.world.biome.DefaultBiomeFeatures;
 import net.minecraft.world.gen.ChunkGenerator;
@@ -20,7 +21,7 @@ import net.minecraft.world.server.ServerWorld;
 import javax.annotation.Nullable;
 import java.util.Random;
 
-public abstract class TreeDefaultConfig extends Tree
+public abstract class TreeDefaultConfig extends Tree implements IPlannableTree
 {
     @Override
     @Nullable
@@ -33,6 +34,12 @@ public abstract class TreeDefaultConfig extends Tree
 
     @Override
     public boolean growTree(ServerWorld world, ChunkGenerator generator, BlockPos pos, BlockState state, Random random)
+    {
+        return this.growTree((ISeedReader)world, generator, pos, state, random);
+    }
+
+    @Override
+    public boolean growTree(ISeedReader world, ChunkGenerator generator, BlockPos pos, BlockState state, Random random)
     {
         Feature<BaseTreeFeatureConfig> feature = (Feature<BaseTreeFeatureConfig>)this.getFeature(random);
         if (feature == null)
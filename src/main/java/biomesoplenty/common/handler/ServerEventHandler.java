@@ -0,0 +1,30 @@
+/*******************************************************************************
+ * Copyright 2014-2019, the Biomes O' Plenty Team
+ *
+ * This work is licensed under a Creative Commons Attribution-NonCommercial-NoDerivatives 4.0 International Public License.
+ *
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/4.0/.
+ ******************************************************************************/
+package biomesoplenty.common.handler;
+
+import biomesoplenty.common.block.trees.PlannedTreeGrowth;
+import biomesoplenty.common.world.BiomeTileStore;
+import biomesoplenty.core.BiomesOPlenty;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.common.Mod;
+import net.minecraftforge.fml.event.server.FMLServerStoppedEvent;
+
+@Mod.EventBusSubscriber(bus = Mod.EventBusSubscriber.Bus.FORGE)
+public class ServerEventHandler
+{
+    @SubscribeEvent
+    public static void onServerStopped(FMLServerStoppedEvent event)
+    {
+        BiomeTileStore.closeAll();
+
+        PlannedTreeGrowth.Stats treeStats = PlannedTreeGrowth.getStats();
+
+        if (treeStats.plans > 0)
+            BiomesOPlenty.logger.debug("Planned tree growth: " + treeStats);
+    }
+}
@@ -0,0 +1,258 @@
+/*******************************************************************************
+ * Copyright 2014-2019, the Biomes O' Plenty Team
+ *
+ * This work is licensed under a Creative Commons Attribution-NonCommercial-NoDerivatives 4.0 International Public License.
+ *
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/4.0/.
+ ******************************************************************************/
+package biomesoplenty.common.util.block;
+
+import com.google.common.collect.Maps;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.tags.BlockTags;
+import net.minecraft.tags.ITagCollection;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.EmptyBlockReader;
+import net.minecraft.world.IBlockReader;
+import net.minecraft.world.IWorld;
+import net.minecraft.world.IWorldReader;
+import net.minecraftforge.common.extensions.IForgeBlock;
+
+import javax.annotation.Nullable;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/***
+ * A query answered from bitsets over the global block state ids. The predicate is evaluated once for every state
+ * when the query is first used, and again whenever the ids are reassigned or the block tags are reloaded.
+ *
+ * Some answers also depend on the position, such as for blocks which override Forge's air and leaf replacement
+ * hooks, or whose shape isn't cached by their states. States of those blocks are marked as positional and passed to
+ * a fallback query instead.
+ */
+public class BlockStateQuery implements IBlockStateQuery
+{
+    private static volatile StateIndex currentIndex;
+
+    private final Predicate<BlockState> predicate;
+    private final Predicate<Block> positional;
+    private final IBlockStateQuery fallback;
+    private volatile Table table;
+
+    private BlockStateQuery(Predicate<BlockState> predicate, Predicate<Block> positional, IBlockStateQuery fallback)
+    {
+        this.predicate = predicate;
+        this.positional = positional;
+        this.fallback = fallback;
+    }
+
+    /**
+     * Creates a query for a predicate which depends only on the state.
+     */
+    public static BlockStateQuery of(Predicate<BlockState> predicate)
+    {
+        return new BlockStateQuery(predicate, (block) -> false, (world, pos, state) -> predicate.test(state));
+    }
+
+    /**
+     * Creates a query which uses the predicate for most states, but asks the fallback for states of blocks the
+     * positional predicate accepts.
+     */
+    public static BlockStateQuery of(Predicate<BlockState> predicate, Predicate<Block> positional, IBlockStateQuery fallback)
+    {
+        return new BlockStateQuery(predicate, positional, fallback);
+    }
+
+    /**
+     * Equivalent to state.isAir(world, pos).
+     */
+    public static BlockStateQuery air()
+    {
+        return of(BlockStateQuery::isAir, BlockStateQuery::overridesAir, (world, pos, state) -> state.isAir(world, pos));
+    }
+
+    /**
+     * Equivalent to state.canBeReplacedByLeaves(world, pos) or the given state predicate.
+     */
+    public static BlockStateQuery replaceableByLeavesOr(Predicate<BlockState> predicate)
+    {
+        return of((state) -> canBeReplacedByLeaves(state) || predicate.test(state), BlockStateQuery::isLeafReplacementPositional, (world, pos, state) -> state.canBeReplacedByLeaves(world, pos) || predicate.test(state));
+    }
+
+    // Forge's default isAir for blocks which don't override it
+    public static boolean isAir(BlockState state)
+    {
+        return state.isAir();
+    }
+
+    // Forge's default canBeReplacedByLeaves for blocks which don't override it and whose states cache isSolidRender
+    public static boolean canBeReplacedByLeaves(BlockState state)
+    {
+        return state.isAir() || state.is(BlockTags.LEAVES) || !state.isSolidRender(EmptyBlockReader.INSTANCE, BlockPos.ZERO);
+    }
+
+    public static boolean overridesAir(Block block)
+    {
+        return overridesForgeHook(block, "isAir", BlockState.class, IBlockReader.class, BlockPos.class);
+    }
+
+    public static boolean overridesLeafReplacement(Block block)
+    {
+        return overridesAir(block) || overridesForgeHook(block, "canBeReplacedByLeaves", BlockState.class, IWorldReader.class, BlockPos.class);
+    }
+
+    // States only cache isSolidRender for blocks without a dynamic shape, otherwise the block is asked at the position
+    public static boolean isLeafReplacementPositional(Block block)
+    {
+        return block.hasDynamicShape() || overridesLeafReplacement(block);
+    }
+
+    private static boolean overridesForgeHook(Block block, String name, Class<?>... parameterTypes)
+    {
+        try
+        {
+            return block.getClass().getMethod(name, parameterTypes).getDeclaringClass() != IForgeBlock.class;
+        }
+        catch (NoSuchMethodException e)
+        {
+            // Assume the worst, the fallback will always give the right answer
+            return true;
+        }
+    }
+
+    @Override
+    public boolean matches(IWorld world, BlockPos pos, BlockState state)
+    {
+        Table table = this.table;
+        int id = Block.getId(state);
+
+        if (table == null || !table.index.contains(id, state))
+        {
+            table = this.getTable(id, state);
+
+            // States without an id can't be looked up
+            if (table == null)
+                return this.fallback.matches(world, pos, state);
+        }
+
+        if (table.positional.get(id))
+            return this.fallback.matches(world, pos, state);
+
+        return table.matching.get(id);
+    }
+
+    @Override
+    public boolean dependsOnPosition(BlockState state)
+    {
+        Table table = this.table;
+        int id = Block.getId(state);
+
+        if (table == null || !table.index.contains(id, state))
+        {
+            table = this.getTable(id, state);
+
+            if (table == null)
+                return true;
+        }
+
+        return table.positional.get(id);
+    }
+
+    @Nullable
+    private synchronized Table getTable(int id, BlockState state)
+    {
+        StateIndex index = getIndex(id, state);
+
+        if (!index.contains(id, state))
+            return null;
+
+        Table table = this.table;
+
+        if (table == null || table.index != index)
+        {
+            table = new Table(index, this.predicate, this.positional);
+            this.table = table;
+        }
+
+        return table;
+    }
+
+    private static synchronized StateIndex getIndex(int id, BlockState state)
+    {
+        StateIndex index = currentIndex;
+
+        // Only rebuild the index if the ids or tags have changed, not because the state was never given an id
+        if (index == null || index.tags != BlockTags.getAllTags() || (id >= 0 && !index.contains(id, state)))
+        {
+            index = new StateIndex();
+            currentIndex = index;
+        }
+
+        return index;
+    }
+
+    private static class StateIndex
+    {
+        private final BlockState[] states;
+        private final ITagCollection<Block> tags;
+
+        private StateIndex()
+        {
+            int maxId = -1;
+
+            for (BlockState state : Block.BLOCK_STATE_REGISTRY)
+            {
+                maxId = Math.max(maxId, Block.getId(state));
+            }
+
+            this.states = new BlockState[maxId + 1];
+            this.tags = BlockTags.getAllTags();
+
+            for (BlockState state : Block.BLOCK_STATE_REGISTRY)
+            {
+                this.states[Block.getId(state)] = state;
+            }
+        }
+
+        private boolean contains(int id, BlockState state)
+        {
+            return id >= 0 && id < this.states.length && this.states[id] == state && this.tags == BlockTags.getAllTags();
+        }
+    }
+
+    private static class Table
+    {
+        private final StateIndex index;
+        private final BitSet matching;
+        private final BitSet positional;
+
+        private Table(StateIndex index, Predicate<BlockState> predicate, Predicate<Block> positional)
+        {
+            this.index = index;
+            this.matching = new BitSet(index.states.length);
+            this.positional = new BitSet(index.states.length);
+
+            // Many states share a block, so only ask once per block whether it is positional
+            Map<Block, Boolean> positionalBlocks = Maps.newIdentityHashMap();
+
+            for (int id = 0; id < index.states.length; ++id)
+            {
+                BlockState state = index.states[id];
+
+                if (state == null)
+                    continue;
+
+                if (positionalBlocks.computeIfAbsent(state.getBlock(), positional::test))
+                {
+                    this.positional.set(id);
+                }
+                else if (predicate.test(state))
+                {
+                    this.matching.set(id);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/*******************************************************************************
+ * Copyright 2014-2019, the Biomes O' Plenty Team
+ *
+ * This work is licensed under a Creative Commons Attribution-NonCommercial-NoDerivatives 4.0 International Public License.
+ *
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/4.0/.
+ ******************************************************************************/
+package biomesoplenty.common.util.block;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.IWorld;
+
+/***
+ * A query which is given the state at the position by the caller, so callers which already have the state needn't
+ * read it from the world again.
+ */
+public interface IBlockStateQuery extends IBlockPosQuery
+{
+    boolean matches(IWorld world, BlockPos pos, BlockState state);
+
+    @Override
+    default boolean matches(IWorld world, BlockPos pos)
+    {
+        return this.matches(world, pos, world.getBlockState(pos));
+    }
+
+    /**
+     * Whether the answer for the state may depend on the position as well, in which case it mustn't be remembered
+     * for other positions holding the same state.
+     */
+    default boolean dependsOnPosition(BlockState state)
+    {
+        return true;
+    }
+
+    /**
+     * Adapts a position query, which reads the state itself, so it can be used wherever a state query is expected.
+     */
+    static IBlockStateQuery of(IBlockPosQuery query)
+    {
+        if (query instanceof IBlockStateQuery)
+            return (IBlockStateQuery)query;
+
+        return (world, pos, state) -> query.matches(world, pos);
+    }
+}
@@ -14,6 +14,11 @@ import org.apache.commons.io.FileUtils;
 
 import java.io.File;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 
 public class JsonUtil
 {
@@ -54,4 +59,44 @@ public class JsonUtil
             return false;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Writes to a temporary file alongside the output file and then moves it into place, so the output file is never
+     * left partially written.
+     */
+    public static boolean writeFileAtomically(File outputFile, String json)
+    {
+        Path outputPath = outputFile.toPath();
+        Path tempPath = null;
+
+        try
+        {
+            tempPath = Files.createTempFile(outputPath.toAbsolutePath().getParent(), outputFile.getName(), ".tmp");
+            Files.write(tempPath, json.getBytes(StandardCharsets.UTF_8));
+
+            try
+            {
+                Files.move(tempPath, outputPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+            catch (AtomicMoveNotSupportedException e)
+            {
+                Files.move(tempPath, outputPath, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            return true;
+        }
+        catch (Exception e)
+        {
+            BiomesOPlenty.logger.error("Error writing config file " + outputFile.getAbsolutePath() + ": " + e.getMessage());
+
+            try
+            {
+                if (tempPath != null)
+                    Files.deleteIfExists(tempPath);
+            }
+            catch (Exception ignored) {}
+
+            return false;
+        }
+    }
+}
@@ -5,16 +5,19 @@ import java.util.Random;
 
 public class AlphaOctavePerlinNoise
 {
-    private AlphaPerlinNoise samplers[];
-    private int octaves;
+    // The permutations and offsets of every octave are packed together, 256 and 3 entries per octave respectively
+    private final byte[] permutations;
+    private final double[] offsets;
+    private final int octaves;
 
     public AlphaOctavePerlinNoise(Random random, int octaves)
     {
         this.octaves = octaves;
-        samplers = new AlphaPerlinNoise[octaves];
+        permutations = new byte[octaves * 256];
+        offsets = new double[octaves * 3];
         for(int i = 0; i < octaves; i++)
         {
-            samplers[i] = new AlphaPerlinNoise(random);
+            AlphaPerlinNoise.initialise(random, permutations, i * 256, offsets, i * 3);
         }
 
     }
@@ -25,13 +28,30 @@ public class AlphaOctavePerlinNoise
         double amplitude = 1.0;
         for(int i = 0; i < this.octaves; i++)
         {
-            sum += this.samplers[i].sample(x * amplitude, z * amplitude) / amplitude;
+            // Equivalent to sampling an AlphaPerlinNoise at (x * amplitude, z * amplitude)
+            sum += AlphaPerlinNoise.noise(this.permutations, i * 256, x * amplitude + this.offsets[i * 3], z * amplitude + this.offsets[i * 3 + 1], 0.0 + this.offsets[i * 3 + 2]) / amplitude;
             amplitude /= 2.0;
         }
 
         return sum;
     }
 
+    /**
+     * Single precision equivalent of sample(x, z), for uses which don't need to match the double precision noise.
+     */
+    public float sampleFloat(float x, float z)
+    {
+        float sum = 0.0F;
+        float amplitude = 1.0F;
+        for(int i = 0; i < this.octaves; i++)
+        {
+            sum += AlphaPerlinNoise.noiseFloat(this.permutations, i * 256, x * amplitude + (float)this.offsets[i * 3], z * amplitude + (float)this.offsets[i * 3 + 1], (float)this.offsets[i * 3 + 2]) / amplitude;
+            amplitude /= 2.0F;
+        }
+
+        return sum;
+    }
+
     public double sample(double x, double y, double z, double xFreq, double yFreq, double zFreq)
     {
         double sum = 0.0;
@@ -39,10 +59,27 @@ public class AlphaOctavePerlinNoise
         double amplitude = 1.0D;
         for(int i = 0; i < octaves; i++)
         {
-            sum += samplers[i].sample(x, y, z, xFreq * amplitude, yFreq * amplitude, zFreq * amplitude, amplitude);
+            sum += AlphaPerlinNoise.sample(permutations, i * 256, offsets[i * 3], offsets[i * 3 + 1], offsets[i * 3 + 2], x, y, z, xFreq * amplitude, yFreq * amplitude, zFreq * amplitude, amplitude);
             amplitude /= 2D;
         }
 
         return sum;
     }
+
+    /**
+     * Fills out with samples from a box of size sizeX * sizeY * sizeZ, in the order out[(ix * sizeZ + iz) * sizeY + iy].
+     * Each sample is identical to sample(x + ix, y + iy, z + iz, xFreq, yFreq, zFreq), but every octave is evaluated
+     * over the whole box at once.
+     */
+    public void sampleArea(double[] out, double x, double y, double z, int sizeX, int sizeY, int sizeZ, double xFreq, double yFreq, double zFreq)
+    {
+        Arrays.fill(out, 0, sizeX * sizeY * sizeZ, 0.0D);
+
+        double amplitude = 1.0D;
+        for(int i = 0; i < octaves; i++)
+        {
+            AlphaPerlinNoise.sampleArea(permutations, i * 256, offsets[i * 3], offsets[i * 3 + 1], offsets[i * 3 + 2], out, x, y, z, sizeX, sizeY, sizeZ, xFreq * amplitude, yFreq * amplitude, zFreq * amplitude, amplitude);
+            amplitude /= 2D;
+        }
+    }
 }
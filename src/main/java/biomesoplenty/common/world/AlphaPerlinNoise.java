@@ -4,85 +4,90 @@ import java.util.Random;
 
 public class AlphaPerlinNoise
 {
-    private final int[] permutations;
+    // The classic gradient function adds two of the coordinates, either of which may be negated. Here the coordinates
+    // are picked out by multiplying with one-hot coefficients, which is exact as the coordinates are never negative
+    // zero, and negated by multiplying by -1, so the result is identical to the branching version.
+    private static final double[] GRAD_U_X = new double[16];
+    private static final double[] GRAD_U_Y = new double[16];
+    private static final double[] GRAD_V_X = new double[16];
+    private static final double[] GRAD_V_Y = new double[16];
+    private static final double[] GRAD_V_Z = new double[16];
+    private static final double[] GRAD_U_SIGN = new double[16];
+    private static final double[] GRAD_V_SIGN = new double[16];
+    private static final float[] GRAD_U_X_FLOAT = new float[16];
+    private static final float[] GRAD_U_Y_FLOAT = new float[16];
+    private static final float[] GRAD_V_X_FLOAT = new float[16];
+    private static final float[] GRAD_V_Y_FLOAT = new float[16];
+    private static final float[] GRAD_V_Z_FLOAT = new float[16];
+    private static final float[] GRAD_U_SIGN_FLOAT = new float[16];
+    private static final float[] GRAD_V_SIGN_FLOAT = new float[16];
+
+    static
+    {
+        for(int j = 0; j < 16; j++)
+        {
+            GRAD_U_X[j] = j >= 8 ? 0 : 1;
+            GRAD_U_Y[j] = j >= 8 ? 1 : 0;
+            GRAD_V_X[j] = j >= 4 && (j == 12 || j == 14) ? 1 : 0;
+            GRAD_V_Y[j] = j >= 4 ? 0 : 1;
+            GRAD_V_Z[j] = j >= 4 && j != 12 && j != 14 ? 1 : 0;
+            GRAD_U_SIGN[j] = (j & 1) != 0 ? -1 : 1;
+            GRAD_V_SIGN[j] = (j & 2) != 0 ? -1 : 1;
+            GRAD_U_X_FLOAT[j] = (float) GRAD_U_X[j];
+            GRAD_U_Y_FLOAT[j] = (float) GRAD_U_Y[j];
+            GRAD_V_X_FLOAT[j] = (float) GRAD_V_X[j];
+            GRAD_V_Y_FLOAT[j] = (float) GRAD_V_Y[j];
+            GRAD_V_Z_FLOAT[j] = (float) GRAD_V_Z[j];
+            GRAD_U_SIGN_FLOAT[j] = (float) GRAD_U_SIGN[j];
+            GRAD_V_SIGN_FLOAT[j] = (float) GRAD_V_SIGN[j];
+        }
+    }
+
+    // The permutation is stored once rather than twice, with lookups wrapping instead
+    private final byte[] permutations;
     public final double offsetX;
     public final double offsetY;
     public final double offsetZ;
 
     public AlphaPerlinNoise(Random random)
     {
-        permutations = new int[512];
-        offsetX = random.nextDouble() * 256D;
-        offsetY = random.nextDouble() * 256D;
-        offsetZ = random.nextDouble() * 256D;
+        permutations = new byte[256];
+        double[] offsets = new double[3];
+        initialise(random, permutations, 0, offsets, 0);
+        offsetX = offsets[0];
+        offsetY = offsets[1];
+        offsetZ = offsets[2];
+    }
+
+    /**
+     * Generates a permutation and offsets from the given random, consuming it exactly as the constructor does. Used to
+     * pack several octaves into shared arrays.
+     */
+    static void initialise(Random random, byte[] permutations, int permutationsStart, double[] offsets, int offsetsStart)
+    {
+        offsets[offsetsStart] = random.nextDouble() * 256D;
+        offsets[offsetsStart + 1] = random.nextDouble() * 256D;
+        offsets[offsetsStart + 2] = random.nextDouble() * 256D;
+
+        int[] shuffled = new int[256];
         for(int i = 0; i < 256; i++)
         {
-            permutations[i] = i;
+            shuffled[i] = i;
         }
 
         for(int j = 0; j < 256; j++)
         {
             int k = random.nextInt(256 - j) + j;
-            int l = permutations[j];
-            permutations[j] = permutations[k];
-            permutations[k] = l;
-            permutations[j + 256] = permutations[j];
+            int l = shuffled[j];
+            shuffled[j] = shuffled[k];
+            shuffled[k] = l;
+            permutations[permutationsStart + j] = (byte)shuffled[j];
         }
-
     }
 
     public double sample(double x, double y, double z)
     {
-        double localX = x + offsetX;
-        double localY = y + offsetY;
-        double localZ = z + offsetZ;
-        int floorX = (int) localX;
-        int floorY = (int) localY;
-        int floorZ = (int) localZ;
-        if(localX < (double) floorX)
-        {
-            floorX--;
-        }
-        if(localY < (double) floorY)
-        {
-            floorY--;
-        }
-        if(localZ < (double) floorZ)
-        {
-            floorZ--;
-        }
-        int maskedX = floorX & 0xff;
-        int maskedY = floorY & 0xff;
-        int maskedZ = floorZ & 0xff;
-        localX -= floorX;
-        localY -= floorY;
-        localZ -= floorZ;
-        // Apply smoothstep on all axes
-        double smoothedX = localX * localX * localX * (localX * (localX * 6 - 15) + 10);
-        double smoothedY = localY * localY * localY * (localY * (localY * 6 - 15) + 10);
-        double smoothedZ = localZ * localZ * localZ * (localZ * (localZ * 6 - 15) + 10);
-        int perm1 = permutations[maskedX] + maskedY;
-        int perm2 = permutations[perm1] + maskedZ;
-        int perm3 = permutations[perm1 + 1] + maskedZ;
-        int perm4 = permutations[maskedX + 1] + maskedY;
-        int perm5 = permutations[perm4] + maskedZ;
-        int perm6 = permutations[perm4 + 1] + maskedZ;
-        // Apply trilinear interpolation on the noise to get the final result
-        return lerp(smoothedZ,
-                    lerp(smoothedY,
-                        lerp(smoothedX,
-                                grad(permutations[perm2], localX, localY, localZ),
-                                grad(permutations[perm5], localX - 1.0D, localY, localZ)),
-                        lerp(smoothedX,
-                                grad(permutations[perm3], localX, localY - 1.0D, localZ),
-                                grad(permutations[perm6], localX - 1.0D, localY - 1.0D, localZ))),
-                    lerp(smoothedY,
-                            lerp(smoothedX,
-                                    grad(permutations[perm2 + 1], localX, localY, localZ - 1.0D),
-                                    grad(permutations[perm5 + 1], localX - 1.0D, localY, localZ - 1.0D)),
-                            lerp(smoothedX,
-                                    grad(permutations[perm3 + 1], localX, localY - 1.0D, localZ - 1.0D),
-                                    grad(permutations[perm6 + 1], localX - 1.0D, localY - 1.0D, localZ - 1.0D))));
+        return noise(permutations, 0, x + offsetX, y + offsetY, z + offsetZ);
     }
 
     public double lerp(double delta, double start, double end)
@@ -92,10 +97,7 @@ public class AlphaPerlinNoise
 
     public double grad(int i, double d, double d1, double d2)
     {
-        int j = i & 0xf;
-        double d3 = j >= 8 ? d1 : d;
-        double d4 = j >= 4 ? j != 12 && j != 14 ? d2 : d : d1;
-        return ((j & 1) != 0 ? -d3 : d3) + ((j & 2) != 0 ? -d4 : d4);
+        return gradient(i, d, d1, d2);
     }
 
     // Note: Passing in the z value as the y coordinate is intended behavior here.
@@ -104,51 +106,198 @@ public class AlphaPerlinNoise
         return sample(x, z, 0.0);
     }
 
+    /**
+     * Single precision equivalent of sample(x, z), for uses which don't need to match the double precision noise.
+     */
+    public float sampleFloat(float x, float z)
+    {
+        return noiseFloat(permutations, 0, x + (float)offsetX, z + (float)offsetY, (float)offsetZ);
+    }
+
     // Alternate sample method that provides frequency and amplitude modification functionality
     public double sample(double x, double y, double z, double freqX, double freqY, double freqZ, double amplitude)
+    {
+        return sample(permutations, 0, offsetX, offsetY, offsetZ, x, y, z, freqX, freqY, freqZ, amplitude);
+    }
+
+    static double sample(byte[] permutations, int start, double offsetX, double offsetY, double offsetZ, double x, double y, double z, double freqX, double freqY, double freqZ, double amplitude)
     {
         double noiseAmplitude = 1.0 / amplitude;
-        double localX = (x + (double) 0) * freqX + offsetX;
-        int floorX = (int) localX;
-        if(localX < (double) floorX)
+        return noise(permutations, start, (x + (double) 0) * freqX + offsetX, (y + (double) 0) * freqY + offsetY, (z + (double) 0) * freqZ + offsetZ) * noiseAmplitude;
+    }
+
+    /**
+     * Adds samples from a box of size sizeX * sizeY * sizeZ to out, using the frequency and amplitude modification
+     * of the method above. Samples are stored in the order out[(ix * sizeZ + iz) * sizeY + iy], and each is identical
+     * to sample(x + ix, y + iy, z + iz, freqX, freqY, freqZ, amplitude). The lattice lookups for each axis are only
+     * performed once per row rather than once per sample.
+     */
+    public void sampleArea(double[] out, double x, double y, double z, int sizeX, int sizeY, int sizeZ, double freqX, double freqY, double freqZ, double amplitude)
+    {
+        sampleArea(permutations, 0, offsetX, offsetY, offsetZ, out, x, y, z, sizeX, sizeY, sizeZ, freqX, freqY, freqZ, amplitude);
+    }
+
+    static void sampleArea(byte[] permutations, int start, double offsetX, double offsetY, double offsetZ, double[] out, double x, double y, double z, int sizeX, int sizeY, int sizeZ, double freqX, double freqY, double freqZ, double amplitude)
+    {
+        double noiseAmplitude = 1.0 / amplitude;
+
+        // The y axis is the same for every column
+        int[] maskYs = new int[sizeY];
+        double[] localYs = new double[sizeY];
+        double[] smoothYs = new double[sizeY];
+        for(int iy = 0; iy < sizeY; iy++)
         {
-            floorX--;
+            double localY = (y + (double) iy) * freqY + offsetY;
+            int floorY = floor(localY);
+            maskYs[iy] = floorY & 0xff;
+            localY -= floorY;
+            localYs[iy] = localY;
+            smoothYs[iy] = fade(localY);
         }
-        int maskX = floorX & 0xff;
-        localX -= floorX;
-        double smoothedX = localX * localX * localX * (localX * (localX * 6D - 15D) + 10D);
-        double localZ = (z + (double) 0) * freqZ + offsetZ;
-        int floorZ = (int) localZ;
-        if(localZ < (double) floorZ)
+
+        int index = 0;
+        for(int ix = 0; ix < sizeX; ix++)
         {
-            floorZ--;
+            double localX = (x + (double) ix) * freqX + offsetX;
+            int floorX = floor(localX);
+            int maskX = floorX & 0xff;
+            localX -= floorX;
+            double smoothedX = fade(localX);
+            int permX1 = permutation(permutations, start, maskX);
+            int permX2 = permutation(permutations, start, maskX + 1);
+
+            for(int iz = 0; iz < sizeZ; iz++)
+            {
+                double localZ = (z + (double) iz) * freqZ + offsetZ;
+                int floorZ = floor(localZ);
+                int maskZ = floorZ & 0xff;
+                localZ -= floorZ;
+                double smoothZ = fade(localZ);
+
+                for(int iy = 0; iy < sizeY; iy++)
+                {
+                    int maskY = maskYs[iy];
+                    double localY = localYs[iy];
+                    int perm1 = permX1 + maskY;
+                    int perm2 = permutation(permutations, start, perm1) + maskZ;
+                    int perm3 = permutation(permutations, start, perm1 + 1) + maskZ;
+                    int perm4 = permX2 + maskY;
+                    int perm5 = permutation(permutations, start, perm4) + maskZ;
+                    int perm6 = permutation(permutations, start, perm4 + 1) + maskZ;
+                    double finalNoise = interpolate(permutations, start, perm2, perm3, perm5, perm6, localX, localY, localZ, smoothedX, smoothYs[iy], smoothZ);
+
+                    out[index++] += finalNoise * noiseAmplitude;
+                }
+            }
         }
-        int maskZ = floorZ & 0xff;
+    }
+
+    // Samples the noise at coordinates which have already been offset
+    static double noise(byte[] permutations, int start, double localX, double localY, double localZ)
+    {
+        int floorX = floor(localX);
+        int floorY = floor(localY);
+        int floorZ = floor(localZ);
+        int maskedX = floorX & 0xff;
+        int maskedY = floorY & 0xff;
+        int maskedZ = floorZ & 0xff;
+        localX -= floorX;
+        localY -= floorY;
         localZ -= floorZ;
-        double smoothZ = localZ * localZ * localZ * (localZ * (localZ * 6D - 15D) + 10D);
-        double localY = (y + (double) 0) * freqY + offsetY;
-        int floorY = (int) localY;
-        if(localY < (double) floorY)
-        {
-            floorY--;
-        }
-        int maskY = floorY & 0xff;
+        int perm1 = permutation(permutations, start, maskedX) + maskedY;
+        int perm2 = permutation(permutations, start, perm1) + maskedZ;
+        int perm3 = permutation(permutations, start, perm1 + 1) + maskedZ;
+        int perm4 = permutation(permutations, start, maskedX + 1) + maskedY;
+        int perm5 = permutation(permutations, start, perm4) + maskedZ;
+        int perm6 = permutation(permutations, start, perm4 + 1) + maskedZ;
+        return interpolate(permutations, start, perm2, perm3, perm5, perm6, localX, localY, localZ, fade(localX), fade(localY), fade(localZ));
+    }
+
+    // Apply trilinear interpolation on the noise to get the final result
+    private static double interpolate(byte[] permutations, int start, int perm2, int perm3, int perm5, int perm6, double localX, double localY, double localZ, double smoothedX, double smoothedY, double smoothedZ)
+    {
+        double lerp1 = lerpStatic(smoothedX, gradient(permutation(permutations, start, perm2), localX, localY, localZ), gradient(permutation(permutations, start, perm5), localX - 1.0D, localY, localZ));
+        double lerp2 = lerpStatic(smoothedX, gradient(permutation(permutations, start, perm3), localX, localY - 1.0D, localZ), gradient(permutation(permutations, start, perm6), localX - 1.0D, localY - 1.0D, localZ));
+        double lerp3 = lerpStatic(smoothedX, gradient(permutation(permutations, start, perm2 + 1), localX, localY, localZ - 1.0D), gradient(permutation(permutations, start, perm5 + 1), localX - 1.0D, localY, localZ - 1.0D));
+        double lerp4 = lerpStatic(smoothedX, gradient(permutation(permutations, start, perm3 + 1), localX, localY - 1.0D, localZ - 1.0D), gradient(permutation(permutations, start, perm6 + 1), localX - 1.0D, localY - 1.0D, localZ - 1.0D));
+        return lerpStatic(smoothedZ, lerpStatic(smoothedY, lerp1, lerp2), lerpStatic(smoothedY, lerp3, lerp4));
+    }
+
+    // Single precision equivalent of noise
+    static float noiseFloat(byte[] permutations, int start, float localX, float localY, float localZ)
+    {
+        int floorX = floor(localX);
+        int floorY = floor(localY);
+        int floorZ = floor(localZ);
+        int maskedX = floorX & 0xff;
+        int maskedY = floorY & 0xff;
+        int maskedZ = floorZ & 0xff;
+        localX -= floorX;
         localY -= floorY;
-        double smoothY = localY * localY * localY * (localY * (localY * 6D - 15D) + 10D);
-        int perm1 = permutations[maskX] + maskY;
-        int perm2 = permutations[perm1] + maskZ;
-        int perm3 = permutations[perm1 + 1] + maskZ;
-        int perm4 = permutations[maskX + 1] + maskY;
-        int perm5 = permutations[perm4] + maskZ;
-        int perm6 = permutations[perm4 + 1] + maskZ;
-        double lerp1 = lerp(smoothedX, grad(permutations[perm2], localX, localY, localZ), grad(permutations[perm5], localX - 1.0D, localY, localZ));
-        double lerp2 = lerp(smoothedX, grad(permutations[perm3], localX, localY - 1.0D, localZ), grad(permutations[perm6], localX - 1.0D, localY - 1.0D, localZ));
-        double lerp3 = lerp(smoothedX, grad(permutations[perm2 + 1], localX, localY, localZ - 1.0D), grad(permutations[perm5 + 1], localX - 1.0D, localY, localZ - 1.0D));
-        double lerp4 = lerp(smoothedX, grad(permutations[perm3 + 1], localX, localY - 1.0D, localZ - 1.0D), grad(permutations[perm6 + 1], localX - 1.0D, localY - 1.0D, localZ - 1.0D));
-        double biLerp1 = lerp(smoothY, lerp1, lerp2);
-        double biLerp2 = lerp(smoothY, lerp3, lerp4);
-        double finalNoise = lerp(smoothZ, biLerp1, biLerp2);
-
-        return finalNoise * noiseAmplitude;
-    }
-}
\ No newline at end of file
+        localZ -= floorZ;
+        float smoothedX = localX * localX * localX * (localX * (localX * 6F - 15F) + 10F);
+        float smoothedY = localY * localY * localY * (localY * (localY * 6F - 15F) + 10F);
+        float smoothedZ = localZ * localZ * localZ * (localZ * (localZ * 6F - 15F) + 10F);
+        int perm1 = permutation(permutations, start, maskedX) + maskedY;
+        int perm2 = permutation(permutations, start, perm1) + maskedZ;
+        int perm3 = permutation(permutations, start, perm1 + 1) + maskedZ;
+        int perm4 = permutation(permutations, start, maskedX + 1) + maskedY;
+        int perm5 = permutation(permutations, start, perm4) + maskedZ;
+        int perm6 = permutation(permutations, start, perm4 + 1) + maskedZ;
+        float lerp1 = lerpFloat(smoothedX, gradientFloat(permutation(permutations, start, perm2), localX, localY, localZ), gradientFloat(permutation(permutations, start, perm5), localX - 1.0F, localY, localZ));
+        float lerp2 = lerpFloat(smoothedX, gradientFloat(permutation(permutations, start, perm3), localX, localY - 1.0F, localZ), gradientFloat(permutation(permutations, start, perm6), localX - 1.0F, localY - 1.0F, localZ));
+        float lerp3 = lerpFloat(smoothedX, gradientFloat(permutation(permutations, start, perm2 + 1), localX, localY, localZ - 1.0F), gradientFloat(permutation(permutations, start, perm5 + 1), localX - 1.0F, localY, localZ - 1.0F));
+        float lerp4 = lerpFloat(smoothedX, gradientFloat(permutation(permutations, start, perm3 + 1), localX, localY - 1.0F, localZ - 1.0F), gradientFloat(permutation(permutations, start, perm6 + 1), localX - 1.0F, localY - 1.0F, localZ - 1.0F));
+        return lerpFloat(smoothedZ, lerpFloat(smoothedY, lerp1, lerp2), lerpFloat(smoothedY, lerp3, lerp4));
+    }
+
+    // Indices may run past the end of the table, which then wraps around as the original doubled table did
+    private static int permutation(byte[] permutations, int start, int i)
+    {
+        return permutations[start + (i & 0xff)] & 0xff;
+    }
+
+    private static int floor(double value)
+    {
+        int floor = (int) value;
+        return floor - (value < (double) floor ? 1 : 0);
+    }
+
+    private static int floor(float value)
+    {
+        int floor = (int) value;
+        return floor - (value < (float) floor ? 1 : 0);
+    }
+
+    // Apply smoothstep
+    private static double fade(double value)
+    {
+        return value * value * value * (value * (value * 6D - 15D) + 10D);
+    }
+
+    private static double lerpStatic(double delta, double start, double end)
+    {
+        return start + delta * (end - start);
+    }
+
+    private static float lerpFloat(float delta, float start, float end)
+    {
+        return start + delta * (end - start);
+    }
+
+    private static double gradient(int i, double x, double y, double z)
+    {
+        int j = i & 0xf;
+        double u = GRAD_U_X[j] * x + GRAD_U_Y[j] * y;
+        double v = GRAD_V_X[j] * x + GRAD_V_Y[j] * y + GRAD_V_Z[j] * z;
+        return GRAD_U_SIGN[j] * u + GRAD_V_SIGN[j] * v;
+    }
+
+    private static float gradientFloat(int i, float x, float y, float z)
+    {
+        int j = i & 0xf;
+        float u = GRAD_U_X_FLOAT[j] * x + GRAD_U_Y_FLOAT[j] * y;
+        float v = GRAD_V_X_FLOAT[j] * x + GRAD_V_Y_FLOAT[j] * y + GRAD_V_Z_FLOAT[j] * z;
+        return GRAD_U_SIGN_FLOAT[j] * u + GRAD_V_SIGN_FLOAT[j] * v;
+    }
+}
@@ -9,10 +9,15 @@ package biomesoplenty.common.world;
 
 import biomesoplenty.api.enums.BOPClimates;
 import biomesoplenty.common.util.biome.BiomeUtil;
+import biomesoplenty.common.world.layer.traits.LayerCacheSizing;
+import biomesoplenty.core.BiomesOPlenty;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Sets;
 import com.mojang.serialization.Codec;
 import com.mojang.serialization.codecs.RecordCodecBuilder;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.util.RegistryKey;
+import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.registry.DynamicRegistries;
 import net.minecraft.util.registry.Registry;
 import net.minecraft.util.registry.RegistryLookupCodec;
@@ -20,12 +25,23 @@ import net.minecraft.util.registry.WorldGenRegistries;
 import net.minecraft.world.biome.Biome;
 import net.minecraft.world.biome.Biomes;
 import net.minecraft.world.biome.provider.BiomeProvider;
-import net.minecraft.world.gen.layer.Layer;
+import net.minecraft.world.gen.area.IArea;
 import net.minecraft.world.gen.layer.LayerUtil;
+import net.minecraft.world.storage.FolderName;
+import net.minecraftforge.fml.server.ServerLifecycleHooks;
 import net.minecraftforge.registries.ForgeRegistries;
 
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.BitSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 public class BOPBiomeProvider extends BiomeProvider
@@ -40,16 +56,46 @@ public class BOPBiomeProvider extends BiomeProvider
 
     private static final List<RegistryKey<Biome>> VANILLA_POSSIBLE_BIOMES = ImmutableList.of(Biomes.OCEAN, Biomes.PLAINS, Biomes.DESERT, Biomes.MOUNTAINS, Biomes.FOREST, Biomes.TAIGA, Biomes.SWAMP, Biomes.RIVER, Biomes.FROZEN_OCEAN, Biomes.FROZEN_RIVER, Biomes.SNOWY_TUNDRA, Biomes.SNOWY_MOUNTAINS, Biomes.MUSHROOM_FIELDS, Biomes.MUSHROOM_FIELD_SHORE, Biomes.BEACH, Biomes.DESERT_HILLS, Biomes.WOODED_HILLS, Biomes.TAIGA_HILLS, Biomes.MOUNTAIN_EDGE, Biomes.JUNGLE, Biomes.JUNGLE_HILLS, Biomes.JUNGLE_EDGE, Biomes.DEEP_OCEAN, Biomes.STONE_SHORE, Biomes.SNOWY_BEACH, Biomes.BIRCH_FOREST, Biomes.BIRCH_FOREST_HILLS, Biomes.DARK_FOREST, Biomes.SNOWY_TAIGA, Biomes.SNOWY_TAIGA_HILLS, Biomes.GIANT_TREE_TAIGA, Biomes.GIANT_TREE_TAIGA_HILLS, Biomes.WOODED_MOUNTAINS, Biomes.SAVANNA, Biomes.SAVANNA_PLATEAU, Biomes.BADLANDS, Biomes.WOODED_BADLANDS_PLATEAU, Biomes.BADLANDS_PLATEAU, Biomes.WARM_OCEAN, Biomes.LUKEWARM_OCEAN, Biomes.COLD_OCEAN, Biomes.DEEP_WARM_OCEAN, Biomes.DEEP_LUKEWARM_OCEAN, Biomes.DEEP_COLD_OCEAN, Biomes.DEEP_FROZEN_OCEAN, Biomes.SUNFLOWER_PLAINS, Biomes.DESERT_LAKES, Biomes.GRAVELLY_MOUNTAINS, Biomes.FLOWER_FOREST, Biomes.TAIGA_MOUNTAINS, Biomes.SWAMP_HILLS, Biomes.ICE_SPIKES, Biomes.MODIFIED_JUNGLE, Biomes.MODIFIED_JUNGLE_EDGE, Biomes.TALL_BIRCH_FOREST, Biomes.TALL_BIRCH_HILLS, Biomes.DARK_FOREST_HILLS, Biomes.SNOWY_TAIGA_MOUNTAINS, Biomes.GIANT_SPRUCE_TAIGA, Biomes.GIANT_SPRUCE_TAIGA_HILLS, Biomes.MODIFIED_GRAVELLY_MOUNTAINS, Biomes.SHATTERED_SAVANNA, Biomes.SHATTERED_SAVANNA_PLATEAU, Biomes.ERODED_BADLANDS, Biomes.MODIFIED_WOODED_BADLANDS_PLATEAU, Biomes.MODIFIED_BADLANDS_PLATEAU);
 
+    // The width of the tiles biomes are evaluated in. Each tile covers the quarts of 2x2 chunks.
+    private static final int TILE_SIZE = 8;
+
+    // The number of tiles retained by each thread. Sufficient to cover a chunk and its neighbouring quarts.
+    private static final int RECENT_TILES = 4;
+
+    // Each thread's recent tiles for every provider it has queried. Providers are replaced whenever a world is
+    // loaded, so they are held weakly to let their tiles go with them.
+    private static final ThreadLocal<Map<BOPBiomeProvider, BiomeTile[]>> RECENT_TILES_BY_PROVIDER = ThreadLocal.withInitial(WeakHashMap::new);
+
+    // The fewest positions in a row of a biome search worth splitting between threads
+    private static final int MIN_PARALLEL_POSITIONS = 64;
+
     private final long seed;
-    private final Layer noiseBiomeLayer;
+    private final BOPLayerPool noiseBiomeLayers;
     private final Registry<Biome> biomes;
+    private final boolean useTiles;
+    private final BiomePropertyTable properties;
+    private final BiomeLocator locator;
+    private final boolean useFastLocate;
+    private final boolean useParallelLocate;
+    private final BOPOverworldGenSettings settings;
+    private volatile BiomeTileStore tileStore;
+    private volatile boolean tileStoreFailed;
+    private final BiomeColumnCache columnCache = new BiomeColumnCache(this::sampleColumn);
 
     public BOPBiomeProvider(long seed, Registry<Biome> biomes)
     {
         super(Stream.concat(VANILLA_POSSIBLE_BIOMES.stream(), BOPClimates.getOverworldBiomes().stream()).map(biomes::get).collect(Collectors.toList()));
+        BOPOverworldGenSettings settings = new BOPOverworldGenSettings();
         this.seed = seed;
-        this.noiseBiomeLayer = BOPLayerUtil.createGenLayers(seed, new BOPOverworldGenSettings());
+        BiomePropertyTable properties = BiomePropertyTable.create();
+        this.noiseBiomeLayers = new BOPLayerPool(() -> BOPLayerUtil.createGenLayers(seed, settings, properties), settings.useThreadLocalLayers());
         this.biomes = biomes;
+        this.useTiles = settings.useBiomeTiles();
+        this.properties = properties;
+        this.locator = new BiomeLocator(properties, settings.getBiomeSize());
+        this.useFastLocate = settings.useFastBiomeLocate();
+        this.useParallelLocate = settings.useParallelBiomeLocate();
+        this.settings = settings;
     }
 
     @Override
@@ -67,6 +113,261 @@ public class BOPBiomeProvider extends BiomeProvider
     @Override
     public Biome getNoiseBiome(int x, int y, int z)
     {
-        return this.noiseBiomeLayer.get(this.biomes, x, z);
+        return this.columnCache.get(x, z);
+    }
+
+    /**
+     * Equivalent of the vanilla method structures use to check their surroundings. Rather than querying every quart
+     * in turn, the area is evaluated as a single tile and the distinct biome ids are gathered in a bit set.
+     */
+    @Override
+    public Set<Biome> getBiomesWithin(int x, int y, int z, int radius)
+    {
+        if (!this.useTiles)
+            return super.getBiomesWithin(x, y, z, radius);
+
+        int minX = x - radius >> 2;
+        int minZ = z - radius >> 2;
+        int width = (x + radius >> 2) - minX + 1;
+        int height = (z + radius >> 2) - minZ + 1;
+        Set<Biome> result = Sets.newHashSet();
+        BitSet seen = new BitSet();
+
+        if (width <= 0 || height <= 0)
+            return result;
+
+        BiomeTile tile = this.getNoiseBiomeTile(minX, minZ, width, height);
+
+        for (int tileZ = minZ; tileZ < minZ + height; ++tileZ)
+        {
+            for (int tileX = minX; tileX < minX + width; ++tileX)
+            {
+                int id = tile.get(tileX, tileZ);
+
+                // Invalid ids are left to getBiome to report
+                if (id >= 0)
+                {
+                    if (seen.get(id))
+                        continue;
+
+                    seen.set(id);
+                }
+
+                result.add(BOPLayer.getBiome(this.biomes, id));
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Equivalent of the vanilla search, used for locating biomes and picking the world spawn. Positions are visited in
+     * the same order and the random is drawn from in the same way, so the result is identical, but positions whose
+     * climate rules out the target biomes are skipped without walking the layer stack.
+     */
+    @Override
+    public BlockPos findBiomeHorizontal(int x, int y, int z, int radius, int increment, Predicate<Biome> predicate, Random random, boolean findClosest)
+    {
+        if (!this.useFastLocate)
+            return super.findBiomeHorizontal(x, y, z, radius, increment, predicate, random, findClosest);
+
+        Set<Biome> targets = Sets.newIdentityHashSet();
+        boolean[] targetIds = new boolean[this.properties.size()];
+
+        for (Biome biome : this.biomes)
+        {
+            if (!predicate.test(biome))
+                continue;
+
+            int id = this.biomes.getId(biome);
+
+            // We can't reason about biomes the layers don't know about
+            if (id < 0 || id >= targetIds.length)
+                return super.findBiomeHorizontal(x, y, z, radius, increment, predicate, random, findClosest);
+
+            targets.add(biome);
+            targetIds[id] = true;
+        }
+
+        boolean[] hostClimates = this.locator.getHostClimates(targetIds);
+        IArea climateArea = this.noiseBiomeLayers.get().getStage("climate");
+
+        if (hostClimates == null || climateArea == null)
+            return super.findBiomeHorizontal(x, y, z, radius, increment, predicate, random, findClosest);
+
+        int centerX = x >> 2;
+        int centerZ = z >> 2;
+        int quartRadius = radius >> 2;
+        BiomeLocator.Candidates candidates = this.locator.findCandidates(climateArea, hostClimates, centerX - quartRadius, centerZ - quartRadius, centerX + quartRadius, centerZ + quartRadius);
+
+        BlockPos result = null;
+        int found = 0;
+        int[] rowOffsets = new int[quartRadius * 2 + 1];
+        boolean[] rowMatches = new boolean[rowOffsets.length];
+
+        for (int ring = findClosest ? 0 : quartRadius; ring <= quartRadius; ring += increment)
+        {
+            for (int offsetZ = -ring; offsetZ <= ring; offsetZ += increment)
+            {
+                boolean edgeRow = Math.abs(offsetZ) == ring;
+                int count = 0;
+
+                for (int offsetX = -ring; offsetX <= ring; offsetX += increment)
+                {
+                    // Searches for the closest position only visit the edge of each ring
+                    if (findClosest && !edgeRow && Math.abs(offsetX) != ring)
+                        continue;
+
+                    if (candidates.contains(centerX + offsetX, centerZ + offsetZ))
+                        rowOffsets[count++] = offsetX;
+                }
+
+                this.testRow(targets, centerX, y >> 2, centerZ + offsetZ, rowOffsets, rowMatches, count);
+
+                for (int i = 0; i < count; ++i)
+                {
+                    if (!rowMatches[i])
+                        continue;
+
+                    if (result == null || random.nextInt(found + 1) == 0)
+                    {
+                        result = new BlockPos((centerX + rowOffsets[i]) << 2, y, (centerZ + offsetZ) << 2);
+
+                        if (findClosest)
+                            return result;
+                    }
+
+                    ++found;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private void testRow(Set<Biome> targets, int centerX, int y, int z, int[] offsets, boolean[] matches, int count)
+    {
+        if (this.useParallelLocate && count >= MIN_PARALLEL_POSITIONS)
+        {
+            // Each worker thread evaluates biomes with a layer stack of its own
+            IntStream.range(0, count).parallel().forEach((i) -> matches[i] = targets.contains(this.getNoiseBiome(centerX + offsets[i], y, z)));
+        }
+        else
+        {
+            for (int i = 0; i < count; ++i)
+            {
+                matches[i] = targets.contains(this.getNoiseBiome(centerX + offsets[i], y, z));
+            }
+        }
+    }
+
+    private Biome sampleColumn(int x, int z)
+    {
+        if (!this.useTiles)
+        {
+            return this.noiseBiomeLayers.get().get(this.biomes, x, z);
+        }
+
+        return BOPLayer.getBiome(this.biomes, this.getTile(x, z).get(x, z));
+    }
+
+    /**
+     * Evaluates a rectangle of biome ids at quart resolution in a single pass through the layer stack.
+     */
+    public BiomeTile getNoiseBiomeTile(int x, int z, int width, int height)
+    {
+        return this.noiseBiomeLayers.get().getTile(x, z, width, height);
+    }
+
+    private BiomeTile getTile(int x, int z)
+    {
+        BiomeTile[] tiles = RECENT_TILES_BY_PROVIDER.get().computeIfAbsent(this, (provider) -> new BiomeTile[RECENT_TILES]);
+
+        for (int i = 0; i < tiles.length; ++i)
+        {
+            BiomeTile tile = tiles[i];
+
+            if (tile != null && tile.contains(x, z))
+            {
+                // Move the tile to the front so the least recently used tile is replaced first
+                System.arraycopy(tiles, 0, tiles, 1, i);
+                tiles[0] = tile;
+                return tile;
+            }
+        }
+
+        BiomeTile tile = this.createTile(Math.floorDiv(x, TILE_SIZE) * TILE_SIZE, Math.floorDiv(z, TILE_SIZE) * TILE_SIZE);
+        System.arraycopy(tiles, 0, tiles, 1, tiles.length - 1);
+        tiles[0] = tile;
+        return tile;
+    }
+
+    private BiomeTile createTile(int x, int z)
+    {
+        BiomeTileStore store = this.getTileStore();
+
+        if (store != null)
+        {
+            int[] biomeIds = store.load(x, z);
+
+            if (biomeIds != null)
+                return new BiomeTile(x, z, TILE_SIZE, TILE_SIZE, biomeIds);
+        }
+
+        BiomeTile tile = this.getNoiseBiomeTile(x, z, TILE_SIZE, TILE_SIZE);
+
+        if (store != null)
+            store.save(tile);
+
+        return tile;
+    }
+
+    // The store is opened once a server is running, as that is when the world directory is known
+    @Nullable
+    private BiomeTileStore getTileStore()
+    {
+        BiomeTileStore store = this.tileStore;
+
+        if (store != null || !this.settings.storeBiomeTiles() || this.tileStoreFailed)
+            return store;
+
+        MinecraftServer server = ServerLifecycleHooks.getCurrentServer();
+
+        if (server == null)
+            return null;
+
+        synchronized (this)
+        {
+            if (this.tileStore == null && !this.tileStoreFailed)
+            {
+                try
+                {
+                    this.tileStore = BiomeTileStore.open(server.getWorldPath(FolderName.ROOT), this.seed, this.settings, this.biomes, TILE_SIZE);
+                }
+                catch (IOException e)
+                {
+                    BiomesOPlenty.logger.warn("Failed to open biome tile store, biome tiles will not be stored", e);
+                    this.tileStoreFailed = true;
+                }
+            }
+
+            return this.tileStore;
+        }
+    }
+
+    public ImmutableList<LayerCacheSizing.Stats> getLayerCacheStats()
+    {
+        return this.noiseBiomeLayers.getCacheStats();
+    }
+
+    public BiomeColumnCache.Stats getColumnCacheStats()
+    {
+        return this.columnCache.getStats();
+    }
+
+    /** Describes the layer graph used by the calling thread, along with how often each stage has been evaluated. */
+    public String describeLayerGraph()
+    {
+        return this.noiseBiomeLayers.get().describeGraph();
     }
 }
\ No newline at end of file
@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright 2014-2019, the Biomes O' Plenty Team
+ *
+ * This work is licensed under a Creative Commons Attribution-NonCommercial-NoDerivatives 4.0 International Public License.
+ *
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/4.0/.
+ ******************************************************************************/
+package biomesoplenty.common.world;
+
+import biomesoplenty.common.world.layer.traits.LayerCacheSizing;
+import biomesoplenty.common.world.layer.traits.LazyAreaBOP;
+import biomesoplenty.core.BiomesOPlenty;
+import com.google.common.collect.ImmutableList;
+import net.minecraft.util.registry.Registry;
+import net.minecraft.world.biome.Biome;
+import net.minecraft.world.biome.Biomes;
+import net.minecraft.world.gen.area.IAreaFactory;
+
+import javax.annotation.Nullable;
+
+/***
+ * Equivalent of Mojang's Layer for stacks built from LazyAreaBOPs.
+ */
+public class BOPLayer
+{
+    private final LazyAreaBOP area;
+    private final LayerCacheSizing sizing;
+    @Nullable
+    private final BOPLayerGraph<LazyAreaBOP> graph;
+
+    public BOPLayer(IAreaFactory<LazyAreaBOP> factory, LayerCacheSizing sizing)
+    {
+        this(factory, sizing, null);
+    }
+
+    public BOPLayer(IAreaFactory<LazyAreaBOP> factory, LayerCacheSizing sizing, @Nullable BOPLayerGraph<LazyAreaBOP> graph)
+    {
+        this.area = factory.make();
+        this.sizing = sizing;
+        this.graph = graph;
+    }
+
+    public Biome get(Registry<Biome> biomes, int x, int z)
+    {
+        return getBiome(biomes, this.area.get(x, z));
+    }
+
+    public BiomeTile getTile(int x, int z, int width, int height)
+    {
+        int[] biomeIds = new int[width * height];
+        this.area.fill(x, z, width, height, biomeIds);
+        return new BiomeTile(x, z, width, height, biomeIds);
+    }
+
+    public static Biome getBiome(Registry<Biome> biomes, int biomeId)
+    {
+        Biome biome = biomes.byId(biomeId);
+
+        if (biome == null)
+        {
+            BiomesOPlenty.logger.warn("Unknown biome id: {}", biomeId);
+            return biomes.getOrThrow(Biomes.OCEAN);
+        }
+
+        return biome;
+    }
+
+    public ImmutableList<LayerCacheSizing.Stats> getCacheStats()
+    {
+        return this.sizing.getStats();
+    }
+
+    /** Gets the area of the named stage of the stack, or null if the stack wasn't built with a graph. */
+    @Nullable
+    public LazyAreaBOP getStage(String name)
+    {
+        return this.graph != null ? this.graph.getArea(name) : null;
+    }
+
+    /** Describes the stages of the stack and how often each has been evaluated, if the stack was built with a graph. */
+    public String describeGraph()
+    {
+        return this.graph != null ? this.graph.describe() : "";
+    }
+}
@@ -0,0 +1,159 @@
+/*******************************************************************************
+ * Copyright 2014-2019, the Biomes O' Plenty Team
+ *
+ * This work is licensed under a Creative Commons Attribution-NonCommercial-NoDerivatives 4.0 International Public License.
+ *
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/4.0/.
+ ******************************************************************************/
+package biomesoplenty.common.world;
+
+import biomesoplenty.common.world.layer.traits.LayerCacheSizing;
+import biomesoplenty.common.world.layer.traits.LazyAreaBOP;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import net.minecraft.world.gen.area.IArea;
+import net.minecraft.world.gen.area.IAreaFactory;
+
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/***
+ * Records the stages of a layer stack as it is built. Area factories normally construct a fresh copy of their whole
+ * upstream graph every time they are made, so a stage feeding several consumers would be built once per path to the
+ * root. Stages registered here are built once and their area is handed to every consumer.
+ *
+ * Edges between stages are detected as the areas are made, so the graph can be printed along with how often each
+ * stage was requested, how often it would have been built without sharing and how many pixels it has evaluated.
+ */
+public class BOPLayerGraph<T extends IArea>
+{
+    private final List<Node> nodes = Lists.newArrayList();
+
+    // The stages whose areas are currently being made, innermost first
+    private final Deque<Node> making = new ArrayDeque<>();
+
+    /**
+     * Registers a stage of the graph. The returned factory should be used in place of the original by all of the
+     * stage's consumers.
+     */
+    public IAreaFactory<T> node(String name, IAreaFactory<T> factory)
+    {
+        Node node = new Node(name, factory);
+        this.nodes.add(node);
+        return node;
+    }
+
+    /**
+     * Gets the area of the named stage, or null if there is no such stage or it hasn't been made yet. Unlike making
+     * the stage, this isn't counted as a request.
+     */
+    @Nullable
+    public synchronized T getArea(String name)
+    {
+        for (Node node : this.nodes)
+        {
+            if (node.name.equals(name))
+                return node.area;
+        }
+
+        return null;
+    }
+
+    public synchronized String describe()
+    {
+        // Stages are registered after their inputs, so walking backwards visits consumers before the stages they use
+        int[] unsharedBuilds = new int[this.nodes.size()];
+
+        for (int i = this.nodes.size() - 1; i >= 0; i--)
+        {
+            Node node = this.nodes.get(i);
+            unsharedBuilds[i] = node.consumers.isEmpty() ? 1 : node.consumers.stream().mapToInt((consumer) -> unsharedBuilds[this.nodes.indexOf(consumer)]).sum();
+        }
+
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < this.nodes.size(); i++)
+        {
+            Node node = this.nodes.get(i);
+            builder.append(node.name);
+
+            if (!node.inputs.isEmpty())
+            {
+                builder.append(" <- ").append(node.inputs.stream().map((input) -> input.name).collect(Collectors.joining(", ")));
+            }
+
+            builder.append(String.format(" [requests=%d, unshared builds=%d", node.requests, unsharedBuilds[i]));
+
+            if (node.area instanceof LazyAreaBOP)
+            {
+                LayerCacheSizing.Stats stats = ((LazyAreaBOP)node.area).getContext().getStats();
+                builder.append(String.format(", evaluations=%d, cache hits=%d, tile hits=%d", stats.getEvaluations(), stats.hits, stats.tileHits));
+            }
+
+            builder.append("]\n");
+        }
+
+        return builder.toString();
+    }
+
+    @Override
+    public String toString()
+    {
+        return this.describe();
+    }
+
+    private class Node implements IAreaFactory<T>
+    {
+        private final String name;
+        private final IAreaFactory<T> factory;
+        private final Set<Node> inputs = Sets.newLinkedHashSet();
+        private final Set<Node> consumers = Sets.newLinkedHashSet();
+        private int requests;
+        private T area;
+
+        private Node(String name, IAreaFactory<T> factory)
+        {
+            this.name = name;
+            this.factory = factory;
+        }
+
+        @Override
+        public T make()
+        {
+            BOPLayerGraph<T> graph = BOPLayerGraph.this;
+
+            synchronized (graph)
+            {
+                Node consumer = graph.making.peek();
+
+                if (consumer != null)
+                {
+                    consumer.inputs.add(this);
+                    this.consumers.add(consumer);
+                }
+
+                ++this.requests;
+
+                if (this.area == null)
+                {
+                    graph.making.push(this);
+
+                    try
+                    {
+                        this.area = this.factory.make();
+                    }
+                    finally
+                    {
+                        graph.making.pop();
+                    }
+                }
+
+                return this.area;
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Copyright 2014-2019, the Biomes O' Plenty Team
+ *
+ * This work is licensed under a Creative Commons Attribution-NonCommercial-NoDerivatives 4.0 International Public License.
+ *
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/4.0/.
+ ******************************************************************************/
+package biomesoplenty.common.world;
+
+import biomesoplenty.common.world.layer.traits.LayerCacheSizing;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/***
+ * Hands out layer stacks to the threads which query biomes. When thread confined, each thread lazily builds its own
+ * stack so worldgen workers don't contend on each other's caches. Stacks which haven't been used for a while are
+ * released. As layers are deterministic, every stack produces the same biomes.
+ */
+public class BOPLayerPool
+{
+    private static final long IDLE_TIMEOUT = TimeUnit.SECONDS.toNanos(60);
+    private static final long SWEEP_INTERVAL = TimeUnit.SECONDS.toNanos(10);
+
+    // Each thread's entries are looked up by pool rather than kept in a ThreadLocal per pool. Otherwise an entry, and
+    // the stack it holds, would stay in every worker thread's map long after its world has been unloaded.
+    private static final ThreadLocal<Map<BOPLayerPool, Entry>> THREAD_ENTRIES = ThreadLocal.withInitial(WeakHashMap::new);
+
+    private final Supplier<BOPLayer> factory;
+    private final boolean threadConfined;
+
+    private final BOPLayer sharedLayer;
+    private final Set<Entry> activeEntries = Sets.newConcurrentHashSet();
+    private final AtomicLong nextSweep = new AtomicLong(System.nanoTime() + SWEEP_INTERVAL);
+
+    public BOPLayerPool(Supplier<BOPLayer> factory, boolean threadConfined)
+    {
+        this.factory = factory;
+        this.threadConfined = threadConfined;
+        this.sharedLayer = threadConfined ? null : factory.get();
+    }
+
+    public BOPLayer get()
+    {
+        if (!this.threadConfined)
+        {
+            return this.sharedLayer;
+        }
+
+        long now = System.nanoTime();
+        Entry entry = THREAD_ENTRIES.get().computeIfAbsent(this, (pool) -> new Entry());
+        BOPLayer layer = entry.layer;
+        entry.lastUsed = now;
+
+        if (layer == null)
+        {
+            layer = this.factory.get();
+            entry.layer = layer;
+            this.activeEntries.add(entry);
+        }
+
+        long sweepTime = this.nextSweep.get();
+
+        if (now - sweepTime >= 0 && this.nextSweep.compareAndSet(sweepTime, now + SWEEP_INTERVAL))
+        {
+            this.sweep(now);
+        }
+
+        return layer;
+    }
+
+    private void sweep(long now)
+    {
+        for (Entry entry : this.activeEntries)
+        {
+            // The owner rebuilds its stack if it is still alive and returns after being released
+            if (!entry.owner.isAlive() || now - entry.lastUsed > IDLE_TIMEOUT)
+            {
+                entry.layer = null;
+                this.activeEntries.remove(entry);
+            }
+        }
+    }
+
+    public int getActiveLayerCount()
+    {
+        return this.threadConfined ? this.activeEntries.size() : 1;
+    }
+
+    /**
+     * Gets the cache stats of every layer, combined across all active stacks.
+     */
+    public ImmutableList<LayerCacheSizing.Stats> getCacheStats()
+    {
+        if (!this.threadConfined)
+        {
+            return this.sharedLayer.getCacheStats();
+        }
+
+        List<LayerCacheSizing.Stats> combined = Lists.newArrayList();
+
+        for (Entry entry : this.activeEntries)
+        {
+            BOPLayer layer = entry.layer;
+
+            if (layer == null)
+                continue;
+
+            // All stacks are built identically, so their layers line up
+            List<LayerCacheSizing.Stats> stats = layer.getCacheStats();
+
+            for (int i = 0; i < stats.size(); i++)
+            {
+                if (i < combined.size())
+                {
+                    combined.set(i, combined.get(i).combine(stats.get(i)));
+                }
+                else
+                {
+                    combined.add(stats.get(i));
+                }
+            }
+        }
+
+        return ImmutableList.copyOf(combined);
+    }
+
+    private static class Entry
+    {
+        private final Thread owner = Thread.currentThread();
+        private volatile BOPLayer layer;
+        private volatile long lastUsed;
+    }
+}
@@ -9,13 +9,16 @@ package biomesoplenty.common.world;
 
 import biomesoplenty.common.util.biome.BiomeUtil;
 import biomesoplenty.common.world.layer.*;
+import biomesoplenty.common.world.layer.traits.IBOPLayerRandom;
+import biomesoplenty.common.world.layer.traits.LayerCacheSizing;
+import biomesoplenty.common.world.layer.traits.LayerRandomBOP;
+import biomesoplenty.common.world.layer.traits.LazyAreaBOP;
 import biomesoplenty.common.world.layer.traits.LazyAreaLayerContextBOP;
 import net.minecraft.util.registry.Registry;
 import net.minecraft.world.biome.Biomes;
 import net.minecraft.world.gen.IExtendedNoiseRandom;
 import net.minecraft.world.gen.area.IArea;
 import net.minecraft.world.gen.area.IAreaFactory;
-import net.minecraft.world.gen.area.LazyArea;
 import net.minecraft.world.gen.layer.*;
 
 import java.util.function.LongFunction;
@@ -37,9 +40,9 @@ public class BOPLayerUtil
     {
         // NOTE: Normally AddSnow, CoolWarm, HeatIce and Special GenLayers occur here, but we handle those ourselves
         IAreaFactory<T> factory = IslandLayer.INSTANCE.run(contextFactory.apply(1L));
-        factory = ZoomLayer.FUZZY.run(contextFactory.apply(2000L), factory);
+        factory = zoom(2000L, ZoomLayer.FUZZY, factory, 1, contextFactory);
         factory = AddIslandLayer.INSTANCE.run(contextFactory.apply(1L), factory);
-        factory = ZoomLayer.NORMAL.run(contextFactory.apply(2001L), factory);
+        factory = zoom(2001L, ZoomLayer.NORMAL, factory, 1, contextFactory);
         factory = AddIslandLayer.INSTANCE.run(contextFactory.apply(2L), factory);
         factory = AddIslandLayer.INSTANCE.run(contextFactory.apply(50L), factory);
         factory = AddIslandLayer.INSTANCE.run(contextFactory.apply(70L), factory);
@@ -49,8 +52,8 @@ public class BOPLayerUtil
         //factory = GenLayerEdge.CoolWarm.INSTANCE.run(contextFactory.apply(2L), factory);
         //factory = GenLayerEdge.HeatIce.INSTANCE.run(contextFactory.apply(2L), factory);
         //factory = GenLayerEdge.Special.INSTANCE.run(contextFactory.apply(3L), factory);
-        factory = ZoomLayer.NORMAL.run(contextFactory.apply(2002L), factory);
-        factory = ZoomLayer.NORMAL.run(contextFactory.apply(2003L), factory);
+        factory = zoom(2002L, ZoomLayer.NORMAL, factory, 1, contextFactory);
+        factory = zoom(2003L, ZoomLayer.NORMAL, factory, 1, contextFactory);
         factory = AddIslandLayer.INSTANCE.run(contextFactory.apply(4L), factory);
         return factory;
     }
@@ -58,65 +61,76 @@ public class BOPLayerUtil
     // superimpose hot and cold regions an a land and sea layer
     public static <T extends IArea, C extends IExtendedNoiseRandom<T>> IAreaFactory<T> createClimateFactory(LongFunction<C> contextFactory, BOPOverworldGenSettings settings)
     {
-        IAreaFactory<T> temperatureFactory;
+        C context = contextFactory.apply(103L);
+
+        // Noise based layers only depend on the world seed. The others need a source of randomness of their own.
+        IClimateSampler temperatureSampler;
+        IBOPLayerRandom temperatureRandom = null;
 
         switch (settings.getTempScheme())
         {
             case LATITUDE: default:
-                temperatureFactory = TemperatureLatitudeLayer.INSTANCE.run(contextFactory.apply(2L));
+                temperatureSampler = TemperatureLatitudeLayer.INSTANCE;
+                temperatureRandom = LayerRandomBOP.of(context, 2L);
                 break;
             case SMALL_ZONES:
-                temperatureFactory = TemperatureNoiseLayer.SMALL_ZONES.run(contextFactory.apply(3L));
+                temperatureSampler = TemperatureNoiseLayer.SMALL_ZONES;
                 break;
             case MEDIUM_ZONES:
-                temperatureFactory = TemperatureNoiseLayer.MEDIUM_ZONES.run(contextFactory.apply(4L));
+                temperatureSampler = TemperatureNoiseLayer.MEDIUM_ZONES;
                 break;
             case LARGE_ZONES:
-                temperatureFactory = TemperatureNoiseLayer.LARGE_ZONES.run(contextFactory.apply(5L));
+                temperatureSampler = TemperatureNoiseLayer.LARGE_ZONES;
                 break;
             case RANDOM:
-                temperatureFactory = TemperatureRandomLayer.INSTANCE.run(contextFactory.apply(6L));
+                temperatureSampler = TemperatureRandomLayer.INSTANCE;
+                temperatureRandom = LayerRandomBOP.of(context, 6L);
                 break;
         }
 
-        IAreaFactory<T> rainfallFactory;
+        IClimateSampler rainfallSampler;
+        IBOPLayerRandom rainfallRandom = null;
+
         switch(settings.getRainScheme())
         {
             case SMALL_ZONES:
-                rainfallFactory = RainfallNoiseLayer.SMALL_ZONES.run(contextFactory.apply(7L));
+                rainfallSampler = RainfallNoiseLayer.SMALL_ZONES;
                 break;
             case MEDIUM_ZONES: default:
-                rainfallFactory = RainfallNoiseLayer.MEDIUM_ZONES.run(contextFactory.apply(8L));
+                rainfallSampler = RainfallNoiseLayer.MEDIUM_ZONES;
                 break;
             case LARGE_ZONES:
-                rainfallFactory = RainfallNoiseLayer.LARGE_ZONES.run(contextFactory.apply(9L));
+                rainfallSampler = RainfallNoiseLayer.LARGE_ZONES;
                 break;
             case RANDOM:
-                rainfallFactory = RainfallRandomLayer.INSTANCE.run(contextFactory.apply(10L));
+                rainfallSampler = RainfallRandomLayer.INSTANCE;
+                rainfallRandom = LayerRandomBOP.of(context, 10L);
                 break;
         }
 
-        return ClimateLayer.INSTANCE.run(contextFactory.apply(103L), temperatureFactory, rainfallFactory);
+        return new ClimateLayer(temperatureSampler, temperatureRandom, rainfallSampler, rainfallRandom).run(context);
     }
 
-    public static <T extends IArea, C extends IExtendedNoiseRandom<T>> IAreaFactory<T> createBiomeFactory(IAreaFactory<T> landSeaAreaFactory, IAreaFactory<T> climateAreaFactory, LongFunction<C> contextFactory)
+    public static <T extends IArea, C extends IExtendedNoiseRandom<T>> IAreaFactory<T> createBiomeFactory(IAreaFactory<T> landSeaAreaFactory, IAreaFactory<T> climateAreaFactory, BiomePropertyTable properties, LongFunction<C> contextFactory)
     {
-        IAreaFactory<T> biomeFactory = BOPBiomeLayer.INSTANCE.run(contextFactory.apply(200L), landSeaAreaFactory, climateAreaFactory);
+        IAreaFactory<T> biomeFactory = new BOPBiomeLayer(properties).run(contextFactory.apply(200L), landSeaAreaFactory, climateAreaFactory);
         biomeFactory = AddBambooForestLayer.INSTANCE.run(contextFactory.apply(1001L), biomeFactory);
-        biomeFactory = LayerUtil.zoom(1000L, ZoomLayer.NORMAL, biomeFactory, 2, contextFactory);
-        biomeFactory = BOPBiomeEdgeLayer.INSTANCE.run(contextFactory.apply(1000L), biomeFactory);
+        biomeFactory = zoom(1000L, ZoomLayer.NORMAL, biomeFactory, 2, contextFactory);
+        biomeFactory = new BOPBiomeEdgeLayer(properties).run(contextFactory.apply(1000L), biomeFactory);
         return biomeFactory;
     }
 
-    public static <T extends IArea, C extends IExtendedNoiseRandom<T>> IAreaFactory<T> createAreaFactories(BOPOverworldGenSettings settings, LongFunction<C> contextFactory)
+    public static <T extends IArea, C extends IExtendedNoiseRandom<T>> IAreaFactory<T> createAreaFactories(BOPOverworldGenSettings settings, BiomePropertyTable properties, BOPLayerGraph<T> graph, LongFunction<C> contextFactory)
     {
+        // Stages used by more than one consumer are registered with the graph so that they are only built once
+
         // Create the initial land and sea layer. Is also responsible for adding deep oceans
         // and mushroom islands
-        IAreaFactory<T> landSeaFactory = createInitialLandAndSeaFactory(contextFactory);
+        IAreaFactory<T> landSeaFactory = graph.node("land_sea", createInitialLandAndSeaFactory(contextFactory));
 
         // Determines positions for all of the new ocean subbiomes added in 1.13
         IAreaFactory<T> oceanBiomeFactory = OceanLayer.INSTANCE.run(contextFactory.apply(2L));
-        oceanBiomeFactory = LayerUtil.zoom(2001L, ZoomLayer.NORMAL, oceanBiomeFactory, 6, contextFactory);
+        oceanBiomeFactory = graph.node("ocean_biomes", zoom(2001L, ZoomLayer.NORMAL, oceanBiomeFactory, 6, contextFactory));
 
         int biomeSize = 4;
         int riverSize = biomeSize;
@@ -127,54 +141,91 @@ public class BOPLayerUtil
         }
 
         // Create the climates
-        IAreaFactory<T> climateFactory = createClimateFactory(contextFactory, settings);
+        IAreaFactory<T> climateFactory = graph.node("climate", createClimateFactory(contextFactory, settings));
 
         // Add islands and deep oceans
         landSeaFactory = AddMushroomIslandLayer.INSTANCE.run(contextFactory.apply(5L), landSeaFactory);
-        landSeaFactory = LargeIslandLayer.INSTANCE.run(contextFactory.apply(5L), landSeaFactory, climateFactory);
-        landSeaFactory = DeepOceanLayer.INSTANCE.run(contextFactory.apply(4L), landSeaFactory);
+        landSeaFactory = new LargeIslandLayer(properties).run(contextFactory.apply(5L), landSeaFactory, climateFactory);
+        landSeaFactory = graph.node("islands", DeepOceanLayer.INSTANCE.run(contextFactory.apply(4L), landSeaFactory));
 
         // Allocate the biomes
-        IAreaFactory<T> biomesFactory = createBiomeFactory(landSeaFactory, climateFactory, contextFactory);
+        IAreaFactory<T> biomesFactory = graph.node("biomes", createBiomeFactory(landSeaFactory, climateFactory, properties, contextFactory));
 
         // Fork off a new branch as a seed for rivers and sub biomes
         IAreaFactory<T> riverAndSubBiomesInitFactory = StartRiverLayer.INSTANCE.run(contextFactory.apply(100L), landSeaFactory);
-        riverAndSubBiomesInitFactory = LayerUtil.zoom(1000L, ZoomLayer.NORMAL, riverAndSubBiomesInitFactory, 2, contextFactory);
-        biomesFactory = SubBiomeLayer.INSTANCE.run(contextFactory.apply(1000L), biomesFactory, riverAndSubBiomesInitFactory);
+        riverAndSubBiomesInitFactory = graph.node("river_sub_biome_init", zoom(1000L, ZoomLayer.NORMAL, riverAndSubBiomesInitFactory, 2, contextFactory));
+        biomesFactory = graph.node("sub_biomes", new SubBiomeLayer(properties).run(contextFactory.apply(1000L), biomesFactory, riverAndSubBiomesInitFactory));
 
         // Develop the rivers branch
-        IAreaFactory<T> riversInitFactory = LayerUtil.zoom(1000L, ZoomLayer.NORMAL, riverAndSubBiomesInitFactory, riverSize, contextFactory);
+        IAreaFactory<T> riversInitFactory = zoom(1000L, ZoomLayer.NORMAL, riverAndSubBiomesInitFactory, riverSize, contextFactory);
         riversInitFactory = RiverLayer.INSTANCE.run(contextFactory.apply(1L), riversInitFactory);
-        riversInitFactory = SmoothLayer.INSTANCE.run(contextFactory.apply(1000L), riversInitFactory);
+        riversInitFactory = graph.node("rivers", SmoothLayer.INSTANCE.run(contextFactory.apply(1000L), riversInitFactory));
 
         // Mix in rare biomes into biomes branch
         biomesFactory = RareBiomeLayer.INSTANCE.run(contextFactory.apply(1001L), biomesFactory);
 
         // Zoom more based on the biome size
-        for (int i = 0; i < biomeSize; ++i)
+        for (int i = 0; i < Math.min(biomeSize, 2); ++i)
         {
-            biomesFactory = ZoomLayer.NORMAL.run(contextFactory.apply((long)(1000 + i)), biomesFactory);
+            biomesFactory = zoom((long)(1000 + i), ZoomLayer.NORMAL, biomesFactory, 1, contextFactory);
             if (i == 0) biomesFactory = AddIslandLayer.INSTANCE.run(contextFactory.apply(3L), biomesFactory);
-            if (i == 1 || biomeSize == 1) biomesFactory = BOPShoreLayer.INSTANCE.run(contextFactory.apply(1000L), biomesFactory);
+            if (i == 1 || biomeSize == 1) biomesFactory = new BOPShoreLayer(properties).run(contextFactory.apply(1000L), biomesFactory);
         }
 
-        biomesFactory = SmoothLayer.INSTANCE.run(contextFactory.apply(1000L), biomesFactory);
+        // Nothing happens between the remaining zooms, so they can be evaluated together
+        if (biomeSize > 2) biomesFactory = zoom(1002L, ZoomLayer.NORMAL, biomesFactory, biomeSize - 2, contextFactory);
+
+        biomesFactory = graph.node("zoomed_biomes", SmoothLayer.INSTANCE.run(contextFactory.apply(1000L), biomesFactory));
 
         // Mix rivers into the biomes branch
-        biomesFactory = BOPRiverMixLayer.INSTANCE.run(contextFactory.apply(100L), biomesFactory, riversInitFactory);
+        biomesFactory = graph.node("river_mix", new BOPRiverMixLayer(properties).run(contextFactory.apply(100L), biomesFactory, riversInitFactory));
 
-        climateFactory = LayerUtil.zoom(2001L, ZoomLayer.NORMAL, climateFactory, biomeSize + 2, contextFactory);
-        biomesFactory = BOPMixOceansLayer.INSTANCE.run(contextFactory.apply(100L), biomesFactory, oceanBiomeFactory, climateFactory);
+        climateFactory = graph.node("zoomed_climate", zoom(2001L, ZoomLayer.NORMAL, climateFactory, biomeSize + 2, contextFactory));
+        biomesFactory = graph.node("mix_oceans", new BOPMixOceansLayer(properties).run(contextFactory.apply(100L), biomesFactory, oceanBiomeFactory, climateFactory));
         return biomesFactory;
     }
 
-    public static Layer createGenLayers(long seed, BOPOverworldGenSettings settings)
+    public static <T extends IArea, C extends IExtendedNoiseRandom<T>> IAreaFactory<T> zoom(long seed, ZoomLayer zoomLayer, IAreaFactory<T> factory, int count, LongFunction<C> contextFactory)
+    {
+        // Consecutive zooms are fused into a single layer where our contexts are in use
+        if (count > 1)
+        {
+            C context = contextFactory.apply(seed);
+
+            if (context instanceof LazyAreaLayerContextBOP)
+            {
+                ((LazyAreaLayerContextBOP)context).asZoom(count);
+                return new FusedZoomLayer(zoomLayer, seed, count).run(context, factory);
+            }
+        }
+
+        IAreaFactory<T> result = factory;
+
+        for (int i = 0; i < count; ++i)
+        {
+            C context = contextFactory.apply(seed + (long)i);
+
+            // Let our contexts know they belong to a zoom layer so they can size their caches accordingly
+            if (context instanceof LazyAreaLayerContextBOP)
+            {
+                ((LazyAreaLayerContextBOP)context).asZoom();
+            }
+
+            result = zoomLayer.run(context, result);
+        }
+
+        return result;
+    }
+
+    public static BOPLayer createGenLayers(long seed, BOPOverworldGenSettings settings, BiomePropertyTable properties)
     {
-        IAreaFactory<LazyArea> factory = createAreaFactories(settings, (seedModifier) ->
+        LayerCacheSizing sizing = new LayerCacheSizing();
+        BOPLayerGraph<LazyAreaBOP> graph = new BOPLayerGraph<>();
+        IAreaFactory<LazyAreaBOP> factory = createAreaFactories(settings, properties, graph, (seedModifier) ->
         {
-            return new LazyAreaLayerContextBOP(1, seed, seedModifier);
+            return new LazyAreaLayerContextBOP(sizing, seed, seedModifier);
         });
-        return new Layer(factory);
+        return new BOPLayer(factory, sizing, graph);
     }
 
     public static boolean isOcean(int biomeIn)
@@ -9,6 +9,8 @@ package biomesoplenty.common.world;
 
 import biomesoplenty.api.enums.BOPClimates;
 import biomesoplenty.common.util.biome.BiomeUtil;
+import biomesoplenty.common.world.layer.traits.LayerCacheSizing;
+import biomesoplenty.init.ModConfig;
 import com.google.common.collect.ImmutableList;
 import com.mojang.serialization.Codec;
 import com.mojang.serialization.codecs.RecordCodecBuilder;
@@ -19,7 +21,6 @@ import net.minecraft.util.registry.WorldGenRegistries;
 import net.minecraft.world.biome.Biome;
 import net.minecraft.world.biome.Biomes;
 import net.minecraft.world.biome.provider.BiomeProvider;
-import net.minecraft.world.gen.layer.Layer;
 import net.minecraftforge.registries.ForgeRegistries;
 
 import java.util.List;
@@ -38,14 +39,16 @@ public class BOPNetherBiomeProvider extends BiomeProvider
     private static final List<RegistryKey<Biome>> VANILLA_POSSIBLE_BIOMES = ImmutableList.of(Biomes.NETHER_WASTES, Biomes.SOUL_SAND_VALLEY, Biomes.CRIMSON_FOREST, Biomes.WARPED_FOREST, Biomes.BASALT_DELTAS);
 
     private final long seed;
-    private final Layer noiseBiomeLayer;
+    private final BOPLayerPool noiseBiomeLayers;
     private final Registry<Biome> biomes;
+    private final BiomeColumnCache columnCache = new BiomeColumnCache(this::sampleColumn);
 
     public BOPNetherBiomeProvider(long seed, Registry<Biome> biomes)
     {
         super(Stream.concat(VANILLA_POSSIBLE_BIOMES.stream(), BOPClimates.NETHER.getLandBiomes().stream().map((entry) -> entry.biome)).map(biomes::get).collect(Collectors.toList()));
         this.seed = seed;
-        this.noiseBiomeLayer = BOPNetherLayerUtil.createGenLayers(seed);
+        BiomePropertyTable properties = BiomePropertyTable.create();
+        this.noiseBiomeLayers = new BOPLayerPool(() -> BOPNetherLayerUtil.createGenLayers(seed, properties), ModConfig.GenerationConfig.useThreadLocalLayers.get());
         this.biomes = biomes;
     }
 
@@ -64,6 +67,21 @@ public class BOPNetherBiomeProvider extends BiomeProvider
     @Override
     public Biome getNoiseBiome(int x, int y, int z)
     {
-        return this.noiseBiomeLayer.get(this.biomes, x, z);
+        return this.columnCache.get(x, z);
+    }
+
+    private Biome sampleColumn(int x, int z)
+    {
+        return this.noiseBiomeLayers.get().get(this.biomes, x, z);
+    }
+
+    public ImmutableList<LayerCacheSizing.Stats> getLayerCacheStats()
+    {
+        return this.noiseBiomeLayers.getCacheStats();
+    }
+
+    public BiomeColumnCache.Stats getColumnCacheStats()
+    {
+        return this.columnCache.getStats();
     }
 }
@@ -10,26 +10,27 @@ package biomesoplenty.common.world;
 import biomesoplenty.common.world.layer.BOPShoreLayer;
 import biomesoplenty.common.world.layer.LandLayer;
 import biomesoplenty.common.world.layer.NetherBiomeLayer;
+import biomesoplenty.common.world.layer.traits.LayerCacheSizing;
+import biomesoplenty.common.world.layer.traits.LazyAreaBOP;
 import biomesoplenty.common.world.layer.traits.LazyAreaLayerContextBOP;
 import net.minecraft.world.gen.IExtendedNoiseRandom;
 import net.minecraft.world.gen.area.IArea;
 import net.minecraft.world.gen.area.IAreaFactory;
-import net.minecraft.world.gen.area.LazyArea;
 import net.minecraft.world.gen.layer.*;
 
 import java.util.function.LongFunction;
 
 public class BOPNetherLayerUtil
 {
-    public static <T extends IArea, C extends IExtendedNoiseRandom<T>> IAreaFactory<T> createBiomeFactory(IAreaFactory<T> landFactory, LongFunction<C> contextFactory)
+    public static <T extends IArea, C extends IExtendedNoiseRandom<T>> IAreaFactory<T> createBiomeFactory(IAreaFactory<T> landFactory, BiomePropertyTable properties, LongFunction<C> contextFactory)
     {
-        IAreaFactory<T> biomeFactory = NetherBiomeLayer.INSTANCE.run(contextFactory.apply(200L));
+        IAreaFactory<T> biomeFactory = new NetherBiomeLayer(properties).run(contextFactory.apply(200L));
         // magnify the biome layer
-        biomeFactory = LayerUtil.zoom(1000L, ZoomLayer.NORMAL, biomeFactory, 2, contextFactory);
+        biomeFactory = BOPLayerUtil.zoom(1000L, ZoomLayer.NORMAL, biomeFactory, 2, contextFactory);
         return biomeFactory;
     }
 
-    public static <T extends IArea, C extends IExtendedNoiseRandom<T>> IAreaFactory<T> createAreaFactories(LongFunction<C> contextFactory)
+    public static <T extends IArea, C extends IExtendedNoiseRandom<T>> IAreaFactory<T> createAreaFactories(BiomePropertyTable properties, LongFunction<C> contextFactory)
     {
         int biomeSize = 4;
 
@@ -37,27 +38,31 @@ public class BOPNetherLayerUtil
         IAreaFactory<T> landFactory = LandLayer.INSTANCE.run(contextFactory.apply(1L));
 
         // Allocate the biomes
-        IAreaFactory<T> biomesFactory = createBiomeFactory(landFactory, contextFactory);
+        IAreaFactory<T> biomesFactory = createBiomeFactory(landFactory, properties, contextFactory);
 
         // Zoom more based on the biome size
-        for (int i = 0; i < biomeSize; ++i)
+        for (int i = 0; i < Math.min(biomeSize, 2); ++i)
         {
-            biomesFactory = ZoomLayer.NORMAL.run(contextFactory.apply((long)(1000 + i)), biomesFactory);
+            biomesFactory = BOPLayerUtil.zoom((long)(1000 + i), ZoomLayer.NORMAL, biomesFactory, 1, contextFactory);
             if (i == 0) biomesFactory = AddIslandLayer.INSTANCE.run(contextFactory.apply(3L), biomesFactory);
-            if (i == 1 || biomeSize == 1) biomesFactory = BOPShoreLayer.INSTANCE.run(contextFactory.apply(1000L), biomesFactory);
+            if (i == 1 || biomeSize == 1) biomesFactory = new BOPShoreLayer(properties).run(contextFactory.apply(1000L), biomesFactory);
         }
 
+        // Nothing happens between the remaining zooms, so they can be evaluated together
+        if (biomeSize > 2) biomesFactory = BOPLayerUtil.zoom(1002L, ZoomLayer.NORMAL, biomesFactory, biomeSize - 2, contextFactory);
+
         biomesFactory = SmoothLayer.INSTANCE.run(contextFactory.apply(1000L), biomesFactory);
         return biomesFactory;
     }
 
-    public static Layer createGenLayers(long seed)
+    public static BOPLayer createGenLayers(long seed, BiomePropertyTable properties)
     {
-        IAreaFactory<LazyArea> factory = createAreaFactories((seedModifier) ->
+        LayerCacheSizing sizing = new LayerCacheSizing();
+        IAreaFactory<LazyAreaBOP> factory = createAreaFactories(properties, (seedModifier) ->
         {
-            return new LazyAreaLayerContextBOP(1, seed, seedModifier);
+            return new LazyAreaLayerContextBOP(sizing, seed, seedModifier);
         });
 
-        return new Layer(factory);
+        return new BOPLayer(factory, sizing);
     }
 }
@@ -77,22 +77,73 @@ public class BOPOverworldGenSettings
         }
     }
 
+    private final int biomeSize;
+    private final int riverSize;
+    private final TemperatureVariationScheme tempScheme;
+    private final RainfallVariationScheme rainScheme;
+    private final boolean useBiomeTiles;
+    private final boolean useThreadLocalLayers;
+    private final boolean useFastBiomeLocate;
+    private final boolean useParallelBiomeLocate;
+    private final boolean storeBiomeTiles;
+
+    // Settings are captured upfront so every layer stack built for a world is identical, even if the config changes
+    public BOPOverworldGenSettings()
+    {
+        this.biomeSize = ModConfig.GenerationConfig.biomeSize.get().value;
+        this.riverSize = ModConfig.GenerationConfig.riverSize.get().value;
+        this.tempScheme = ModConfig.GenerationConfig.temperatureVariationScheme.get();
+        this.rainScheme = ModConfig.GenerationConfig.rainfallVariationScheme.get();
+        this.useBiomeTiles = ModConfig.GenerationConfig.useBiomeTiles.get();
+        this.useThreadLocalLayers = ModConfig.GenerationConfig.useThreadLocalLayers.get();
+        this.useFastBiomeLocate = ModConfig.GenerationConfig.useFastBiomeLocate.get();
+        this.useParallelBiomeLocate = ModConfig.GenerationConfig.useParallelBiomeLocate.get();
+        this.storeBiomeTiles = ModConfig.GenerationConfig.storeBiomeTiles.get();
+    }
+
     public int getBiomeSize()
     {
-        return ModConfig.GenerationConfig.biomeSize.get().value;
+        return this.biomeSize;
     }
     public int getRiverSize()
     {
-        return ModConfig.GenerationConfig.riverSize.get().value;
+        return this.riverSize;
     }
 
     public TemperatureVariationScheme getTempScheme()
     {
-        return ModConfig.GenerationConfig.temperatureVariationScheme.get();
+        return this.tempScheme;
     }
 
     public RainfallVariationScheme getRainScheme()
     {
-        return ModConfig.GenerationConfig.rainfallVariationScheme.get();
+        return this.rainScheme;
+    }
+
+    public boolean useBiomeTiles()
+    {
+        return this.useBiomeTiles;
+    }
+
+    public boolean useThreadLocalLayers()
+    {
+        return this.useThreadLocalLayers;
+    }
+
+    public boolean useFastBiomeLocate()
+    {
+        return this.useFastBiomeLocate;
+    }
+
+    // Parallel searches rely on each thread having layers of its own
+    public boolean useParallelBiomeLocate()
+    {
+        return this.useParallelBiomeLocate && this.useThreadLocalLayers;
+    }
+
+    // Only whole tiles are stored
+    public boolean storeBiomeTiles()
+    {
+        return this.storeBiomeTiles && this.useBiomeTiles;
     }
 }
@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright 2014-2019, the Biomes O' Plenty Team
+ *
+ * This work is licensed under a Creative Commons Attribution-NonCommercial-NoDerivatives 4.0 International Public License.
+ *
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/4.0/.
+ ******************************************************************************/
+package biomesoplenty.common.world;
+
+import it.unimi.dsi.fastutil.HashCommon;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.biome.Biome;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/***
+ * Our biomes don't vary with height, yet vanilla queries every vertical quart of a column separately. This remembers
+ * the last column queried by each thread, backed by a small direct mapped cache of columns shared between threads, so
+ * that repeated queries for the same column don't walk the layer stack again.
+ */
+public class BiomeColumnCache
+{
+    private static final int DEFAULT_SIZE = 4096;
+
+    // The last column of each cache queried by the thread. Caches are weakly held, so worker threads which outlive a
+    // world don't keep its biomes alive.
+    private static final ThreadLocal<Map<BiomeColumnCache, Column>> LAST_COLUMNS = ThreadLocal.withInitial(WeakHashMap::new);
+
+    private final ColumnSampler sampler;
+    private final AtomicReferenceArray<Column> columns;
+    private final int mask;
+
+    private final LongAdder columnHits = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public BiomeColumnCache(ColumnSampler sampler)
+    {
+        this(sampler, DEFAULT_SIZE);
+    }
+
+    public BiomeColumnCache(ColumnSampler sampler, int size)
+    {
+        this.sampler = sampler;
+        size = HashCommon.nextPowerOfTwo(size);
+        this.columns = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    public Biome get(int x, int z)
+    {
+        long pos = ChunkPos.asLong(x, z);
+        Map<BiomeColumnCache, Column> lastColumns = LAST_COLUMNS.get();
+        Column column = lastColumns.get(this);
+
+        if (column != null && column.pos == pos)
+        {
+            this.columnHits.increment();
+            return column.biome;
+        }
+
+        int index = (int)HashCommon.mix(pos) & this.mask;
+        column = this.columns.get(index);
+
+        if (column != null && column.pos == pos)
+        {
+            this.cacheHits.increment();
+        }
+        else
+        {
+            // Columns are immutable, so a racing thread overwriting the slot is harmless
+            this.misses.increment();
+            column = new Column(pos, this.sampler.sample(x, z));
+            this.columns.set(index, column);
+        }
+
+        lastColumns.put(this, column);
+        return column.biome;
+    }
+
+    public Stats getStats()
+    {
+        return new Stats(this.columnHits.sum(), this.cacheHits.sum(), this.misses.sum());
+    }
+
+    @FunctionalInterface
+    public interface ColumnSampler
+    {
+        Biome sample(int x, int z);
+    }
+
+    private static class Column
+    {
+        private final long pos;
+        private final Biome biome;
+
+        private Column(long pos, Biome biome)
+        {
+            this.pos = pos;
+            this.biome = biome;
+        }
+    }
+
+    public static class Stats
+    {
+        public final long columnHits;
+        public final long cacheHits;
+        public final long misses;
+
+        public Stats(long columnHits, long cacheHits, long misses)
+        {
+            this.columnHits = columnHits;
+            this.cacheHits = cacheHits;
+            this.misses = misses;
+        }
+
+        public double getHitRate()
+        {
+            long lookups = this.columnHits + this.cacheHits + this.misses;
+            return lookups == 0 ? 0.0D : (double)(this.columnHits + this.cacheHits) / (double)lookups;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("columnHits=%d cacheHits=%d misses=%d hitRate=%.3f", this.columnHits, this.cacheHits, this.misses, this.getHitRate());
+        }
+    }
+}
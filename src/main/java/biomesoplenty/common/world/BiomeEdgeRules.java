@@ -0,0 +1,229 @@
+/*******************************************************************************
+ * Copyright 2014-2019, the Biomes O' Plenty Team
+ *
+ * This work is licensed under a Creative Commons Attribution-NonCommercial-NoDerivatives 4.0 International Public License.
+ *
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/4.0/.
+ ******************************************************************************/
+package biomesoplenty.common.world;
+
+import biomesoplenty.api.biome.BOPBiomes;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import net.minecraft.util.RegistryKey;
+import net.minecraft.world.biome.Biome;
+import net.minecraft.world.biome.Biomes;
+import net.minecraft.world.gen.layer.LayerUtil;
+
+import java.util.List;
+import java.util.Set;
+import java.util.function.IntConsumer;
+
+/***
+ * The rules applied by BOPBiomeEdgeLayer. Rules are declared against registry keys and compiled into arrays indexed
+ * by biome id when a biome provider is created, so adding rules doesn't slow the layer down.
+ *
+ * Edge rules line a biome with another wherever it borders anything else. Biomes without an edge rule are tested
+ * against their neighbour rules in the order they were added, replacing the biome if any neighbour matches.
+ */
+public final class BiomeEdgeRules
+{
+    private static final List<EdgeRule> EDGE_RULES = Lists.newArrayList();
+    private static final List<NeighbourRule> NEIGHBOUR_RULES = Lists.newArrayList();
+
+    static
+    {
+        // line BOP alps peaks with BOP alps foothills
+        addEdgeRule(BOPBiomes.alps, BOPBiomes.alps_foothills);
+
+        // line BOP redwood forest with BOP redwood forest edge
+        addEdgeRule(BOPBiomes.redwood_forest, BOPBiomes.redwood_forest_edge);
+        addEdgeRule(BOPBiomes.redwood_hills, BOPBiomes.redwood_forest_edge);
+
+        // line BOP volcano with BOP volcanic plains
+        addEdgeRule(BOPBiomes.volcano, BOPBiomes.volcanic_plains);
+
+        // line special badlands with badlands
+        addEdgeRule(Biomes.WOODED_BADLANDS_PLATEAU, Biomes.BADLANDS);
+        addEdgeRule(Biomes.BADLANDS_PLATEAU, Biomes.BADLANDS);
+
+        // line the giant tree taiga with taiga
+        addEdgeRule(Biomes.GIANT_TREE_TAIGA, Biomes.TAIGA);
+
+        addNeighbourRule(Biomes.DESERT, ImmutableSet.of(Biomes.SNOWY_TUNDRA), Biomes.WOODED_MOUNTAINS);
+        addNeighbourRule(Biomes.SWAMP, ImmutableSet.of(Biomes.DESERT, Biomes.SNOWY_TAIGA, Biomes.SNOWY_TUNDRA), Biomes.PLAINS);
+        addNeighbourRule(Biomes.SWAMP, ImmutableSet.of(Biomes.JUNGLE, Biomes.JUNGLE_HILLS), Biomes.JUNGLE_EDGE);
+    }
+
+    /**
+     * Lines the given biome with an edge biome wherever it borders a biome which isn't the same as it. Only the first
+     * edge rule added for a biome is used. Rules involving unregistered biomes are ignored.
+     */
+    public static synchronized void addEdgeRule(RegistryKey<Biome> biome, RegistryKey<Biome> edge)
+    {
+        EDGE_RULES.add(new EdgeRule(biome, edge));
+    }
+
+    /**
+     * Replaces the given biome wherever it borders any of the given neighbours. Rules involving unregistered biomes
+     * are ignored.
+     */
+    public static synchronized void addNeighbourRule(RegistryKey<Biome> biome, Set<RegistryKey<Biome>> neighbours, RegistryKey<Biome> replacement)
+    {
+        NEIGHBOUR_RULES.add(new NeighbourRule(biome, ImmutableSet.copyOf(neighbours), replacement));
+    }
+
+    public static synchronized Compiled compile(BiomePropertyTable properties)
+    {
+        int size = properties.size();
+        int[] edgeIds = new int[size];
+        boolean[][] interiors = new boolean[size][];
+        List<List<CompiledNeighbourRule>> neighbourRules = Lists.newArrayList();
+
+        for (int id = 0; id < size; id++)
+        {
+            edgeIds[id] = BiomePropertyTable.NONE;
+            neighbourRules.add(Lists.newArrayList());
+        }
+
+        for (EdgeRule rule : EDGE_RULES)
+        {
+            int biomeId = properties.getId(rule.biome);
+            int edgeId = properties.getId(rule.edge);
+
+            if (biomeId == BiomePropertyTable.NONE || edgeId == BiomePropertyTable.NONE || edgeIds[biomeId] != BiomePropertyTable.NONE)
+                continue;
+
+            // Precompute which neighbours count as the same biome
+            boolean[] interior = new boolean[size];
+
+            for (int neighbourId = 0; neighbourId < size; neighbourId++)
+            {
+                interior[neighbourId] = LayerUtil.isSame(neighbourId, biomeId);
+            }
+
+            edgeIds[biomeId] = edgeId;
+            interiors[biomeId] = interior;
+        }
+
+        for (NeighbourRule rule : NEIGHBOUR_RULES)
+        {
+            int biomeId = properties.getId(rule.biome);
+            int replacementId = properties.getId(rule.replacement);
+
+            if (biomeId == BiomePropertyTable.NONE || replacementId == BiomePropertyTable.NONE)
+                continue;
+
+            boolean[] matches = new boolean[size];
+            rule.neighbours.stream().mapToInt(properties::getId).filter((id) -> id != BiomePropertyTable.NONE).forEach((id) -> matches[id] = true);
+            neighbourRules.get(biomeId).add(new CompiledNeighbourRule(matches, replacementId));
+        }
+
+        CompiledNeighbourRule[][] compiledNeighbourRules = new CompiledNeighbourRule[size][];
+
+        for (int id = 0; id < size; id++)
+        {
+            compiledNeighbourRules[id] = neighbourRules.get(id).toArray(new CompiledNeighbourRule[0]);
+        }
+
+        return new Compiled(edgeIds, interiors, compiledNeighbourRules);
+    }
+
+    public static final class Compiled
+    {
+        private final int[] edgeIds;
+        private final boolean[][] interiors;
+        private final CompiledNeighbourRule[][] neighbourRules;
+
+        private Compiled(int[] edgeIds, boolean[][] interiors, CompiledNeighbourRule[][] neighbourRules)
+        {
+            this.edgeIds = edgeIds;
+            this.interiors = interiors;
+            this.neighbourRules = neighbourRules;
+        }
+
+        public int apply(int northBiomeId, int eastBiomeId, int southBiomeId, int westBiomeId, int biomeId)
+        {
+            if (biomeId < 0 || biomeId >= this.edgeIds.length)
+                return biomeId;
+
+            int edgeId = this.edgeIds[biomeId];
+
+            if (edgeId != BiomePropertyTable.NONE)
+            {
+                boolean[] interior = this.interiors[biomeId];
+                return isSet(interior, northBiomeId) && isSet(interior, eastBiomeId) && isSet(interior, westBiomeId) && isSet(interior, southBiomeId) ? biomeId : edgeId;
+            }
+
+            for (CompiledNeighbourRule rule : this.neighbourRules[biomeId])
+            {
+                if (isSet(rule.matches, northBiomeId) || isSet(rule.matches, eastBiomeId) || isSet(rule.matches, westBiomeId) || isSet(rule.matches, southBiomeId))
+                {
+                    return rule.replacementId;
+                }
+            }
+
+            return biomeId;
+        }
+
+        /**
+         * Calls the consumer with every biome the given biome may be replaced with.
+         */
+        public void forEachPossibleResult(int biomeId, IntConsumer consumer)
+        {
+            if (biomeId < 0 || biomeId >= this.edgeIds.length)
+                return;
+
+            if (this.edgeIds[biomeId] != BiomePropertyTable.NONE)
+                consumer.accept(this.edgeIds[biomeId]);
+
+            for (CompiledNeighbourRule rule : this.neighbourRules[biomeId])
+            {
+                consumer.accept(rule.replacementId);
+            }
+        }
+
+        private static boolean isSet(boolean[] values, int id)
+        {
+            return id >= 0 && id < values.length && values[id];
+        }
+    }
+
+    private static class EdgeRule
+    {
+        private final RegistryKey<Biome> biome;
+        private final RegistryKey<Biome> edge;
+
+        private EdgeRule(RegistryKey<Biome> biome, RegistryKey<Biome> edge)
+        {
+            this.biome = biome;
+            this.edge = edge;
+        }
+    }
+
+    private static class NeighbourRule
+    {
+        private final RegistryKey<Biome> biome;
+        private final ImmutableSet<RegistryKey<Biome>> neighbours;
+        private final RegistryKey<Biome> replacement;
+
+        private NeighbourRule(RegistryKey<Biome> biome, ImmutableSet<RegistryKey<Biome>> neighbours, RegistryKey<Biome> replacement)
+        {
+            this.biome = biome;
+            this.neighbours = neighbours;
+            this.replacement = replacement;
+        }
+    }
+
+    private static class CompiledNeighbourRule
+    {
+        private final boolean[] matches;
+        private final int replacementId;
+
+        private CompiledNeighbourRule(boolean[] matches, int replacementId)
+        {
+            this.matches = matches;
+            this.replacementId = replacementId;
+        }
+    }
+}
@@ -0,0 +1,234 @@
+/*******************************************************************************
+ * Copyright 2014-2019, the Biomes O' Plenty Team
+ *
+ * This work is licensed under a Creative Commons Attribution-NonCommercial-NoDerivatives 4.0 International Public License.
+ *
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/4.0/.
+ ******************************************************************************/
+package biomesoplenty.common.world;
+
+import biomesoplenty.api.enums.BOPClimates;
+import biomesoplenty.common.util.biome.BiomeUtil;
+import biomesoplenty.common.world.layer.BOPMixOceansLayer;
+import biomesoplenty.common.world.layer.BOPRiverMixLayer;
+import biomesoplenty.common.world.layer.SubBiomeLayer;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import net.minecraft.world.biome.Biomes;
+import net.minecraft.world.gen.area.IArea;
+
+import javax.annotation.Nullable;
+import java.util.function.IntConsumer;
+
+/***
+ * Rules out regions which can't contain a biome before they are searched at full resolution. Every biome is traced
+ * back to the climates whose biomes can become it through the layers of the overworld stack. The climate stage is
+ * then read at its own, much coarser resolution, and only positions with a suitable climate nearby need searching.
+ *
+ * Positions which are ruled out are guaranteed not to hold the biome, so searches visit the remaining positions in
+ * their original order and find exactly what a full search would.
+ */
+public class BiomeLocator
+{
+    // How far the layers between two zooms may look from the pixel they are evaluating. The sub biome and edge
+    // layers between the first zooms both look at their direct neighbours.
+    private static final int NEIGHBOURHOOD = 2;
+
+    private static final int OCEAN = BiomeUtil.getBiomeId(Biomes.OCEAN);
+    private static final int DEEP_OCEAN = BiomeUtil.getBiomeId(Biomes.DEEP_OCEAN);
+    private static final int MUSHROOM_FIELDS = BiomeUtil.getBiomeId(Biomes.MUSHROOM_FIELDS);
+    private static final int JUNGLE = BiomeUtil.getBiomeId(Biomes.JUNGLE);
+    private static final int BAMBOO_JUNGLE = BiomeUtil.getBiomeId(Biomes.BAMBOO_JUNGLE);
+    private static final int PLAINS = BiomeUtil.getBiomeId(Biomes.PLAINS);
+    private static final int SUNFLOWER_PLAINS = BiomeUtil.getBiomeId(Biomes.SUNFLOWER_PLAINS);
+
+    private final BiomePropertyTable properties;
+    private final SubBiomeLayer subBiomeLayer;
+    private final BOPRiverMixLayer riverMixLayer;
+    private final BOPMixOceansLayer mixOceansLayer;
+
+    // The number of zooms between the climate stage and the final biomes
+    private final int zoomLevels;
+
+    // The biomes which may be generated within each climate, indexed by climate ordinal and then biome id
+    private final boolean[][] climateBiomes;
+
+    // The biomes which may be generated regardless of climate, such as oceans
+    private final boolean[] unboundBiomes;
+
+    public BiomeLocator(BiomePropertyTable properties, int biomeSize)
+    {
+        this.properties = properties;
+        this.subBiomeLayer = new SubBiomeLayer(properties);
+        this.riverMixLayer = new BOPRiverMixLayer(properties);
+        this.mixOceansLayer = new BOPMixOceansLayer(properties);
+        this.zoomLevels = biomeSize + 2;
+
+        BOPClimates[] climates = BOPClimates.values();
+        this.climateBiomes = new boolean[climates.length][];
+
+        for (BOPClimates climate : climates)
+        {
+            IntArrayList seeds = new IntArrayList();
+            climate.getLandBiomes().forEach((entry) -> seeds.add(BiomeUtil.getBiomeId(entry.biome)));
+            climate.getIslandBiomes().forEach((entry) -> seeds.add(BiomeUtil.getBiomeId(entry.biome)));
+            this.climateBiomes[climate.ordinal()] = this.getReachableBiomes(seeds);
+        }
+
+        // Oceans, deep oceans and mushroom islands are placed by the land and sea stage before climates are consulted
+        this.unboundBiomes = this.getReachableBiomes(IntArrayList.wrap(new int[] { OCEAN, DEEP_OCEAN, MUSHROOM_FIELDS }));
+    }
+
+    /**
+     * Gets which climates may hold any of the target biomes, indexed by climate ordinal. Returns null if any of the
+     * targets may occur regardless of climate, in which case nothing can be ruled out.
+     */
+    @Nullable
+    public boolean[] getHostClimates(boolean[] targetIds)
+    {
+        boolean[] hostClimates = new boolean[this.climateBiomes.length];
+
+        for (int id = 0; id < targetIds.length; id++)
+        {
+            if (!targetIds[id])
+                continue;
+
+            if (id >= this.unboundBiomes.length || this.unboundBiomes[id])
+                return null;
+
+            for (int climate = 0; climate < this.climateBiomes.length; climate++)
+            {
+                hostClimates[climate] |= this.climateBiomes[climate][id];
+            }
+        }
+
+        return hostClimates;
+    }
+
+    /**
+     * Reads the climate stage beneath the given rectangle of quarts and works out which quarts are near enough to a
+     * host climate to possibly hold one of the target biomes.
+     */
+    public Candidates findCandidates(IArea climateArea, boolean[] hostClimates, int minX, int minZ, int maxX, int maxZ)
+    {
+        int originX = this.getMinClimateCoord(minX);
+        int originZ = this.getMinClimateCoord(minZ);
+        int width = this.getMaxClimateCoord(maxX) - originX + 1;
+        int height = this.getMaxClimateCoord(maxZ) - originZ + 1;
+        int stride = width + 1;
+
+        // Running totals of the host climates above and to the left of each cell, so any rectangle can be checked
+        // with four lookups
+        int[] hostCounts = new int[stride * (height + 1)];
+
+        for (int z = 0; z < height; ++z)
+        {
+            for (int x = 0; x < width; ++x)
+            {
+                int climate = climateArea.get(originX + x, originZ + z);
+
+                // Climates we don't recognise are treated as hosts rather than risk missing something
+                int host = climate < 0 || climate >= hostClimates.length || hostClimates[climate] ? 1 : 0;
+                hostCounts[(z + 1) * stride + x + 1] = host + hostCounts[z * stride + x + 1] + hostCounts[(z + 1) * stride + x] - hostCounts[z * stride + x];
+            }
+        }
+
+        return new Candidates(originX, originZ, stride, hostCounts);
+    }
+
+    // Works backwards through the stack to the lowest climate pixel which can influence the given quart
+    private int getMinClimateCoord(int coord)
+    {
+        for (int level = 0; level < this.zoomLevels; ++level)
+        {
+            coord = (coord - NEIGHBOURHOOD) >> 1;
+        }
+
+        return coord - NEIGHBOURHOOD;
+    }
+
+    // Works backwards through the stack to the highest climate pixel which can influence the given quart
+    private int getMaxClimateCoord(int coord)
+    {
+        for (int level = 0; level < this.zoomLevels; ++level)
+        {
+            // Zooms read their parent at both (x >> 1) and ((x + 1) >> 1)
+            coord = (coord + NEIGHBOURHOOD + 1) >> 1;
+        }
+
+        return coord + NEIGHBOURHOOD;
+    }
+
+    // Finds every biome the layers may turn the given biomes into, including the biomes themselves
+    private boolean[] getReachableBiomes(IntArrayList seeds)
+    {
+        boolean[] reachable = new boolean[this.properties.size()];
+        IntArrayList pending = new IntArrayList();
+
+        IntConsumer visit = (id) ->
+        {
+            // Ids the registry doesn't know are turned into oceans when the biomes are looked up
+            if (id < 0 || id >= reachable.length)
+                id = OCEAN;
+
+            if (!reachable[id])
+            {
+                reachable[id] = true;
+                pending.add(id);
+            }
+        };
+
+        seeds.forEach(visit);
+
+        while (!pending.isEmpty())
+        {
+            this.forEachPossibleResult(pending.popInt(), visit);
+        }
+
+        return reachable;
+    }
+
+    // Everything a single biome may be replaced with by the layers following the biome stage
+    private void forEachPossibleResult(int biomeId, IntConsumer consumer)
+    {
+        // Vanilla's bamboo forest and rare biome layers
+        if (biomeId == JUNGLE) consumer.accept(BAMBOO_JUNGLE);
+        if (biomeId == PLAINS) consumer.accept(SUNFLOWER_PLAINS);
+
+        this.properties.getEdgeRules().forEachPossibleResult(biomeId, consumer);
+        this.subBiomeLayer.forEachPossibleResult(biomeId, consumer);
+        this.properties.getShoreRules().forEachPossibleResult(biomeId, consumer);
+        this.riverMixLayer.forEachPossibleResult(biomeId, consumer);
+        this.mixOceansLayer.forEachPossibleResult(biomeId, consumer);
+    }
+
+    public class Candidates
+    {
+        private final int originX;
+        private final int originZ;
+        private final int stride;
+        private final int[] hostCounts;
+
+        private Candidates(int originX, int originZ, int stride, int[] hostCounts)
+        {
+            this.originX = originX;
+            this.originZ = originZ;
+            this.stride = stride;
+            this.hostCounts = hostCounts;
+        }
+
+        /**
+         * Whether the quart at the given position may hold one of the target biomes. Only valid within the rectangle
+         * the candidates were found for.
+         */
+        public boolean contains(int x, int z)
+        {
+            BiomeLocator locator = BiomeLocator.this;
+            int minX = locator.getMinClimateCoord(x) - this.originX;
+            int minZ = locator.getMinClimateCoord(z) - this.originZ;
+            int maxX = locator.getMaxClimateCoord(x) - this.originX + 1;
+            int maxZ = locator.getMaxClimateCoord(z) - this.originZ + 1;
+            int[] counts = this.hostCounts;
+            return counts[maxZ * this.stride + maxX] - counts[minZ * this.stride + maxX] - counts[maxZ * this.stride + minX] + counts[minZ * this.stride + minX] > 0;
+        }
+    }
+}
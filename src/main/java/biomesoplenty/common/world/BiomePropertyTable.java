@@ -0,0 +1,256 @@
+/*******************************************************************************
+ * Copyright 2014-2019, the Biomes O' Plenty Team
+ *
+ * This work is licensed under a Creative Commons Attribution-NonCommercial-NoDerivatives 4.0 International Public License.
+ *
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/4.0/.
+ ******************************************************************************/
+package biomesoplenty.common.world;
+
+import biomesoplenty.api.biome.BOPBiomes;
+import biomesoplenty.common.biome.BiomeMetadata;
+import biomesoplenty.common.util.biome.BiomeUtil;
+import biomesoplenty.init.ModBiomes;
+import com.google.common.collect.ImmutableSet;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import net.minecraft.util.RegistryKey;
+import net.minecraft.world.biome.Biome;
+import net.minecraft.world.biome.Biomes;
+import net.minecraftforge.registries.ForgeRegistries;
+import net.minecraftforge.registries.ForgeRegistry;
+
+import javax.annotation.Nullable;
+import java.util.Set;
+
+/***
+ * A snapshot of the biome properties our layers depend on, indexed by numeric biome id. Built once when a biome
+ * provider is created so that the layers themselves never need to consult the registry.
+ */
+public final class BiomePropertyTable
+{
+    public static final int NONE = -1;
+
+    private static final int OCEAN = 1;
+    private static final int SHALLOW_OCEAN = 1 << 1;
+    private static final int MESA = 1 << 2;
+    private static final int JUNGLE_COMPATIBLE = 1 << 3;
+    private static final int JUNGLE_EDGED = 1 << 4;
+    private static final int HAS_METADATA = 1 << 5;
+    private static final int NO_BEACH = 1 << 6;
+    private static final int ISLAND = 1 << 7;
+
+    private static final Set<RegistryKey<Biome>> MESAS = ImmutableSet.of(Biomes.BADLANDS, Biomes.WOODED_BADLANDS_PLATEAU, Biomes.BADLANDS_PLATEAU, Biomes.ERODED_BADLANDS, Biomes.MODIFIED_WOODED_BADLANDS_PLATEAU, Biomes.MODIFIED_BADLANDS_PLATEAU);
+    private static final Set<RegistryKey<Biome>> JUNGLE_NEIGHBOURS = ImmutableSet.of(Biomes.JUNGLE_EDGE, Biomes.JUNGLE, Biomes.JUNGLE_HILLS, Biomes.FOREST, Biomes.TAIGA);
+    private static final Set<RegistryKey<Biome>> GRAVEL_BEACH_BIOMES = ImmutableSet.of(Biomes.TAIGA, Biomes.TAIGA_MOUNTAINS, Biomes.TAIGA_HILLS, Biomes.GIANT_TREE_TAIGA, Biomes.GIANT_SPRUCE_TAIGA, Biomes.GIANT_TREE_TAIGA_HILLS, Biomes.GIANT_SPRUCE_TAIGA_HILLS, Biomes.BIRCH_FOREST_HILLS, Biomes.BIRCH_FOREST, Biomes.TALL_BIRCH_HILLS, Biomes.TALL_BIRCH_FOREST, Biomes.DARK_FOREST_HILLS, Biomes.DARK_FOREST);
+
+    private final Object2IntMap<RegistryKey<Biome>> ids;
+    private final ClimateBiomeTable climateBiomes;
+    private final SubBiomeTable subBiomes;
+    private final Biome.Category[] categories;
+    private final Biome.RainType[] precipitation;
+    private final int[] flags;
+    private final int[] beachIds;
+    private final int[] riverIds;
+    private BiomeEdgeRules.Compiled edgeRules;
+    private BiomeShoreRules.Compiled shoreRules;
+
+    private BiomePropertyTable(Object2IntMap<RegistryKey<Biome>> ids, ClimateBiomeTable climateBiomes, SubBiomeTable subBiomes, int size)
+    {
+        this.ids = ids;
+        this.climateBiomes = climateBiomes;
+        this.subBiomes = subBiomes;
+        this.categories = new Biome.Category[size];
+        this.precipitation = new Biome.RainType[size];
+        this.flags = new int[size];
+        this.beachIds = new int[size];
+        this.riverIds = new int[size];
+    }
+
+    public static BiomePropertyTable create()
+    {
+        ForgeRegistry<Biome> registry = (ForgeRegistry<Biome>)ForgeRegistries.BIOMES;
+        Object2IntMap<RegistryKey<Biome>> ids = new Object2IntOpenHashMap<>();
+        ids.defaultReturnValue(NONE);
+        int maxId = 0;
+
+        for (Biome biome : registry)
+        {
+            int id = registry.getID(biome);
+            ids.put(BiomeUtil.createKey(biome), id);
+            maxId = Math.max(maxId, id);
+        }
+
+        BiomePropertyTable table = new BiomePropertyTable(ids, ClimateBiomeTable.create(), SubBiomeTable.create(), maxId + 1);
+        int beach = table.getId(Biomes.BEACH);
+        int gravelBeach = table.getId(BOPBiomes.gravel_beach);
+
+        // Jungles are only lined with edges when all of the exempt BOP jungles are present
+        Set<RegistryKey<Biome>> exemptJungles = ImmutableSet.of(BOPBiomes.rainforest, BOPBiomes.rainforest_floodplain, BOPBiomes.rainforest_cliffs, BOPBiomes.fungal_jungle, BOPBiomes.fungal_field);
+        boolean edgeJungles = exemptJungles.stream().allMatch((key) -> table.getId(key) != NONE);
+
+        for (Biome biome : registry)
+        {
+            RegistryKey<Biome> key = BiomeUtil.createKey(biome);
+            int id = registry.getID(biome);
+            int flags = 0;
+
+            table.categories[id] = biome.getBiomeCategory();
+            table.precipitation[id] = biome.getPrecipitation();
+
+            if (BOPLayerUtil.isOcean(id)) flags |= OCEAN | JUNGLE_COMPATIBLE;
+            if (BOPLayerUtil.isShallowOcean(id)) flags |= SHALLOW_OCEAN;
+            if (MESAS.contains(key)) flags |= MESA;
+            if (biome.getBiomeCategory() == Biome.Category.JUNGLE || JUNGLE_NEIGHBOURS.contains(key)) flags |= JUNGLE_COMPATIBLE;
+            if (ModBiomes.islandBiomeIds.contains(id)) flags |= ISLAND;
+            if (biome.getBiomeCategory() == Biome.Category.JUNGLE && edgeJungles && !exemptJungles.contains(key)) flags |= JUNGLE_EDGED;
+
+            if (BiomeUtil.hasMetadata(key))
+            {
+                BiomeMetadata meta = BiomeUtil.getMetadata(key);
+                flags |= HAS_METADATA;
+
+                if (meta.getBeachBiome() == null) flags |= NO_BEACH;
+
+                table.beachIds[id] = table.getIdOrDefault(meta.getBeachBiome(), id);
+                table.riverIds[id] = table.getIdOrDefault(meta.getRiverBiome(), id);
+            }
+            else
+            {
+                table.beachIds[id] = GRAVEL_BEACH_BIOMES.contains(key) ? (gravelBeach != NONE ? gravelBeach : id) : beach;
+                table.riverIds[id] = NONE;
+            }
+
+            table.flags[id] = flags;
+        }
+
+        // Rules are compiled last, as they depend on the properties above
+        table.edgeRules = BiomeEdgeRules.compile(table);
+        table.shoreRules = BiomeShoreRules.compile(table);
+        return table;
+    }
+
+    /**
+     * Gets the numeric id of the given biome, or NONE if it isn't registered.
+     */
+    public int getId(@Nullable RegistryKey<Biome> key)
+    {
+        return key == null ? NONE : this.ids.getInt(key);
+    }
+
+    public int getIdOrDefault(@Nullable RegistryKey<Biome> key, int defaultId)
+    {
+        int id = this.getId(key);
+        return id != NONE ? id : defaultId;
+    }
+
+    public ClimateBiomeTable getClimateBiomes()
+    {
+        return this.climateBiomes;
+    }
+
+    public SubBiomeTable getSubBiomes()
+    {
+        return this.subBiomes;
+    }
+
+    public BiomeEdgeRules.Compiled getEdgeRules()
+    {
+        return this.edgeRules;
+    }
+
+    public BiomeShoreRules.Compiled getShoreRules()
+    {
+        return this.shoreRules;
+    }
+
+    /** The number of ids covered by the table, one more than the highest registered id. */
+    public int size()
+    {
+        return this.flags.length;
+    }
+
+    @Nullable
+    public Biome.Category getCategory(int id)
+    {
+        return this.isValid(id) ? this.categories[id] : null;
+    }
+
+    @Nullable
+    public Biome.RainType getPrecipitation(int id)
+    {
+        return this.isValid(id) ? this.precipitation[id] : null;
+    }
+
+    public boolean isOcean(int id)
+    {
+        return this.hasFlag(id, OCEAN);
+    }
+
+    public boolean isShallowOcean(int id)
+    {
+        return this.hasFlag(id, SHALLOW_OCEAN);
+    }
+
+    public boolean isMesa(int id)
+    {
+        return this.hasFlag(id, MESA);
+    }
+
+    /** Whether a jungle may border this biome without requiring a jungle edge. */
+    public boolean isJungleCompatible(int id)
+    {
+        return this.hasFlag(id, JUNGLE_COMPATIBLE);
+    }
+
+    /** Whether this biome is a jungle which should be lined with jungle edges where it borders incompatible biomes. */
+    public boolean isJungleEdged(int id)
+    {
+        return this.hasFlag(id, JUNGLE_EDGED);
+    }
+
+    /** Whether this biome has been registered as an island biome. */
+    public boolean isIsland(int id)
+    {
+        return this.hasFlag(id, ISLAND);
+    }
+
+    public boolean hasMetadata(int id)
+    {
+        return this.hasFlag(id, HAS_METADATA);
+    }
+
+    /** Whether this biome's metadata explicitly specifies that it has no beach. */
+    public boolean hasNoBeach(int id)
+    {
+        return this.hasFlag(id, NO_BEACH);
+    }
+
+    /**
+     * Gets the id of the beach placed between this biome and oceans. Biomes whose metadata lacks a beach return
+     * their own id.
+     */
+    public int getBeachId(int id)
+    {
+        return this.isValid(id) ? this.beachIds[id] : id;
+    }
+
+    /**
+     * Gets the id of the river used within this biome, or NONE if the biome has no metadata and should use the
+     * vanilla behaviour.
+     */
+    public int getRiverId(int id)
+    {
+        return this.isValid(id) ? this.riverIds[id] : NONE;
+    }
+
+    private boolean hasFlag(int id, int flag)
+    {
+        return this.isValid(id) && (this.flags[id] & flag) != 0;
+    }
+
+    private boolean isValid(int id)
+    {
+        return id >= 0 && id < this.flags.length;
+    }
+}
@@ -0,0 +1,206 @@
+/*******************************************************************************
+ * Copyright 2014-2019, the Biomes O' Plenty Team
+ *
+ * This work is licensed under a Creative Commons Attribution-NonCommercial-NoDerivatives 4.0 International Public License.
+ *
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/4.0/.
+ ******************************************************************************/
+package biomesoplenty.common.world;
+
+import biomesoplenty.common.util.biome.BiomeUtil;
+import com.google.common.collect.Lists;
+import net.minecraft.util.RegistryKey;
+import net.minecraft.world.biome.Biome;
+import net.minecraft.world.biome.Biomes;
+
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/***
+ * The rules applied by BOPShoreLayer, compiled into arrays indexed by biome id when a biome provider is created.
+ *
+ * Every biome id is assigned a set of neighbour classes. Each biome has at most one shore rule, which replaces it with
+ * its shore when any neighbour belongs to the rule's trigger class, unless a neighbour belongs to its blocking class.
+ * Rules are derived from the biome properties by default, and may be overridden for individual biomes.
+ */
+public final class BiomeShoreRules
+{
+    public enum NeighbourClass
+    {
+        SHALLOW_OCEAN,
+        OCEAN,
+        NOT_MESA,
+        NOT_JUNGLE_COMPATIBLE;
+
+        private final int mask = 1 << this.ordinal();
+    }
+
+    private static final List<ShoreRule> RULES = Lists.newArrayList();
+
+    /**
+     * Replaces the given biome with a shore whenever it borders a neighbour of the trigger class, and none of the
+     * blocking class. Overrides the default rule for the biome. Rules involving unregistered biomes are ignored.
+     */
+    public static synchronized void addShoreRule(RegistryKey<Biome> biome, NeighbourClass trigger, @Nullable NeighbourClass blocker, RegistryKey<Biome> shore)
+    {
+        RULES.add(new ShoreRule(biome, trigger, blocker, shore));
+    }
+
+    public static synchronized Compiled compile(BiomePropertyTable properties)
+    {
+        int size = properties.size();
+        int[] classes = new int[size];
+        int[] triggers = new int[size];
+        int[] blockers = new int[size];
+        int[] shoreIds = new int[size];
+
+        int mushroomFields = BiomeUtil.getBiomeId(Biomes.MUSHROOM_FIELDS);
+        int mushroomFieldShore = BiomeUtil.getBiomeId(Biomes.MUSHROOM_FIELD_SHORE);
+        int jungleEdge = BiomeUtil.getBiomeId(Biomes.JUNGLE_EDGE);
+        int snowyBeach = BiomeUtil.getBiomeId(Biomes.SNOWY_BEACH);
+        int stoneShore = BiomeUtil.getBiomeId(Biomes.STONE_SHORE);
+        int desert = BiomeUtil.getBiomeId(Biomes.DESERT);
+        int river = BiomeUtil.getBiomeId(Biomes.RIVER);
+        int swamp = BiomeUtil.getBiomeId(Biomes.SWAMP);
+        int mountains = BiomeUtil.getBiomeId(Biomes.MOUNTAINS);
+        int woodedMountains = BiomeUtil.getBiomeId(Biomes.WOODED_MOUNTAINS);
+        int mountainEdge = BiomeUtil.getBiomeId(Biomes.MOUNTAIN_EDGE);
+        int badlands = BiomeUtil.getBiomeId(Biomes.BADLANDS);
+        int woodedBadlandsPlateau = BiomeUtil.getBiomeId(Biomes.WOODED_BADLANDS_PLATEAU);
+
+        for (int id = 0; id < size; id++)
+        {
+            classes[id] = getNeighbourClasses(properties, id);
+            shoreIds[id] = id;
+
+            if (id == mushroomFields)
+            {
+                triggers[id] = NeighbourClass.SHALLOW_OCEAN.mask;
+                shoreIds[id] = mushroomFieldShore;
+            }
+            else if (properties.isJungleEdged(id))
+            {
+                triggers[id] = NeighbourClass.NOT_JUNGLE_COMPATIBLE.mask;
+                shoreIds[id] = jungleEdge;
+            }
+            else if (id != mountains && id != woodedMountains && id != mountainEdge)
+            {
+                if (properties.getPrecipitation(id) == Biome.RainType.SNOW)
+                {
+                    if (!properties.isOcean(id))
+                    {
+                        triggers[id] = NeighbourClass.OCEAN.mask;
+                        shoreIds[id] = properties.hasNoBeach(id) ? id : snowyBeach;
+                    }
+                }
+                else if (id != badlands && id != woodedBadlandsPlateau)
+                {
+                    if (!properties.isOcean(id) && id != river && id != swamp)
+                    {
+                        triggers[id] = NeighbourClass.OCEAN.mask;
+                        shoreIds[id] = properties.getBeachId(id);
+                    }
+                }
+                else
+                {
+                    triggers[id] = NeighbourClass.NOT_MESA.mask;
+                    blockers[id] = NeighbourClass.OCEAN.mask;
+                    shoreIds[id] = desert;
+                }
+            }
+            else if (!properties.isOcean(id))
+            {
+                triggers[id] = NeighbourClass.OCEAN.mask;
+                shoreIds[id] = stoneShore;
+            }
+        }
+
+        for (ShoreRule rule : RULES)
+        {
+            int biomeId = properties.getId(rule.biome);
+            int shoreId = properties.getId(rule.shore);
+
+            if (biomeId == BiomePropertyTable.NONE || shoreId == BiomePropertyTable.NONE)
+                continue;
+
+            triggers[biomeId] = rule.trigger.mask;
+            blockers[biomeId] = rule.blocker != null ? rule.blocker.mask : 0;
+            shoreIds[biomeId] = shoreId;
+        }
+
+        return new Compiled(classes, getNeighbourClasses(properties, BiomePropertyTable.NONE), triggers, blockers, shoreIds);
+    }
+
+    private static int getNeighbourClasses(BiomePropertyTable properties, int id)
+    {
+        int classes = 0;
+        if (properties.isShallowOcean(id)) classes |= NeighbourClass.SHALLOW_OCEAN.mask;
+        if (properties.isOcean(id)) classes |= NeighbourClass.OCEAN.mask;
+        if (!properties.isMesa(id)) classes |= NeighbourClass.NOT_MESA.mask;
+        if (!properties.isJungleCompatible(id)) classes |= NeighbourClass.NOT_JUNGLE_COMPATIBLE.mask;
+        return classes;
+    }
+
+    public static final class Compiled
+    {
+        private final int[] classes;
+        private final int unknownClasses;
+        private final int[] triggers;
+        private final int[] blockers;
+        private final int[] shoreIds;
+
+        private Compiled(int[] classes, int unknownClasses, int[] triggers, int[] blockers, int[] shoreIds)
+        {
+            this.classes = classes;
+            this.unknownClasses = unknownClasses;
+            this.triggers = triggers;
+            this.blockers = blockers;
+            this.shoreIds = shoreIds;
+        }
+
+        public int apply(int northBiomeId, int eastBiomeId, int southBiomeId, int westBiomeId, int biomeId)
+        {
+            if (biomeId < 0 || biomeId >= this.triggers.length)
+                return biomeId;
+
+            int trigger = this.triggers[biomeId];
+
+            if (trigger == 0)
+                return biomeId;
+
+            int neighbourClasses = this.getClasses(northBiomeId) | this.getClasses(eastBiomeId) | this.getClasses(southBiomeId) | this.getClasses(westBiomeId);
+            return (neighbourClasses & trigger) != 0 && (neighbourClasses & this.blockers[biomeId]) == 0 ? this.shoreIds[biomeId] : biomeId;
+        }
+
+        /**
+         * Calls the consumer with the shore the given biome may be replaced with, if any.
+         */
+        public void forEachPossibleResult(int biomeId, IntConsumer consumer)
+        {
+            if (biomeId >= 0 && biomeId < this.triggers.length && this.triggers[biomeId] != 0)
+                consumer.accept(this.shoreIds[biomeId]);
+        }
+
+        private int getClasses(int id)
+        {
+            return id >= 0 && id < this.classes.length ? this.classes[id] : this.unknownClasses;
+        }
+    }
+
+    private static class ShoreRule
+    {
+        private final RegistryKey<Biome> biome;
+        private final NeighbourClass trigger;
+        private final NeighbourClass blocker;
+        private final RegistryKey<Biome> shore;
+
+        private ShoreRule(RegistryKey<Biome> biome, NeighbourClass trigger, @Nullable NeighbourClass blocker, RegistryKey<Biome> shore)
+        {
+            this.biome = biome;
+            this.trigger = trigger;
+            this.blocker = blocker;
+            this.shore = shore;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*******************************************************************************
+ * Copyright 2014-2019, the Biomes O' Plenty Team
+ *
+ * This work is licensed under a Creative Commons Attribution-NonCommercial-NoDerivatives 4.0 International Public License.
+ *
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/4.0/.
+ ******************************************************************************/
+package biomesoplenty.common.world;
+
+/***
+ * An immutable rectangle of biome ids at quart resolution, as produced by BOPLayer.getTile.
+ */
+public class BiomeTile
+{
+    private final int x;
+    private final int z;
+    private final int width;
+    private final int height;
+    private final int[] biomeIds;
+
+    public BiomeTile(int x, int z, int width, int height, int[] biomeIds)
+    {
+        this.x = x;
+        this.z = z;
+        this.width = width;
+        this.height = height;
+        this.biomeIds = biomeIds;
+    }
+
+    public boolean contains(int x, int z)
+    {
+        return x >= this.x && z >= this.z && x < this.x + this.width && z < this.z + this.height;
+    }
+
+    public int get(int x, int z)
+    {
+        return this.biomeIds[(z - this.z) * this.width + (x - this.x)];
+    }
+
+    public int getX()
+    {
+        return this.x;
+    }
+
+    public int getZ()
+    {
+        return this.z;
+    }
+
+    public int getWidth()
+    {
+        return this.width;
+    }
+
+    public int getHeight()
+    {
+        return this.height;
+    }
+}
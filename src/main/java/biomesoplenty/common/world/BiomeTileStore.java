@@ -0,0 +1,428 @@
+/*******************************************************************************
+ * Copyright 2014-2019, the Biomes O' Plenty Team
+ *
+ * This work is licensed under a Creative Commons Attribution-NonCommercial-NoDerivatives 4.0 International Public License.
+ *
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/4.0/.
+ ******************************************************************************/
+package biomesoplenty.common.world;
+
+import biomesoplenty.api.enums.BOPClimates;
+import biomesoplenty.core.BiomesOPlenty;
+import biomesoplenty.init.ModBiomes;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import net.minecraft.util.ResourceLocation;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.registry.Registry;
+import net.minecraft.world.biome.Biome;
+import net.minecraftforge.fml.ModList;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/***
+ * An on-disk cache of biome tiles, so biomes assigned in earlier sessions needn't be assigned again by the layers.
+ * Tiles are kept in memory mapped files, each covering the same area as a region file. Everything which affects the
+ * biomes assigned is hashed into a key which names the directory the files are kept in, and which is repeated in
+ * the header of every file. Changing the seed, settings, registered biomes, biome weights or mod version therefore
+ * never reads tiles which no longer apply. Directories left behind by other versions of the mod are deleted.
+ */
+public class BiomeTileStore
+{
+    private static final int MAGIC = 0x424F5054;
+    private static final int FORMAT_VERSION = 1;
+
+    // Each file covers a region, which is 128 quarts across
+    private static final int REGION_SHIFT = 7;
+    private static final int REGION_SIZE = 1 << REGION_SHIFT;
+
+    private static final int HEADER_SIZE = 16;
+
+    // The number of region files kept open at once
+    private static final int OPEN_REGIONS = 64;
+
+    // Providers with the same key share a store, so each file is only mapped once
+    private static final Map<Path, BiomeTileStore> STORES = new ConcurrentHashMap<>();
+
+    private final Path directory;
+    private final long key;
+    private final int tileSize;
+    private final int tilesPerSide;
+    private final int fileSize;
+    private final LoadingCache<Long, Region> regions;
+    private volatile boolean failed;
+    private volatile boolean closed;
+
+    private BiomeTileStore(Path directory, long key, int tileSize)
+    {
+        if (REGION_SIZE % tileSize != 0)
+            throw new IllegalArgumentException("Tile size must divide the region size");
+
+        this.directory = directory;
+        this.key = key;
+        this.tileSize = tileSize;
+        this.tilesPerSide = REGION_SIZE / tileSize;
+
+        // A header, a byte marking the presence of each tile, then an unsigned short for every quart
+        this.fileSize = HEADER_SIZE + this.tilesPerSide * this.tilesPerSide + REGION_SIZE * REGION_SIZE * 2;
+        this.regions = CacheBuilder.newBuilder().maximumSize(OPEN_REGIONS).removalListener((RemovalNotification<Long, Region> notification) -> notification.getValue().close()).build(CacheLoader.from(this::openRegion));
+    }
+
+    /**
+     * Opens the store for the given world directory, creating it if necessary.
+     */
+    public static synchronized BiomeTileStore open(Path worldDirectory, long seed, BOPOverworldGenSettings settings, Registry<Biome> biomes, int tileSize) throws IOException
+    {
+        String version = ModList.get().getModContainerById(BiomesOPlenty.MOD_ID).map((container) -> container.getModInfo().getVersion().toString()).orElse("unknown");
+        Path root = worldDirectory.resolve("data").resolve(BiomesOPlenty.MOD_ID).resolve("biome_tiles");
+        Path versionDirectory = root.resolve(version.replaceAll("[^A-Za-z0-9._-]", "_"));
+        long key = createKey(seed, settings, biomes, version);
+        Path directory = versionDirectory.resolve(String.format("%016x", key));
+        BiomeTileStore store = STORES.get(directory);
+
+        if (store != null)
+            return store;
+
+        Files.createDirectories(directory);
+
+        // Tiles stored by other versions will never be read again. Those stored for other keys are kept, as they may
+        // belong to another dimension which hasn't opened its store yet.
+        try (Stream<Path> siblings = Files.list(root))
+        {
+            for (Path sibling : siblings.filter((path) -> !path.equals(versionDirectory)).collect(Collectors.toList()))
+            {
+                deleteRecursively(sibling);
+            }
+        }
+
+        store = new BiomeTileStore(directory, key, tileSize);
+        STORES.put(directory, store);
+        return store;
+    }
+
+    /**
+     * Closes every open store, forcing any changes out to their files and unmapping them. Called once the server has
+     * stopped, so the files of one world aren't kept mapped whilst another is played.
+     */
+    public static synchronized void closeAll()
+    {
+        for (BiomeTileStore store : STORES.values())
+        {
+            store.close();
+        }
+
+        STORES.clear();
+    }
+
+    private void close()
+    {
+        this.closed = true;
+
+        // Each region is forced and closed as it is removed
+        this.regions.invalidateAll();
+        this.regions.cleanUp();
+    }
+
+    /**
+     * Gets the biome ids of the tile with the given corner, in row-major order, or null if it hasn't been stored.
+     */
+    @Nullable
+    public int[] load(int x, int z)
+    {
+        Region region = this.getRegion(x, z);
+        return region != null ? region.load(x & (REGION_SIZE - 1), z & (REGION_SIZE - 1)) : null;
+    }
+
+    public void save(BiomeTile tile)
+    {
+        Region region = this.getRegion(tile.getX(), tile.getZ());
+
+        if (region != null)
+            region.save(tile);
+    }
+
+    @Nullable
+    private Region getRegion(int x, int z)
+    {
+        if (this.failed || this.closed)
+            return null;
+
+        try
+        {
+            return this.regions.get(ChunkPos.asLong(x >> REGION_SHIFT, z >> REGION_SHIFT));
+        }
+        catch (ExecutionException | UncheckedExecutionException e)
+        {
+            // Carry on without the store rather than failing on every tile
+            BiomesOPlenty.logger.warn("Failed to open biome tile store in " + this.directory + ", biome tiles will no longer be stored", e.getCause());
+            this.failed = true;
+            return null;
+        }
+    }
+
+    private Region openRegion(long pos)
+    {
+        Path path = this.directory.resolve("r." + ChunkPos.getX(pos) + "." + ChunkPos.getZ(pos) + ".bin");
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE))
+        {
+            boolean valid = channel.size() == this.fileSize;
+
+            // The mapping remains valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, this.fileSize);
+
+            if (!valid || buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION || buffer.getLong(8) != this.key)
+            {
+                // Discard whatever was there before
+                for (int i = HEADER_SIZE; i < HEADER_SIZE + this.tilesPerSide * this.tilesPerSide; ++i)
+                {
+                    buffer.put(i, (byte)0);
+                }
+
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, FORMAT_VERSION);
+                buffer.putLong(8, this.key);
+            }
+
+            return new Region(buffer);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long createKey(long seed, BOPOverworldGenSettings settings, Registry<Biome> biomes, String version)
+    {
+        Hasher hasher = Hashing.murmur3_128().newHasher();
+        hasher.putInt(FORMAT_VERSION);
+        hasher.putString(version, StandardCharsets.UTF_8);
+        hasher.putLong(seed);
+        hasher.putInt(settings.getBiomeSize());
+        hasher.putInt(settings.getRiverSize());
+        hasher.putString(settings.getTempScheme().name(), StandardCharsets.UTF_8);
+        hasher.putString(settings.getRainScheme().name(), StandardCharsets.UTF_8);
+
+        // The numeric ids the layers produce
+        for (Biome biome : biomes)
+        {
+            ResourceLocation location = biomes.getKey(biome);
+            hasher.putInt(biomes.getId(biome));
+            hasher.putString(String.valueOf(location), StandardCharsets.UTF_8);
+        }
+
+        // The biome weights, which may be changed in the config
+        for (BOPClimates climate : BOPClimates.values())
+        {
+            for (BOPClimates.WeightedBiomeEntry entry : climate.getLandBiomes())
+            {
+                hasher.putString(climate.name(), StandardCharsets.UTF_8).putString(entry.biome.location().toString(), StandardCharsets.UTF_8).putInt(entry.weight);
+            }
+
+            for (BOPClimates.WeightedBiomeEntry entry : climate.getIslandBiomes())
+            {
+                hasher.putString(climate.name() + "_island", StandardCharsets.UTF_8).putString(entry.biome.location().toString(), StandardCharsets.UTF_8).putInt(entry.weight);
+            }
+        }
+
+        // The multimap's iteration order isn't stable between sessions, so sort the sub biomes first
+        List<String> subBiomes = ModBiomes.subBiomes.entries().stream().map((entry) -> entry.getKey() + ":" + entry.getValue().biome.location() + ":" + entry.getValue().rarity + ":" + entry.getValue().weight).sorted().collect(Collectors.toList());
+
+        for (String subBiome : subBiomes)
+        {
+            hasher.putString(subBiome, StandardCharsets.UTF_8);
+        }
+
+        return hasher.hash().asLong();
+    }
+
+    private static void deleteRecursively(Path path) throws IOException
+    {
+        try (Stream<Path> paths = Files.walk(path))
+        {
+            for (Path child : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList()))
+            {
+                Files.delete(child);
+            }
+        }
+    }
+
+    private class Region
+    {
+        private final MappedByteBuffer buffer;
+        private boolean closed;
+
+        private Region(MappedByteBuffer buffer)
+        {
+            this.buffer = buffer;
+        }
+
+        @Nullable
+        private synchronized int[] load(int localX, int localZ)
+        {
+            int tileSize = BiomeTileStore.this.tileSize;
+
+            if (this.closed || this.buffer.get(this.getPresenceIndex(localX, localZ)) == 0)
+                return null;
+
+            int[] biomeIds = new int[tileSize * tileSize];
+
+            for (int z = 0; z < tileSize; ++z)
+            {
+                for (int x = 0; x < tileSize; ++x)
+                {
+                    biomeIds[z * tileSize + x] = this.buffer.getChar(this.getIdIndex(localX + x, localZ + z));
+                }
+            }
+
+            return biomeIds;
+        }
+
+        private synchronized void save(BiomeTile tile)
+        {
+            int tileSize = BiomeTileStore.this.tileSize;
+            int localX = tile.getX() & (REGION_SIZE - 1);
+            int localZ = tile.getZ() & (REGION_SIZE - 1);
+
+            if (this.closed || tile.getWidth() != tileSize || tile.getHeight() != tileSize)
+                return;
+
+            for (int z = 0; z < tileSize; ++z)
+            {
+                for (int x = 0; x < tileSize; ++x)
+                {
+                    int biomeId = tile.get(tile.getX() + x, tile.getZ() + z);
+
+                    // Ids which don't fit are left for the layers to produce each time
+                    if (biomeId < 0 || biomeId > Character.MAX_VALUE)
+                        return;
+
+                    this.buffer.putChar(this.getIdIndex(localX + x, localZ + z), (char)biomeId);
+                }
+            }
+
+            // Marked present only once all of its ids have been written
+            this.buffer.put(this.getPresenceIndex(localX, localZ), (byte)1);
+        }
+
+        private synchronized void close()
+        {
+            this.closed = true;
+            this.buffer.force();
+
+            // Nothing reads the buffer once it is closed, so it is safe to unmap
+            Unmapper.unmap(this.buffer);
+        }
+
+        private int getPresenceIndex(int localX, int localZ)
+        {
+            int tileSize = BiomeTileStore.this.tileSize;
+            return HEADER_SIZE + (localZ / tileSize) * BiomeTileStore.this.tilesPerSide + localX / tileSize;
+        }
+
+        private int getIdIndex(int localX, int localZ)
+        {
+            return HEADER_SIZE + BiomeTileStore.this.tilesPerSide * BiomeTileStore.this.tilesPerSide + (localZ * REGION_SIZE + localX) * 2;
+        }
+    }
+
+    /***
+     * A mapped file otherwise stays mapped until its buffer is garbage collected, which on Windows prevents the world
+     * from being deleted or replaced. There is no public API to unmap a buffer, so the JDK's cleaner is used where it
+     * can be found, and the buffer is left to the garbage collector where it can't.
+     */
+    private static class Unmapper
+    {
+        @Nullable
+        private static final Method CLEAN;
+        @Nullable
+        private static final Object RECEIVER;
+        @Nullable
+        private static final Method CLEANER;
+
+        static
+        {
+            Method clean = null;
+            Object receiver = null;
+            Method cleaner = null;
+
+            try
+            {
+                // Java 9 and later
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                Field field = unsafeClass.getDeclaredField("theUnsafe");
+                field.setAccessible(true);
+                receiver = field.get(null);
+                clean = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            }
+            catch (ReflectiveOperationException | RuntimeException e)
+            {
+                try
+                {
+                    // Java 8
+                    cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+                    clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+                    receiver = null;
+                }
+                catch (ReflectiveOperationException | RuntimeException e2)
+                {
+                    clean = null;
+                    cleaner = null;
+                    BiomesOPlenty.logger.warn("Unable to unmap biome tile files, they will remain mapped until garbage collected");
+                }
+            }
+
+            CLEAN = clean;
+            RECEIVER = receiver;
+            CLEANER = cleaner;
+        }
+
+        private static void unmap(MappedByteBuffer buffer)
+        {
+            if (CLEAN == null)
+                return;
+
+            try
+            {
+                if (CLEANER == null)
+                {
+                    CLEAN.invoke(RECEIVER, buffer);
+                }
+                else
+                {
+                    Object cleaner = CLEANER.invoke(buffer);
+
+                    if (cleaner != null)
+                        CLEAN.invoke(cleaner);
+                }
+            }
+            catch (ReflectiveOperationException | RuntimeException e)
+            {
+                BiomesOPlenty.logger.warn("Failed to unmap biome tile file", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Copyright 2014-2019, the Biomes O' Plenty Team
+ *
+ * This work is licensed under a Creative Commons Attribution-NonCommercial-NoDerivatives 4.0 International Public License.
+ *
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/4.0/.
+ ******************************************************************************/
+package biomesoplenty.common.world;
+
+import biomesoplenty.api.enums.BOPClimates;
+import biomesoplenty.common.util.biome.BiomeUtil;
+import net.minecraft.world.gen.INoiseRandom;
+
+import java.util.List;
+
+/***
+ * The weighted biomes of each climate, compiled into samplers which return numeric biome ids. Sampling draws a single
+ * random number in the same manner as BOPClimates.getRandomBiome, so the biomes chosen are identical.
+ */
+public final class ClimateBiomeTable
+{
+    // Above this total weight we binary search the cumulative weights rather than using a direct lookup
+    private static final int MAX_LOOKUP_SIZE = 1 << 16;
+
+    private final Sampler[] landSamplers;
+    private final Sampler[] islandSamplers;
+
+    private ClimateBiomeTable(Sampler[] landSamplers, Sampler[] islandSamplers)
+    {
+        this.landSamplers = landSamplers;
+        this.islandSamplers = islandSamplers;
+    }
+
+    public static ClimateBiomeTable create()
+    {
+        BOPClimates[] climates = BOPClimates.values();
+        Sampler[] landSamplers = new Sampler[climates.length];
+        Sampler[] islandSamplers = new Sampler[climates.length];
+
+        for (BOPClimates climate : climates)
+        {
+            if (climate.getTotalBiomesWeight() > 0)
+                landSamplers[climate.ordinal()] = new Sampler(climate.getLandBiomes(), climate.getTotalBiomesWeight());
+
+            if (climate.getTotalIslandBiomesWeight() > 0)
+                islandSamplers[climate.ordinal()] = new Sampler(climate.getIslandBiomes(), climate.getTotalIslandBiomesWeight());
+        }
+
+        return new ClimateBiomeTable(landSamplers, islandSamplers);
+    }
+
+    /**
+     * Picks a land biome id for the given climate, or returns the fallback if the climate has no land biomes.
+     */
+    public int getRandomBiome(BOPClimates climate, INoiseRandom context, int fallbackId)
+    {
+        Sampler sampler = this.landSamplers[climate.ordinal()];
+        return sampler == null ? fallbackId : sampler.sample(context);
+    }
+
+    /**
+     * Picks an island biome id for the given climate, or returns the fallback if the climate has no island biomes.
+     */
+    public int getRandomIslandBiome(BOPClimates climate, INoiseRandom context, int fallbackId)
+    {
+        Sampler sampler = this.islandSamplers[climate.ordinal()];
+        return sampler == null ? fallbackId : sampler.sample(context);
+    }
+
+    static class Sampler
+    {
+        private final int totalWeight;
+        private final int[] biomeIds;
+        private final int[] cumulativeWeights;
+
+        // Maps every possible draw directly to its biome id, if the total weight is small enough
+        private final int[] lookup;
+
+        private Sampler(List<BOPClimates.WeightedBiomeEntry> entries, int totalWeight)
+        {
+            this(entries.stream().mapToInt((entry) -> BiomeUtil.getBiomeId(entry.biome)).toArray(), entries.stream().mapToInt((entry) -> entry.weight).toArray(), totalWeight);
+        }
+
+        Sampler(int[] biomeIds, int[] weights, int totalWeight)
+        {
+            this.totalWeight = totalWeight;
+            this.biomeIds = biomeIds;
+            this.cumulativeWeights = new int[weights.length];
+
+            int cumulativeWeight = 0;
+
+            for (int i = 0; i < weights.length; i++)
+            {
+                cumulativeWeight += weights[i];
+                this.cumulativeWeights[i] = cumulativeWeight;
+            }
+
+            if (totalWeight <= MAX_LOOKUP_SIZE)
+            {
+                this.lookup = new int[totalWeight];
+
+                for (int weight = 0; weight < totalWeight; weight++)
+                {
+                    this.lookup[weight] = this.biomeIds[this.search(weight)];
+                }
+            }
+            else
+            {
+                this.lookup = null;
+            }
+        }
+
+        int sample(INoiseRandom context)
+        {
+            int weight = context.nextRandom(this.totalWeight);
+            return this.lookup != null ? this.lookup[weight] : this.biomeIds[this.search(weight)];
+        }
+
+        // Finds the first entry whose cumulative weight exceeds the given weight, matching the linear scan
+        private int search(int weight)
+        {
+            int low = 0;
+            int high = this.cumulativeWeights.length - 1;
+
+            while (low < high)
+            {
+                int mid = (low + high) >>> 1;
+
+                if (this.cumulativeWeights[mid] > weight)
+                {
+                    high = mid;
+                }
+                else
+                {
+                    low = mid + 1;
+                }
+            }
+
+            return low;
+        }
+    }
+}
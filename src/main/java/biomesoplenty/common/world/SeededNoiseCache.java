@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright 2014-2019, the Biomes O' Plenty Team
+ *
+ * This work is licensed under a Creative Commons Attribution-NonCommercial-NoDerivatives 4.0 International Public License.
+ *
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/4.0/.
+ ******************************************************************************/
+package biomesoplenty.common.world;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+import java.util.function.LongFunction;
+
+/***
+ * A bounded, thread safe cache of noise generators keyed by world seed. Worldgen singletons such as placements and
+ * surface builders are shared between every thread and dimension, so rather than holding the noise for the last
+ * seed they saw, they look it up here. The cached noise must not be modified once built.
+ */
+public final class SeededNoiseCache<T>
+{
+    private static final int DEFAULT_MAXIMUM_SIZE = 8;
+
+    private final LoadingCache<Long, T> cache;
+
+    // The most recently used noise, which saves a lookup whilst only one seed is in use
+    private volatile Entry<T> last;
+
+    public SeededNoiseCache(LongFunction<T> factory)
+    {
+        this(factory, DEFAULT_MAXIMUM_SIZE);
+    }
+
+    public SeededNoiseCache(LongFunction<T> factory, int maximumSize)
+    {
+        this.cache = CacheBuilder.newBuilder().maximumSize(maximumSize).build(CacheLoader.from((seed) -> factory.apply(seed)));
+    }
+
+    public T get(long seed)
+    {
+        Entry<T> last = this.last;
+
+        if (last != null && last.seed == seed)
+            return last.noise;
+
+        T noise = this.cache.getUnchecked(seed);
+        this.last = new Entry<>(seed, noise);
+        return noise;
+    }
+
+    private static class Entry<T>
+    {
+        private final long seed;
+        private final T noise;
+
+        private Entry(long seed, T noise)
+        {
+            this.seed = seed;
+            this.noise = noise;
+        }
+    }
+}
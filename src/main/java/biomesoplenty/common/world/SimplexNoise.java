@@ -1,5 +1,7 @@
 package biomesoplenty.common.world;
 
+import java.util.Arrays;
+
 /**
  * A speed-improved simplex noise algorithm for 2D in Java.
  *
@@ -104,6 +106,109 @@ public final class SimplexNoise {
         return value;
     }
 
+    /**
+     * Fills out with the noise over a regular lattice in row-major order. The sample at (column, row) is taken at
+     * (originX + column * stepX, originY + row * stepY), and is identical to calling noise with those coordinates.
+     */
+    public static void noise(long seed, double originX, double originY, double stepX, double stepY, int width, int height, double[] out) {
+        double[] xCoords = new double[width];
+        for (int column = 0; column < width; column++) {
+            xCoords[column] = originX + column * stepX;
+        }
+
+        for (int row = 0; row < height; row++) {
+            noiseRow(seed, xCoords, originY + row * stepY, out, row * width);
+        }
+    }
+
+    /**
+     * Fills out with the noise over a lattice of integer coordinates in row-major order. The sample at (column, row) is
+     * taken at ((x + column) * scale + offsetX, (y + row) * scale + offsetY), matching the usual way of sampling the
+     * noise for a block or biome position exactly.
+     */
+    public static void noise(long seed, int x, int y, int width, int height, double scale, double offsetX, double offsetY, double[] out) {
+        double[] xCoords = new double[width];
+        for (int column = 0; column < width; column++) {
+            xCoords[column] = (x + column) * scale + offsetX;
+        }
+
+        for (int row = 0; row < height; row++) {
+            noiseRow(seed, xCoords, (y + row) * scale + offsetY, out, row * width);
+        }
+    }
+
+    // Evaluates a row of the noise, performing exactly the same arithmetic as noise(seed, xin, yin) for each sample.
+    // Neighbouring samples usually fall within the same cell, so the corner hashes are kept until the cell changes.
+    private static void noiseRow(long seed, double[] xCoords, double yin, double[] out, int offset) {
+        int cellI = 0;
+        int cellJ = 0;
+        int[] gradIndices = new int[4];
+        boolean cellValid = false;
+
+        for (int column = 0; column < xCoords.length; column++) {
+            double xin = xCoords[column];
+
+            double s = (xin + yin) * F2;
+            int i = fastfloor(xin + s);
+            int j = fastfloor(yin + s);
+
+            double t = (i + j) * G2;
+            double x0 = xin - (i - t);
+            double y0 = yin - (j - t);
+
+            int i1, j1;
+            if (x0 > y0) {
+                i1 = 1;
+                j1 = 0;
+            } else {
+                i1 = 0;
+                j1 = 1;
+            }
+
+            double x1 = x0 - i1 + G2;
+            double y1 = y0 - j1 + G2;
+            double x2 = x0 - (1.0 - 2.0 * G2);
+            double y2 = y0 - (1.0 - 2.0 * G2);
+
+            if (!cellValid || i != cellI || j != cellJ) {
+                // Corners are indexed by their offset from the cell origin, i1 + 2 * j1
+                Arrays.fill(gradIndices, -1);
+                cellI = i;
+                cellJ = j;
+                cellValid = true;
+            }
+
+            double value = 0;
+            double t0 = 0.5 - x0 * x0 - y0 * y0;
+            if (t0 > 0) {
+                t0 *= t0;
+                value = t0 * t0 * gradDot(cornerGradIndex(seed, gradIndices, i, j, 0, 0), x0, y0);
+            }
+            double t1 = 0.5 - x1 * x1 - y1 * y1;
+            if (t1 > 0) {
+                t1 *= t1;
+                value += t1 * t1 * gradDot(cornerGradIndex(seed, gradIndices, i, j, i1, j1), x1, y1);
+            }
+            double t2 = 0.5 - x2 * x2 - y2 * y2;
+            if (t2 > 0) {
+                t2 *= t2;
+                value += t2 * t2 * gradDot(cornerGradIndex(seed, gradIndices, i, j, 1, 1), x2, y2);
+            }
+
+            out[offset + column] = value;
+        }
+    }
+
+    private static int cornerGradIndex(long seed, int[] gradIndices, int i, int j, int di, int dj) {
+        int corner = di + 2 * dj;
+        int index = gradIndices[corner];
+        if (index < 0) {
+            index = gradIndex(seed, (i * PRIME_X) + (-di & PRIME_X), (j * PRIME_Y) + (-dj & PRIME_Y));
+            gradIndices[corner] = index;
+        }
+        return index;
+    }
+
     // This method is a *lot* faster than using (int)Math.floor(x)
     private static int fastfloor(double x) {
         int xi = (int) x;
@@ -111,6 +216,10 @@ public final class SimplexNoise {
     }
 
     private static double grad(long seed, long xsvp, long ysvp, double dx, double dy) {
+        return gradDot(gradIndex(seed, xsvp, ysvp), dx, dy);
+    }
+
+    private static int gradIndex(long seed, long xsvp, long ysvp) {
         long hash = seed ^ xsvp ^ ysvp;
         hash *= HASH_UNIQUIFIER;
 
@@ -119,8 +228,10 @@ public final class SimplexNoise {
         hash ^= hash >> 17;
         hash ^= hash >> 9;
 
-        int index = (int)(hash & 0xFE);
+        return (int)(hash & 0xFE);
+    }
 
+    private static double gradDot(int index, double dx, double dy) {
         return grads[index] * dx + grads[index | 1] * dy;
     }
 
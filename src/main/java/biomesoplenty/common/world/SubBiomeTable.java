@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * Copyright 2014-2019, the Biomes O' Plenty Team
+ *
+ * This work is licensed under a Creative Commons Attribution-NonCommercial-NoDerivatives 4.0 International Public License.
+ *
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/4.0/.
+ ******************************************************************************/
+package biomesoplenty.common.world;
+
+import biomesoplenty.common.util.biome.BiomeUtil;
+import biomesoplenty.init.ModBiomes;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import net.minecraft.world.gen.INoiseRandom;
+
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/***
+ * The sub biomes of each parent biome, compiled into tables indexed by the rarity roll so that picking one requires
+ * neither allocation nor boxing. Picks are identical to filtering ModBiomes.subBiomes on every query.
+ */
+public final class SubBiomeTable
+{
+    // Rarity is rolled as nextRandom(100) / 100
+    private static final int RARITY_ROLLS = 100;
+
+    private final Int2ObjectMap<Parent> parents;
+
+    private SubBiomeTable(Int2ObjectMap<Parent> parents)
+    {
+        this.parents = parents;
+    }
+
+    public static SubBiomeTable create()
+    {
+        Int2ObjectMap<Parent> parents = new Int2ObjectOpenHashMap<>();
+
+        for (Integer parentId : ModBiomes.subBiomes.keySet())
+        {
+            // The order of the entries must match that of the multimap, which stays fixed once registration is over
+            List<ModBiomes.WeightedSubBiome> entries = ImmutableList.copyOf(ModBiomes.subBiomes.get(parentId));
+            parents.put(parentId.intValue(), new Parent(entries));
+        }
+
+        return new SubBiomeTable(parents);
+    }
+
+    /**
+     * Rolls a rarity and picks a sub biome of the given biome which is at least that common. Returns the original
+     * biome id if there are none.
+     */
+    public int getRandomSubBiome(INoiseRandom context, int originalBiomeId)
+    {
+        int rarityRoll = context.nextRandom(RARITY_ROLLS);
+        Parent parent = this.parents.get(originalBiomeId);
+
+        if (parent == null)
+            return originalBiomeId;
+
+        Bucket bucket = parent.buckets[parent.bucketForRoll[rarityRoll]];
+
+        if (bucket.totalWeight <= 0)
+            return originalBiomeId;
+
+        int weight = context.nextRandom(bucket.totalWeight);
+        int[] cumulativeWeights = bucket.cumulativeWeights;
+        int i = 0;
+
+        while (cumulativeWeights[i] <= weight)
+        {
+            ++i;
+        }
+
+        return bucket.biomeIds[i];
+    }
+
+    /**
+     * Calls the consumer with every sub biome which may be picked for the given biome.
+     */
+    public void forEachSubBiome(int originalBiomeId, IntConsumer consumer)
+    {
+        Parent parent = this.parents.get(originalBiomeId);
+
+        if (parent == null)
+            return;
+
+        // Every entry belongs to the bucket with the fewest exclusions
+        for (int biomeId : parent.buckets[0].biomeIds)
+        {
+            consumer.accept(biomeId);
+        }
+    }
+
+    private static class Parent
+    {
+        private final byte[] bucketForRoll = new byte[RARITY_ROLLS];
+        private final Bucket[] buckets;
+
+        private Parent(List<ModBiomes.WeightedSubBiome> entries)
+        {
+            int[] biomeIds = new int[entries.size()];
+            float[] rarities = new float[entries.size()];
+            int[] weights = new int[entries.size()];
+
+            for (int i = 0; i < entries.size(); i++)
+            {
+                ModBiomes.WeightedSubBiome entry = entries.get(i);
+                biomeIds[i] = BiomeUtil.getBiomeId(entry.biome);
+                rarities[i] = entry.rarity;
+                weights[i] = entry.weight;
+            }
+
+            // Higher rolls only ever exclude more entries, so rolls with the same number of eligible entries share a
+            // bucket. There is at most one bucket more than there are distinct rarities.
+            List<Bucket> buckets = Lists.newArrayList();
+            int previousCount = -1;
+
+            for (int roll = 0; roll < RARITY_ROLLS; roll++)
+            {
+                Bucket bucket = new Bucket(biomeIds, rarities, weights, (float)roll / 100.0f);
+
+                if (bucket.biomeIds.length != previousCount)
+                {
+                    buckets.add(bucket);
+                    previousCount = bucket.biomeIds.length;
+                }
+
+                this.bucketForRoll[roll] = (byte)(buckets.size() - 1);
+            }
+
+            this.buckets = buckets.toArray(new Bucket[0]);
+        }
+    }
+
+    private static class Bucket
+    {
+        private final int totalWeight;
+        private final int[] biomeIds;
+        private final int[] cumulativeWeights;
+
+        private Bucket(int[] allBiomeIds, float[] rarities, int[] weights, float rarity)
+        {
+            int count = 0;
+
+            for (float entryRarity : rarities)
+            {
+                if (entryRarity >= rarity) ++count;
+            }
+
+            this.biomeIds = new int[count];
+            this.cumulativeWeights = new int[count];
+
+            int index = 0;
+            int totalWeight = 0;
+
+            for (int i = 0; i < rarities.length; i++)
+            {
+                if (rarities[i] >= rarity)
+                {
+                    totalWeight += weights[i];
+                    this.biomeIds[index] = allBiomeIds[i];
+                    this.cumulativeWeights[index] = totalWeight;
+                    ++index;
+                }
+            }
+
+            this.totalWeight = totalWeight;
+        }
+    }
+}
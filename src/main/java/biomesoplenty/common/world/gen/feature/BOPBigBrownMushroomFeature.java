@@ -45,31 +45,16 @@ public class BOPBigBrownMushroomFeature extends BigBrownMushroomFeature
     @Override
     protected void makeCap(IWorld world, Random random, BlockPos pos, int height, BlockPos.Mutable mutablePos, BigMushroomFeatureConfig config)
     {
-        int radius = config.foliageRadius;
+        VoxelStamp cap = VoxelStamps.brownMushroomCap(config.foliageRadius);
+        BlockPos capOrigin = pos.above(height);
 
-        for (int x = -radius; x <= radius; ++x)
+        for (int i = 0; i < cap.size(); ++i)
         {
-            for (int z = -radius; z <= radius; ++z)
+            cap.setPos(mutablePos, capOrigin, i);
+            // Fix Forge's inversion bug
+            if (world.getBlockState(mutablePos).canBeReplacedByLeaves(world, mutablePos))
             {
-                boolean westEdge = x == -radius;
-                boolean eastEdge = x == radius;
-                boolean northEdge = z == -radius;
-                boolean southEdge = z == radius;
-                boolean eastOrWestEdge = westEdge || eastEdge;
-                boolean northOrSouthEdge = northEdge || southEdge;
-                if (!eastOrWestEdge || !northOrSouthEdge)
-                {
-                    mutablePos.set(pos).move(x, height, z);
-                    // Fix Forge's inversion bug
-                    if (world.getBlockState(mutablePos).canBeReplacedByLeaves(world, mutablePos))
-                    {
-                        boolean westFace = westEdge || northOrSouthEdge && x == 1 - radius;
-                        boolean eastFace = eastEdge || northOrSouthEdge && x == radius - 1;
-                        boolean northFace = northEdge || eastOrWestEdge && z == 1 - radius;
-                        boolean southFace = southEdge || eastOrWestEdge && z == radius - 1;
-                        this.setBlock(world, mutablePos, config.capProvider.getState(random, pos).setValue(HugeMushroomBlock.WEST, Boolean.valueOf(westFace)).setValue(HugeMushroomBlock.EAST, Boolean.valueOf(eastFace)).setValue(HugeMushroomBlock.NORTH, Boolean.valueOf(northFace)).setValue(HugeMushroomBlock.SOUTH, Boolean.valueOf(southFace)));
-                    }
-                }
+                this.setBlock(world, mutablePos, config.capProvider.getState(random, pos).setValue(HugeMushroomBlock.WEST, Boolean.valueOf(cap.hasFlag(i, VoxelStamp.WEST))).setValue(HugeMushroomBlock.EAST, Boolean.valueOf(cap.hasFlag(i, VoxelStamp.EAST))).setValue(HugeMushroomBlock.NORTH, Boolean.valueOf(cap.hasFlag(i, VoxelStamp.NORTH))).setValue(HugeMushroomBlock.SOUTH, Boolean.valueOf(cap.hasFlag(i, VoxelStamp.SOUTH))));
             }
         }
     }
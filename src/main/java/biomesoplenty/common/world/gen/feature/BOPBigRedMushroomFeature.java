@@ -45,31 +45,16 @@ public class BOPBigRedMushroomFeature extends BigRedMushroomFeature
     @Override
     protected void makeCap(IWorld world, Random random, BlockPos pos, int height, BlockPos.Mutable mutablePos, BigMushroomFeatureConfig config)
     {
-        for (int y = height - 3; y <= height; ++y)
-        {
-            int radius = y < height ? config.foliageRadius : config.foliageRadius - 1;
-            int innerRadius = config.foliageRadius - 2;
+        VoxelStamp cap = VoxelStamps.redMushroomCap(config.foliageRadius);
+        BlockPos capOrigin = pos.above(height);
 
-            for (int x = -radius; x <= radius; ++x)
+        for (int i = 0; i < cap.size(); ++i)
+        {
+            cap.setPos(mutablePos, capOrigin, i);
+            // Fix Forge's inversion bug
+            if (world.getBlockState(mutablePos).canBeReplacedByLeaves(world, mutablePos))
             {
-                for (int z = -radius; z <= radius; ++z)
-                {
-                    boolean westEdge = x == -radius;
-                    boolean eastEdge = x == radius;
-                    boolean northEdge = z == -radius;
-                    boolean southEdge = z == radius;
-                    boolean eastOrWestEdge = westEdge || eastEdge;
-                    boolean northOrSouthEdge = northEdge || southEdge;
-                    if (y >= height || eastOrWestEdge != northOrSouthEdge)
-                    {
-                        mutablePos.set(pos).move(x, y, z);
-                        // Fix Forge's inversion bug
-                        if (world.getBlockState(mutablePos).canBeReplacedByLeaves(world, mutablePos))
-                        {
-                            this.setBlock(world, mutablePos, config.capProvider.getState(random, pos).setValue(HugeMushroomBlock.UP, Boolean.valueOf(y >= height - 1)).setValue(HugeMushroomBlock.WEST, Boolean.valueOf(x < -innerRadius)).setValue(HugeMushroomBlock.EAST, Boolean.valueOf(x > innerRadius)).setValue(HugeMushroomBlock.NORTH, Boolean.valueOf(z < -innerRadius)).setValue(HugeMushroomBlock.SOUTH, Boolean.valueOf(z > innerRadius)));
-                        }
-                    }
-                }
+                this.setBlock(world, mutablePos, config.capProvider.getState(random, pos).setValue(HugeMushroomBlock.UP, Boolean.valueOf(cap.hasFlag(i, VoxelStamp.UP))).setValue(HugeMushroomBlock.WEST, Boolean.valueOf(cap.hasFlag(i, VoxelStamp.WEST))).setValue(HugeMushroomBlock.EAST, Boolean.valueOf(cap.hasFlag(i, VoxelStamp.EAST))).setValue(HugeMushroomBlock.NORTH, Boolean.valueOf(cap.hasFlag(i, VoxelStamp.NORTH))).setValue(HugeMushroomBlock.SOUTH, Boolean.valueOf(cap.hasFlag(i, VoxelStamp.SOUTH))));
             }
         }
     }
@@ -21,6 +21,9 @@ public class BigPumpkinFeature extends Feature<NoFeatureConfig>
     protected IBlockPosQuery placeOn = (world, pos) -> world.getBlockState(pos).getBlock() == Blocks.GRASS_BLOCK;
     protected IBlockPosQuery replace = (world, pos) -> world.getBlockState(pos).canBeReplacedByLeaves(world, pos);
 
+    // Three overlapping boxes, one along each axis
+    static final VoxelStamp BODY = VoxelStamp.builder().box(1, 0, 1, 3, 4, 3).box(0, 1, 1, 4, 3, 3).box(1, 1, 0, 3, 3, 4).build();
+
     public BigPumpkinFeature(Codec<NoFeatureConfig> deserializer)
     {
         super(deserializer);
@@ -45,37 +48,11 @@ public class BigPumpkinFeature extends Feature<NoFeatureConfig>
 
         BlockPos pos = startPos.above();
 
-        for (int x = 1; x < 4; x++)
-        {
-            for (int y = 0; y < 5; y++)
-            {
-                for (int z = 1; z < 4; z++)
-                {
-                    this.setBlock(world, pos.offset(x,y,z), Blocks.PUMPKIN.defaultBlockState());
-                }
-            }
-        }
-
-        for (int x = 0; x < 5; x++)
-        {
-            for (int y = 1; y < 4; y++)
-            {
-                for (int z = 1; z < 4; z++)
-                {
-                    this.setBlock(world, pos.offset(x,y,z), Blocks.PUMPKIN.defaultBlockState());
-                }
-            }
-        }
+        BlockPos.Mutable bodyPos = new BlockPos.Mutable();
 
-        for (int x = 1; x < 4; x++)
+        for (int i = 0; i < BODY.size(); i++)
         {
-            for (int y = 1; y < 4; y++)
-            {
-                for (int z = 0; z < 5; z++)
-                {
-                    this.setBlock(world, pos.offset(x,y,z), Blocks.PUMPKIN.defaultBlockState());
-                }
-            }
+            this.setBlock(world, BODY.setPos(bodyPos, pos, i), Blocks.PUMPKIN.defaultBlockState());
         }
 
         this.setBlock(world, pos.offset(2,5,2), Blocks.OAK_LOG.defaultBlockState());
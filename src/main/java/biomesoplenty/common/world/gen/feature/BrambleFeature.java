@@ -10,6 +10,7 @@ package biomesoplenty.common.world.gen.feature;
 import biomesoplenty.api.block.BOPBlocks;
 import biomesoplenty.common.block.BrambleBlock;
 import biomesoplenty.common.util.biome.GeneratorUtil;
+import biomesoplenty.common.util.block.BlockStateQuery;
 import biomesoplenty.common.util.block.IBlockPosQuery;
 import com.mojang.serialization.Codec;
 import net.minecraft.block.BlockState;
@@ -40,7 +41,7 @@ public class BrambleFeature extends Feature<NoFeatureConfig>
         return state.canSustainPlant(world, pos, Direction.UP, (SaplingBlock)Blocks.OAK_SAPLING) || state.getBlock() == Blocks.NETHERRACK;
     };
     
-    protected IBlockPosQuery replace = (world, pos) -> world.getBlockState(pos).getMaterial() == Material.AIR;
+    protected IBlockPosQuery replace = BlockStateQuery.of((state) -> state.getMaterial() == Material.AIR);
 
 	@Override
 	public boolean place(ISeedReader world, ChunkGenerator chunkGenerator, Random rand, BlockPos startPos, NoFeatureConfig config)
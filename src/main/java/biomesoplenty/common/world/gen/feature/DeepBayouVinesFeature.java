@@ -1,6 +1,7 @@
 package biomesoplenty.common.world.gen.feature;
 
 import biomesoplenty.api.block.BOPBlocks;
+import biomesoplenty.common.util.block.BlockStateQuery;
 import biomesoplenty.common.util.block.IBlockPosQuery;
 import com.google.common.collect.Lists;
 import com.mojang.serialization.Codec;
@@ -20,8 +21,8 @@ import java.util.Random;
 
 public class DeepBayouVinesFeature extends Feature<NoFeatureConfig>
 {
-    protected IBlockPosQuery placeOn = (world, pos) -> world.getBlockState(pos).getBlock() == BOPBlocks.willow_log || world.getBlockState(pos).getBlock() == BOPBlocks.willow_leaves || world.getBlockState(pos).getBlock() == Blocks.OAK_LEAVES || world.getBlockState(pos).getBlock() == Blocks.GRASS_BLOCK || world.getBlockState(pos).getBlock() == Blocks.DIRT;
-    protected IBlockPosQuery replace = (world, pos) -> world.getBlockState(pos).isAir(world, pos);
+    protected IBlockPosQuery placeOn = BlockStateQuery.of((state) -> state.is(BOPBlocks.willow_log) || state.is(BOPBlocks.willow_leaves) || state.is(Blocks.OAK_LEAVES) || state.is(Blocks.GRASS_BLOCK) || state.is(Blocks.DIRT));
+    protected IBlockPosQuery replace = BlockStateQuery.air();
     int minHeight = 4;
     int maxHeight = 8;
 
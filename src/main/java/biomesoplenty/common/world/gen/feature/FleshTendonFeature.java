@@ -2,6 +2,7 @@ package biomesoplenty.common.world.gen.feature;
 
 import biomesoplenty.api.block.BOPBlocks;
 import biomesoplenty.common.block.NetherCrystalBlock;
+import biomesoplenty.common.util.block.BlockStateQuery;
 import biomesoplenty.common.util.block.IBlockPosQuery;
 import com.mojang.serialization.Codec;
 import net.minecraft.block.BlockState;
@@ -11,7 +12,6 @@ import net.minecraft.util.Direction;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.MathHelper;
 import net.minecraft.util.math.MutableBoundingBox;
-import net.minecraft.util.math.vector.Vector3d;
 import net.minecraft.world.ISeedReader;
 import net.minecraft.world.IWorld;
 import net.minecraft.world.gen.ChunkGenerator;
@@ -23,7 +23,7 @@ import java.util.Random;
 
 public class FleshTendonFeature extends Feature<NoFeatureConfig>
 {
-    protected IBlockPosQuery replace = (world, pos) -> world.getBlockState(pos).canBeReplacedByLeaves(world, pos) || world.getBlockState(pos).getBlock() == BOPBlocks.nether_crystal;
+    protected IBlockPosQuery replace = BlockStateQuery.replaceableByLeavesOr((state) -> state.is(BOPBlocks.nether_crystal));
 
     private static final int MIN_DISTANCE = 8;
     private static final int MAX_DISTANCE = 32;
@@ -35,13 +35,6 @@ public class FleshTendonFeature extends Feature<NoFeatureConfig>
         super(deserializer);
     }
 
-    private static BlockPos quadratic(float t, BlockPos v0, BlockPos v1, BlockPos v2)
-    {
-        float dt = 1f - t;
-        Vector3d v = new Vector3d(v0.getX(), v0.getY(), v0.getZ()).scale(dt * dt).add(new Vector3d(v1.getX(), v1.getY(), v1.getZ()).scale(2 * dt * t)).add(new Vector3d(v2.getX(), v2.getY(), v2.getZ()).scale(t * t));
-        return new BlockPos(v.x, v.y, v.z);
-    }
-
     @Override
     public boolean place(ISeedReader world, ChunkGenerator generator, Random rand, BlockPos pos, NoFeatureConfig config)
     {
@@ -70,23 +63,26 @@ public class FleshTendonFeature extends Feature<NoFeatureConfig>
 
         BlockPos midPos = endPos.offset(0, -(endPos.getY() - pos.getY()) * MID_POS_MULTIPLIER, 0);
 
-        for (float d = 0.0f; d < 1.0f; d += TENDON_STEP)
+        Voxelizer.quadratic(pos, midPos, endPos, TENDON_STEP, (curPos, samples) ->
         {
-            BlockPos curPos = quadratic(d, pos, midPos, endPos);
+            if (curPos.getY() >= 126)
+            {
+                return false;
+            }
+
+            this.setBlock(world, curPos, BOPBlocks.flesh.defaultBlockState());
 
-            if (curPos.getY() < 126)
+            // Roll for every sample within the block, so flesh balls are as common as before
+            for (int i = 0; i < samples; i++)
             {
-                this.setBlock(world, curPos, BOPBlocks.flesh.defaultBlockState());
                 if (rand.nextInt(75) == 0)
                 {
                     this.generateFleshBall(world, curPos, rand);
                 }
             }
-            else
-            {
-                break;
-            }
-        }
+
+            return true;
+        });
 
         return true;
     }
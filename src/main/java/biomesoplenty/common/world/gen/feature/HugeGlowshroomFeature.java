@@ -52,51 +52,40 @@ public class HugeGlowshroomFeature extends Feature<NoFeatureConfig>
             this.setBlock(world, pos.above(y), Blocks.MUSHROOM_STEM.defaultBlockState());
         }
 
-        for (int x = -(radius-1); x <= (radius-1); x++)
-        {
-            for (int z = -(radius-1); z <= (radius-1); z++)
-            {
-                this.setBlock(world, pos.offset(x, height, z), BOPBlocks.glowshroom_block.defaultBlockState().setValue(HugeMushroomBlock.DOWN, false));
-            }
-        }
+        VoxelStamp cap = VoxelStamps.glowshroomCap(radius);
+        BlockPos capOrigin = pos.above(height);
+        BlockPos.Mutable capPos = new BlockPos.Mutable();
 
-        for (int x = -radius; x <= radius; x++)
+        for (int i = 0; i < cap.size(); i++)
         {
-            for (int z = -radius; z <= radius; z++)
-            {
-                if ((x == -radius || x == radius) && (z == -radius || z == radius))
-                {
-                    continue;
-                }
-                else
-                {
-                    if (x == radius)
-                    {
-                        this.setBlock(world, pos.offset(x, height - 1, z), BOPBlocks.glowshroom_block.defaultBlockState().setValue(HugeMushroomBlock.WEST, false));
-                        this.setBlock(world, pos.offset(x, height - 2, z), BOPBlocks.glowshroom_block.defaultBlockState().setValue(HugeMushroomBlock.WEST, false));
-                    }
-                    if (x == -radius)
-                    {
-                        this.setBlock(world, pos.offset(x, height - 1, z), BOPBlocks.glowshroom_block.defaultBlockState().setValue(HugeMushroomBlock.EAST, false));
-                        this.setBlock(world, pos.offset(x, height - 2, z), BOPBlocks.glowshroom_block.defaultBlockState().setValue(HugeMushroomBlock.EAST, false));
-                    }
-                    if (z == radius)
-                    {
-                        this.setBlock(world, pos.offset(x, height - 1, z), BOPBlocks.glowshroom_block.defaultBlockState().setValue(HugeMushroomBlock.NORTH, false));
-                        this.setBlock(world, pos.offset(x, height - 2, z), BOPBlocks.glowshroom_block.defaultBlockState().setValue(HugeMushroomBlock.NORTH, false));
-                    }
-                    if (z == -radius)
-                    {
-                        this.setBlock(world, pos.offset(x, height - 1, z), BOPBlocks.glowshroom_block.defaultBlockState().setValue(HugeMushroomBlock.SOUTH, false));
-                        this.setBlock(world, pos.offset(x, height - 2, z), BOPBlocks.glowshroom_block.defaultBlockState().setValue(HugeMushroomBlock.SOUTH, false));
-                    }
-                }
-            }
+            this.setBlock(world, cap.setPos(capPos, capOrigin, i), getCapState(cap.getFlags(i)));
         }
 
         return true;
     }
 
+    // Each cell of the cap has a single side hidden
+    private static BlockState getCapState(int flags)
+    {
+        BlockState state = BOPBlocks.glowshroom_block.defaultBlockState();
+
+        switch (flags)
+        {
+            case VoxelStamp.DOWN:
+                return state.setValue(HugeMushroomBlock.DOWN, false);
+            case VoxelStamp.WEST:
+                return state.setValue(HugeMushroomBlock.WEST, false);
+            case VoxelStamp.EAST:
+                return state.setValue(HugeMushroomBlock.EAST, false);
+            case VoxelStamp.NORTH:
+                return state.setValue(HugeMushroomBlock.NORTH, false);
+            case VoxelStamp.SOUTH:
+                return state.setValue(HugeMushroomBlock.SOUTH, false);
+            default:
+                return state;
+        }
+    }
+
     public boolean setBlock(IWorld world, BlockPos pos, BlockState state)
     {
         if (this.replace.matches(world, pos))
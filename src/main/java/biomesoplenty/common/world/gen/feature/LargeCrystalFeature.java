@@ -10,7 +10,6 @@ import net.minecraft.block.LeavesBlock;
 import net.minecraft.state.properties.AttachFace;
 import net.minecraft.util.Direction;
 import net.minecraft.util.math.BlockPos;
-import net.minecraft.util.math.MathHelper;
 import net.minecraft.world.ISeedReader;
 import net.minecraft.world.IWorld;
 import net.minecraft.world.gen.ChunkGenerator;
@@ -52,20 +51,20 @@ public class LargeCrystalFeature extends Feature<NoFeatureConfig>
             {
                 int randRadius = this.minRadius + rand.nextInt(this.maxRadius - this.minRadius);
                 int height = this.minHeight + rand.nextInt(this.maxHeight - this.minHeight);
+                BlockPos.Mutable layerPos = new BlockPos.Mutable();
 
                 for (int y = 0; y <= height; y++)
                 {
                     int radius = (randRadius * (height - y) / height) + 1;
-                    int radiusStart = MathHelper.ceil(0.25D - radius / 2.0D);
-                    int radiusEnd = MathHelper.floor(0.25D + radius / 2.0D);
+                    BlockPos centre = pos.offset(0, -y, 0);
+                    VoxelStamp layer = VoxelStamps.square(radius);
 
-                    for (int x = radiusStart; x <= radiusEnd; x++) {
-                        for (int z = radiusStart; z <= radiusEnd; z++) {
-                            this.setBlock(world, pos.offset(x, -y, z), BOPBlocks.nether_crystal_block.defaultBlockState());
-                        }
+                    for (int i = 0; i < layer.size(); i++)
+                    {
+                        this.setBlock(world, layer.setPos(layerPos, centre, i), BOPBlocks.nether_crystal_block.defaultBlockState());
                     }
 
-                    this.generateCrystals(world, pos.offset(0, -y, 0), rand);
+                    this.generateCrystals(world, centre, rand);
                 }
 
                 return true;
@@ -1,6 +1,7 @@
 package biomesoplenty.common.world.gen.feature;
 
 import biomesoplenty.api.block.BOPBlocks;
+import biomesoplenty.common.util.block.BlockStateQuery;
 import biomesoplenty.common.util.block.IBlockPosQuery;
 import com.google.common.collect.Lists;
 import com.mojang.serialization.Codec;
@@ -21,8 +22,8 @@ import java.util.Random;
 
 public class NetherVinesFeature extends Feature<NoFeatureConfig>
 {
-    protected IBlockPosQuery placeOn = (world, pos) -> world.getBlockState(pos).getBlock() == Blocks.NETHERRACK;
-    protected IBlockPosQuery replace = (world, pos) -> world.getBlockState(pos).isAir(world, pos);
+    protected IBlockPosQuery placeOn = BlockStateQuery.of((state) -> state.is(Blocks.NETHERRACK));
+    protected IBlockPosQuery replace = BlockStateQuery.air();
     int minHeight = 8;
     int maxHeight = 20;
 
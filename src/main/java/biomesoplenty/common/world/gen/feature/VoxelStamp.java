@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright 2014-2019, the Biomes O' Plenty Team
+ *
+ * This work is licensed under a Creative Commons Attribution-NonCommercial-NoDerivatives 4.0 International Public License.
+ *
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/4.0/.
+ ******************************************************************************/
+package biomesoplenty.common.world.gen.feature;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import net.minecraft.util.math.BlockPos;
+
+/***
+ * An immutable shape, stored as offsets from its origin in the order its cells should be placed. Each cell is packed
+ * into a single int, with a byte for each offset and a byte of flags which features can use to pick the state.
+ */
+public final class VoxelStamp
+{
+    // Flags marking the faces of mushroom caps
+    public static final int UP = 1;
+    public static final int DOWN = 2;
+    public static final int NORTH = 4;
+    public static final int SOUTH = 8;
+    public static final int WEST = 16;
+    public static final int EAST = 32;
+
+    private final int[] cells;
+
+    private VoxelStamp(int[] cells)
+    {
+        this.cells = cells;
+    }
+
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    public int size()
+    {
+        return this.cells.length;
+    }
+
+    public int getX(int index)
+    {
+        return (byte)this.cells[index];
+    }
+
+    public int getY(int index)
+    {
+        return (byte)(this.cells[index] >> 8);
+    }
+
+    public int getZ(int index)
+    {
+        return (byte)(this.cells[index] >> 16);
+    }
+
+    public int getFlags(int index)
+    {
+        return this.cells[index] >>> 24;
+    }
+
+    public boolean hasFlag(int index, int flag)
+    {
+        return (this.getFlags(index) & flag) != 0;
+    }
+
+    /**
+     * Moves pos to the cell at the given index, relative to the origin.
+     */
+    public BlockPos.Mutable setPos(BlockPos.Mutable pos, BlockPos origin, int index)
+    {
+        return pos.set(origin.getX() + this.getX(index), origin.getY() + this.getY(index), origin.getZ() + this.getZ(index));
+    }
+
+    public static class Builder
+    {
+        private final IntArrayList cells = new IntArrayList();
+
+        private Builder() {}
+
+        public Builder add(int x, int y, int z)
+        {
+            return this.add(x, y, z, 0);
+        }
+
+        public Builder add(int x, int y, int z, int flags)
+        {
+            if (x != (byte)x || y != (byte)y || z != (byte)z || flags != (flags & 0xFF))
+                throw new IllegalArgumentException("Cell " + x + ", " + y + ", " + z + " with flags " + flags + " is out of range");
+
+            this.cells.add((x & 0xFF) | (y & 0xFF) << 8 | (z & 0xFF) << 16 | flags << 24);
+            return this;
+        }
+
+        /**
+         * Adds every cell of a box, inclusive of both corners, iterating over x, then y, then z.
+         */
+        public Builder box(int minX, int minY, int minZ, int maxX, int maxY, int maxZ)
+        {
+            for (int x = minX; x <= maxX; x++)
+            {
+                for (int y = minY; y <= maxY; y++)
+                {
+                    for (int z = minZ; z <= maxZ; z++)
+                    {
+                        this.add(x, y, z);
+                    }
+                }
+            }
+
+            return this;
+        }
+
+        public VoxelStamp build()
+        {
+            return new VoxelStamp(this.cells.toIntArray());
+        }
+    }
+}
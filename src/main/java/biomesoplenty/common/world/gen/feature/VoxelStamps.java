@@ -0,0 +1,188 @@
+/*******************************************************************************
+ * Copyright 2014-2019, the Biomes O' Plenty Team
+ *
+ * This work is licensed under a Creative Commons Attribution-NonCommercial-NoDerivatives 4.0 International Public License.
+ *
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/4.0/.
+ ******************************************************************************/
+package biomesoplenty.common.world.gen.feature;
+
+import net.minecraft.util.math.MathHelper;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/***
+ * Shapes shared between features, built the first time each size is used. Every stamp visits its cells in the same
+ * order as the loops it replaces, so features draw from their random in the same order as before.
+ */
+public class VoxelStamps
+{
+    private static final Map<Long, VoxelStamp> DISCS = new ConcurrentHashMap<>();
+    private static final Map<Integer, VoxelStamp> SQUARES = new ConcurrentHashMap<>();
+    private static final Map<Integer, VoxelStamp> GLOWSHROOM_CAPS = new ConcurrentHashMap<>();
+    private static final Map<Integer, VoxelStamp> RED_MUSHROOM_CAPS = new ConcurrentHashMap<>();
+    private static final Map<Integer, VoxelStamp> BROWN_MUSHROOM_CAPS = new ConcurrentHashMap<>();
+
+    /**
+     * A horizontal disc of the cells whose far corners lie within the radius, limited to the given distance from the
+     * centre on each axis. Used by the foliage of big trees.
+     */
+    public static VoxelStamp disc(float radius, int limit)
+    {
+        return DISCS.computeIfAbsent((long)Float.floatToIntBits(radius) << 32 | (limit & 0xFFFFFFFFL), (key) ->
+        {
+            VoxelStamp.Builder builder = VoxelStamp.builder();
+
+            for (int dx = -limit; dx <= limit; dx++)
+            {
+                for (int dz = -limit; dz <= limit; dz++)
+                {
+                    if (Math.pow((double)Math.abs(dx) + 0.5D, 2.0D) + Math.pow((double)Math.abs(dz) + 0.5D, 2.0D) <= (double)(radius * radius))
+                    {
+                        builder.add(dx, 0, dz);
+                    }
+                }
+            }
+
+            return builder.build();
+        });
+    }
+
+    /**
+     * A horizontal square of the given width, centred on the origin and biased towards positive coordinates when
+     * the width is even. Used by the layers of large crystals.
+     */
+    public static VoxelStamp square(int width)
+    {
+        return SQUARES.computeIfAbsent(width, (key) ->
+        {
+            int start = MathHelper.ceil(0.25D - width / 2.0D);
+            int end = MathHelper.floor(0.25D + width / 2.0D);
+            VoxelStamp.Builder builder = VoxelStamp.builder();
+
+            for (int x = start; x <= end; x++)
+            {
+                for (int z = start; z <= end; z++)
+                {
+                    builder.add(x, 0, z);
+                }
+            }
+
+            return builder.build();
+        });
+    }
+
+    /**
+     * The cap of a huge glowshroom, with its origin at the centre of the top. The top is flagged DOWN, and each cell
+     * of the two layer rim is flagged with the side facing the stem.
+     */
+    public static VoxelStamp glowshroomCap(int radius)
+    {
+        return GLOWSHROOM_CAPS.computeIfAbsent(radius, (key) ->
+        {
+            VoxelStamp.Builder builder = VoxelStamp.builder();
+
+            for (int x = -(radius - 1); x <= radius - 1; x++)
+            {
+                for (int z = -(radius - 1); z <= radius - 1; z++)
+                {
+                    builder.add(x, 0, z, VoxelStamp.DOWN);
+                }
+            }
+
+            for (int x = -radius; x <= radius; x++)
+            {
+                for (int z = -radius; z <= radius; z++)
+                {
+                    // Skip the corners
+                    if ((x == -radius || x == radius) && (z == -radius || z == radius))
+                        continue;
+
+                    if (x == radius) builder.add(x, -1, z, VoxelStamp.WEST).add(x, -2, z, VoxelStamp.WEST);
+                    if (x == -radius) builder.add(x, -1, z, VoxelStamp.EAST).add(x, -2, z, VoxelStamp.EAST);
+                    if (z == radius) builder.add(x, -1, z, VoxelStamp.NORTH).add(x, -2, z, VoxelStamp.NORTH);
+                    if (z == -radius) builder.add(x, -1, z, VoxelStamp.SOUTH).add(x, -2, z, VoxelStamp.SOUTH);
+                }
+            }
+
+            return builder.build();
+        });
+    }
+
+    /**
+     * The cap of a big red mushroom, with its origin at the centre of the top. Each cell is flagged with the faces
+     * which show the cap texture.
+     */
+    public static VoxelStamp redMushroomCap(int foliageRadius)
+    {
+        return RED_MUSHROOM_CAPS.computeIfAbsent(foliageRadius, (key) ->
+        {
+            VoxelStamp.Builder builder = VoxelStamp.builder();
+            int innerRadius = foliageRadius - 2;
+
+            for (int y = -3; y <= 0; ++y)
+            {
+                int radius = y < 0 ? foliageRadius : foliageRadius - 1;
+
+                for (int x = -radius; x <= radius; ++x)
+                {
+                    for (int z = -radius; z <= radius; ++z)
+                    {
+                        boolean eastOrWestEdge = x == -radius || x == radius;
+                        boolean northOrSouthEdge = z == -radius || z == radius;
+
+                        if (y >= 0 || eastOrWestEdge != northOrSouthEdge)
+                        {
+                            int flags = 0;
+                            if (y >= -1) flags |= VoxelStamp.UP;
+                            if (x < -innerRadius) flags |= VoxelStamp.WEST;
+                            if (x > innerRadius) flags |= VoxelStamp.EAST;
+                            if (z < -innerRadius) flags |= VoxelStamp.NORTH;
+                            if (z > innerRadius) flags |= VoxelStamp.SOUTH;
+                            builder.add(x, y, z, flags);
+                        }
+                    }
+                }
+            }
+
+            return builder.build();
+        });
+    }
+
+    /**
+     * The flat cap of a big brown mushroom. Each cell is flagged with the faces which show the cap texture.
+     */
+    public static VoxelStamp brownMushroomCap(int radius)
+    {
+        return BROWN_MUSHROOM_CAPS.computeIfAbsent(radius, (key) ->
+        {
+            VoxelStamp.Builder builder = VoxelStamp.builder();
+
+            for (int x = -radius; x <= radius; ++x)
+            {
+                for (int z = -radius; z <= radius; ++z)
+                {
+                    boolean westEdge = x == -radius;
+                    boolean eastEdge = x == radius;
+                    boolean northEdge = z == -radius;
+                    boolean southEdge = z == radius;
+                    boolean eastOrWestEdge = westEdge || eastEdge;
+                    boolean northOrSouthEdge = northEdge || southEdge;
+
+                    if (!eastOrWestEdge || !northOrSouthEdge)
+                    {
+                        int flags = 0;
+                        if (westEdge || northOrSouthEdge && x == 1 - radius) flags |= VoxelStamp.WEST;
+                        if (eastEdge || northOrSouthEdge && x == radius - 1) flags |= VoxelStamp.EAST;
+                        if (northEdge || eastOrWestEdge && z == 1 - radius) flags |= VoxelStamp.NORTH;
+                        if (southEdge || eastOrWestEdge && z == radius - 1) flags |= VoxelStamp.SOUTH;
+                        builder.add(x, 0, z, flags);
+                    }
+                }
+            }
+
+            return builder.build();
+        });
+    }
+}
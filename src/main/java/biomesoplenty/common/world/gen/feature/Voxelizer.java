@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright 2014-2019, the Biomes O' Plenty Team
+ *
+ * This work is licensed under a Creative Commons Attribution-NonCommercial-NoDerivatives 4.0 International Public License.
+ *
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/4.0/.
+ ******************************************************************************/
+package biomesoplenty.common.world.gen.feature;
+
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.MathHelper;
+
+/***
+ * Steps through the blocks along lines and curves, such as branches and tendons. Positions are reported through a
+ * single mutable cursor, which visitors must copy if they need to keep it.
+ */
+public class Voxelizer
+{
+    public interface LineVisitor
+    {
+        /**
+         * Returns false to stop stepping along the line.
+         */
+        boolean visit(int step, BlockPos.Mutable pos);
+    }
+
+    public interface CurveVisitor
+    {
+        /**
+         * Visits a block the curve passes through, along with the number of samples of the curve which fell within it.
+         * Returns false to stop stepping along the curve.
+         */
+        boolean visit(BlockPos.Mutable pos, int samples);
+    }
+
+    /**
+     * Steps from start to end inclusive, taking one step per block along the longest axis. Returns the step at which
+     * the visitor stopped, or -1 if it reached the end.
+     */
+    public static int line(BlockPos start, BlockPos end, LineVisitor visitor)
+    {
+        int deltaX = end.getX() - start.getX();
+        int deltaY = end.getY() - start.getY();
+        int deltaZ = end.getZ() - start.getZ();
+        int steps = Math.max(Math.abs(deltaX), Math.max(Math.abs(deltaY), Math.abs(deltaZ)));
+        BlockPos.Mutable pos = new BlockPos.Mutable();
+
+        for (int step = 0; step <= steps; ++step)
+        {
+            pos.set(start.getX() + getLineOffset(step, deltaX, steps), start.getY() + getLineOffset(step, deltaY, steps), start.getZ() + getLineOffset(step, deltaZ, steps));
+
+            if (!visitor.visit(step, pos))
+                return step;
+        }
+
+        return -1;
+    }
+
+    // Equivalent to floor(0.5 + step * delta / steps), as calculated by the float stepping lines previously used
+    private static int getLineOffset(int step, int delta, int steps)
+    {
+        if (steps == 0)
+            return 0;
+
+        int numerator = 2 * step * delta + steps;
+        int denominator = 2 * steps;
+
+        // Points exactly halfway between two blocks could be rounded either way by the float arithmetic, so those
+        // are left to it to keep lines where they were
+        if (Math.floorMod(numerator, denominator) == 0)
+            return MathHelper.floor((double)(0.5F + (float)step * ((float)delta / (float)steps)));
+
+        return Math.floorDiv(numerator, denominator);
+    }
+
+    /**
+     * Samples a quadratic Bezier curve at intervals of step, from t = 0 up to but excluding t = 1. Consecutive samples
+     * which fall within the same block are visited together, so each block is only visited once.
+     */
+    public static void quadratic(BlockPos p0, BlockPos p1, BlockPos p2, float step, CurveVisitor visitor)
+    {
+        BlockPos.Mutable pos = new BlockPos.Mutable();
+        int lastX = 0;
+        int lastY = 0;
+        int lastZ = 0;
+        int samples = 0;
+
+        for (float t = 0.0F; t < 1.0F; t += step)
+        {
+            float dt = 1.0F - t;
+            float a = dt * dt;
+            float b = 2 * dt * t;
+            float c = t * t;
+
+            // Matches the order of operations of the Vector3d arithmetic used previously
+            int x = MathHelper.floor((double)p0.getX() * (double)a + (double)p1.getX() * (double)b + (double)p2.getX() * (double)c);
+            int y = MathHelper.floor((double)p0.getY() * (double)a + (double)p1.getY() * (double)b + (double)p2.getY() * (double)c);
+            int z = MathHelper.floor((double)p0.getZ() * (double)a + (double)p1.getZ() * (double)b + (double)p2.getZ() * (double)c);
+
+            if (samples > 0 && x == lastX && y == lastY && z == lastZ)
+            {
+                samples++;
+                continue;
+            }
+
+            if (samples > 0 && !visitor.visit(pos.set(lastX, lastY, lastZ), samples))
+                return;
+
+            lastX = x;
+            lastY = y;
+            lastZ = z;
+            samples = 1;
+        }
+
+        if (samples > 0)
+            visitor.visit(pos.set(lastX, lastY, lastZ), samples);
+    }
+}
@@ -125,7 +125,7 @@ public class BasicTreeFeature extends TreeFeatureBase
                     {
                         if (y >= 0 && y < 256)
                         {
-                            if (!this.replace.matches(world, new BlockPos(x, y, z)))
+                            if (!this.canReplace(world, new BlockPos(x, y, z)))
                             {
                                 hasSpace = false;
                             }
@@ -151,6 +151,7 @@ public class BasicTreeFeature extends TreeFeatureBase
                 if (this.placeOn.matches(world, soilPos) && isSoil && pos.getY() < 256 - height - 1)
                 {
                     soil.onPlantGrow(world.getBlockState(soilPos), world, soilPos, pos);
+                    invalidateOccupancy(soilPos);
                     int leavesLayers = (this.leafLayers - 1);
 
                     //Generates leaves at the top of the tree, going one block above the top log (<= rather than <)
@@ -175,7 +176,7 @@ public class BasicTreeFeature extends TreeFeatureBase
                                 if (Math.abs(xDiff) != leavesRadius || Math.abs(zDiff) != leavesRadius || random.nextInt(2) != 0 && currentLayer != 0)
                                 {
                                     BlockPos leavesPos = new BlockPos(x, y, z);
-                                    if (this.replace.matches(world, leavesPos))
+                                    if (this.canReplace(world, leavesPos))
                                     {
                                         if (this.altLeaves != Blocks.AIR.defaultBlockState())
                                         {
@@ -290,7 +291,7 @@ public class BasicTreeFeature extends TreeFeatureBase
         for (int layer = 0; layer < height; ++layer)
         {
             BlockPos blockpos2 = start.above(layer);
-            if (this.replace.matches(world, blockpos2))
+            if (this.canReplace(world, blockpos2))
             {
                 this.placeLog(world, start.above(layer), changedBlocks, boundingBox);
             }
@@ -8,6 +8,9 @@
 package biomesoplenty.common.world.gen.feature.tree;
 
 import biomesoplenty.common.util.block.IBlockPosQuery;
+import biomesoplenty.common.world.gen.feature.VoxelStamp;
+import biomesoplenty.common.world.gen.feature.VoxelStamps;
+import biomesoplenty.common.world.gen.feature.Voxelizer;
 import com.google.common.collect.Lists;
 import net.minecraft.block.BlockState;
 import net.minecraft.block.Blocks;
@@ -82,36 +85,33 @@ public class BigTreeFeature extends TreeFeatureBase
     private void crossSection(IWorld world, BlockPos pos, float radius, Random random, MutableBoundingBox boundingBox, Set<BlockPos> changedBlocks)
     {
         final int r = (int)((double)radius + trunkHeightScale);
+        VoxelStamp disc = VoxelStamps.disc(radius, r);
+        BlockPos.Mutable blockpos = new BlockPos.Mutable();
 
-        for (int dx = -r; dx <= r; dx++)
+        for (int i = 0; i < disc.size(); i++)
         {
-            for (int dz = -r; dz <= r; dz++)
+            disc.setPos(blockpos, pos, i);
+
+            if (this.canReplace(world, blockpos))
             {
-                if (Math.pow((double)Math.abs(dx) + 0.5D, 2.0D) + Math.pow((double)Math.abs(dz) + 0.5D, 2.0D) <= (double)(radius * radius))
+                // Mojang sets leaves via the method used for logs. Probably intentional?
+                if (this.altLeaves != Blocks.AIR.defaultBlockState())
                 {
-                    BlockPos blockpos = pos.offset(dx, 0, dz);
-                    if (this.replace.matches(world, blockpos))
+                    int rand = random.nextInt(4);
+
+                    if (rand == 0)
                     {
-                        // Mojang sets leaves via the method used for logs. Probably intentional?
-                        if (this.altLeaves != Blocks.AIR.defaultBlockState())
-                        {
-                            int rand = random.nextInt(4);
-
-                            if (rand == 0)
-                            {
-                                this.placeBlock(world, blockpos, this.altLeaves, changedBlocks, boundingBox);
-                            }
-                            else
-                            {
-                                this.placeBlock(world, blockpos, this.leaves, changedBlocks, boundingBox);
-                            }
-                        }
-                        else
-                        {
-                            this.placeBlock(world, blockpos, this.leaves, changedBlocks, boundingBox);
-                        }
+                        this.placeBlock(world, blockpos, this.altLeaves, changedBlocks, boundingBox);
+                    }
+                    else
+                    {
+                        this.placeBlock(world, blockpos, this.leaves, changedBlocks, boundingBox);
                     }
                 }
+                else
+                {
+                    this.placeBlock(world, blockpos, this.leaves, changedBlocks, boundingBox);
+                }
             }
         }
 
@@ -202,46 +202,20 @@ public class BigTreeFeature extends TreeFeatureBase
         if (!set && Objects.equals(startPos, endPos)) {
             return -1;
         } else {
-            //The distance between the two points, may be negative if the second pos is smaller
-            BlockPos delta = endPos.offset(-startPos.getX(), -startPos.getY(), -startPos.getZ());
-
-            int steps = this.getGreatestDistance(delta);
-
-            //How much should be incremented with each iteration relative
-            //to the greatest distance which will have a value of 1.0F.
-            float dx = (float)delta.getX() / (float)steps;
-            float dy = (float)delta.getY() / (float)steps;
-            float dz = (float)delta.getZ() / (float)steps;
-
             //Iterates over all values between the start pos and end pos
-            for (int j = 0; j <= steps; ++j)
+            return Voxelizer.line(startPos, endPos, (j, deltaPos) ->
             {
-                BlockPos deltaPos = startPos.offset((double)(0.5F + (float)j * dx), (double)(0.5F + (float)j * dy), (double)(0.5F + (float)j * dz));
                 if (set)
                 {
                     this.placeLog(world, deltaPos, this.getLogAxis(startPos, deltaPos), changedBlocks, boundingBox);
+                    return true;
                 }
-                else if (!this.isFree(world, deltaPos))
-                {
-                    return j;
-                }
-            }
 
-            return -1;
+                return this.isFree(world, deltaPos);
+            });
         }
     }
 
-    /**
-     * Returns the absolute greatest distance in the BlockPos object.
-     */
-    private int getGreatestDistance(BlockPos posIn)
-    {
-        int i = MathHelper.abs(posIn.getX());
-        int j = MathHelper.abs(posIn.getY());
-        int k = MathHelper.abs(posIn.getZ());
-        return k > i && k > j ? k : (j > i ? j : i);
-    }
-
     private Direction.Axis getLogAxis(BlockPos startPos, BlockPos endPos)
     {
         Direction.Axis axis = Direction.Axis.Y;
@@ -9,6 +9,7 @@ package biomesoplenty.common.world.gen.feature.tree;
 
 import biomesoplenty.api.block.BOPBlocks;
 import biomesoplenty.common.util.biome.GeneratorUtil;
+import biomesoplenty.common.util.block.BlockStateQuery;
 import biomesoplenty.common.util.block.IBlockPosQuery;
 import net.minecraft.block.*;
 import net.minecraft.block.material.Material;
@@ -35,7 +36,7 @@ public class CypressTreeFeature extends TreeFeatureBase
             this.minHeight = 6;
             this.maxHeight = 15;
             this.placeOn = (world, pos) -> world.getBlockState(pos).canSustainPlant(world, pos, Direction.UP, (SaplingBlock)Blocks.OAK_SAPLING);
-            this.replace = (world, pos) -> world.getBlockState(pos).canBeReplacedByLeaves(world, pos) || world.getBlockState(pos).getMaterial() == Material.WATER || world.getBlockState(pos).getBlock().is(BlockTags.SAPLINGS) || world.getBlockState(pos).getBlock() == Blocks.VINE || world.getBlockState(pos).getBlock() == BOPBlocks.willow_vine || world.getBlockState(pos).getBlock() == BOPBlocks.spanish_moss_plant || world.getBlockState(pos).getBlock() == BOPBlocks.spanish_moss || world.getBlockState(pos).getBlock() instanceof BushBlock;
+            this.replace = BlockStateQuery.replaceableByLeavesOr((state) -> state.getMaterial() == Material.WATER || state.is(BlockTags.SAPLINGS) || state.is(Blocks.VINE) || state.is(BOPBlocks.willow_vine) || state.is(BOPBlocks.spanish_moss_plant) || state.is(BOPBlocks.spanish_moss) || state.getBlock() instanceof BushBlock);
             this.log = BOPBlocks.willow_log.defaultBlockState();
             this.leaves = BOPBlocks.willow_leaves.defaultBlockState();
             this.vine = BOPBlocks.willow_vine.defaultBlockState();
@@ -60,6 +61,8 @@ public class CypressTreeFeature extends TreeFeatureBase
 
     public boolean checkSpace(IWorld world, BlockPos pos, int baseHeight, int height)
     {
+        BlockPos.Mutable pos1 = new BlockPos.Mutable();
+
         for (int y = 0; y <= height; y++)
         {
             int radius = this.trunkWidth - 1;
@@ -68,9 +71,9 @@ public class CypressTreeFeature extends TreeFeatureBase
             {
                 for (int z = -radius; z <= radius; z++)
                 {
-                    BlockPos pos1 = pos.offset(x, y, z);
+                    pos1.setWithOffset(pos, x, y, z);
                     // note, there may be a sapling on the first layer - make sure this.replace matches it!
-                    if (pos1.getY() >= 255 || !this.replace.matches(world, pos1))
+                    if (pos1.getY() >= 255 || !this.canReplace(world, pos1))
                     {
                         return false;
                     }
@@ -330,10 +333,12 @@ public class CypressTreeFeature extends TreeFeatureBase
                 if (i == p_236427_3_ || !p_236427_0_.isEmptyBlock(p_236427_2_.below()))
                 {
                     p_236427_0_.setBlock(p_236427_2_, BOPBlocks.spanish_moss.defaultBlockState().setValue(AbstractTopPlantBlock.AGE, Integer.valueOf(MathHelper.nextInt(p_236427_1_, p_236427_4_, p_236427_5_))), 2);
+                    invalidateOccupancy(p_236427_2_);
                     break;
                 }
 
                 p_236427_0_.setBlock(p_236427_2_, BOPBlocks.spanish_moss_plant.defaultBlockState(), 2);
+                invalidateOccupancy(p_236427_2_);
             }
 
             p_236427_2_.move(Direction.DOWN);
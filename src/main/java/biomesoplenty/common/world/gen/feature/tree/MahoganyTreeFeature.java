@@ -84,7 +84,7 @@ public class MahoganyTreeFeature extends TreeFeatureBase
                     {
                         if (y >= 0 && y < 256)
                         {
-                            if (!this.replace.matches(world, new BlockPos(x, y, z)))
+                            if (!this.canReplace(world, new BlockPos(x, y, z)))
                             {
                                 hasSpace = false;
                             }
@@ -110,6 +110,7 @@ public class MahoganyTreeFeature extends TreeFeatureBase
                 if (this.placeOn.matches(world, soilPos) && isSoil && pos.getY() < 256 - height - 1)
                 {
                     soil.onPlantGrow(world.getBlockState(soilPos), world, soilPos, pos);
+                    invalidateOccupancy(soilPos);
 
                     this.generateTrunk(changedLogs, changedLeaves, boundingBox, world, pos, height);
 
@@ -135,7 +136,7 @@ public class MahoganyTreeFeature extends TreeFeatureBase
         {
             BlockPos middlePos = start.above(layer);
 
-            if (this.replace.matches(world, middlePos))
+            if (this.canReplace(world, middlePos))
             {
                 this.placeLog(world, middlePos, changedLogs, boundingBox);
             }
@@ -157,7 +158,7 @@ public class MahoganyTreeFeature extends TreeFeatureBase
 
         for (int i = 0; i <= length - 1; i++)
         {
-            if (replace.matches(world, pos.relative(direction, i+1)))
+            if (this.canReplace(world, pos.relative(direction, i+1)))
             {
                 this.placeLog(world, pos.relative(direction, i+1), direction.getAxis(), changedLogs, boundingBox);
             }
@@ -166,7 +167,7 @@ public class MahoganyTreeFeature extends TreeFeatureBase
         int height = 1 + world.getRandom().nextInt(2);
         for (int i = 0; i <= height; i++)
         {
-            if (replace.matches(world, pos.relative(direction, length+1).above(i+1)))
+            if (this.canReplace(world, pos.relative(direction, length+1).above(i+1)))
             {
                 this.placeLog(world, pos.relative(direction, length+1).above(i+1), Direction.Axis.Y, changedLogs, boundingBox);
             }
@@ -117,15 +117,17 @@ public class PalmTreeFeature extends TreeFeatureBase
     
     public boolean checkSpace(IWorld world, BlockPos pos, int height, int radius)
     {
+        BlockPos.Mutable pos1 = new BlockPos.Mutable();
+
         for (int y = 0; y <= height; y++)
         {
             for (int x = -radius; x <= radius; x++)
             {
                 for (int z = -radius; z <= radius; z++)
                 {
-                    BlockPos pos1 = pos.offset(x, y, z);
+                    pos1.setWithOffset(pos, x, y, z);
                     // note, there may be a sapling on the first layer - make sure this.replace matches it!
-                    if (pos1.getY() >= 255 || !this.replace.matches(world, pos1))
+                    if (pos1.getY() >= 255 || !this.canReplace(world, pos1))
                     {
                         return false;
                     }
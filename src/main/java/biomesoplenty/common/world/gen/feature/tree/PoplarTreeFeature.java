@@ -109,6 +109,8 @@ public class PoplarTreeFeature extends TreeFeatureBase
     
     public boolean checkSpace(IWorld world, BlockPos pos, int baseHeight, int height)
     {
+        BlockPos.Mutable pos1 = new BlockPos.Mutable();
+
         for (int y = 0; y <= height; y++)
         {
             // require 3x3 for the leaves, 1x1 for the trunk
@@ -117,9 +119,9 @@ public class PoplarTreeFeature extends TreeFeatureBase
             {
                 for (int z = -radius; z <= radius; z++)
                 {
-                    BlockPos pos1 = pos.offset(x, y, z);
+                    pos1.setWithOffset(pos, x, y, z);
                     // note, there may be a sapling on the first layer - make sure this.replace matches it!
-                    if (pos1.getY() >= 255 || !this.replace.matches(world, pos1))
+                    if (pos1.getY() >= 255 || !this.canReplace(world, pos1))
                     {
                         return false;
                     }
@@ -57,6 +57,8 @@ public class TaigaTreeFeature extends TreeFeatureBase
 
     public boolean checkSpace(IWorld world, BlockPos pos, int baseHeight, int height)
     {
+        BlockPos.Mutable pos1 = new BlockPos.Mutable();
+
         for (int y = 0; y <= height; y++)
         {
             int trunkWidth = (this.trunkWidth * (height - y) / height) + 1;
@@ -71,9 +73,9 @@ public class TaigaTreeFeature extends TreeFeatureBase
             {
                 for (int z = start; z <= end; z++)
                 {
-                    BlockPos pos1 = pos.offset(x, y, z);
+                    pos1.setWithOffset(pos, x, y, z);
                     // note, there may be a sapling on the first layer - make sure this.replace matches it!
-                    if (pos1.getY() >= 255 || !this.replace.matches(world, pos1))
+                    if (pos1.getY() >= 255 || !this.canReplace(world, pos1))
                     {
                         return false;
                     }
@@ -8,8 +8,10 @@
 package biomesoplenty.common.world.gen.feature.tree;
 
 import biomesoplenty.api.block.BOPBlocks;
+import biomesoplenty.common.util.block.BlockStateQuery;
 import biomesoplenty.common.util.block.BlockUtil;
 import biomesoplenty.common.util.block.IBlockPosQuery;
+import biomesoplenty.common.util.block.IBlockStateQuery;
 import net.minecraft.block.*;
 import net.minecraft.state.Property;
 import net.minecraft.tags.BlockTags;
@@ -43,7 +45,7 @@ public abstract class TreeFeatureBase extends TreeFeature
         public BuilderBase()
         {
             this.placeOn = (world, pos) -> world.getBlockState(pos).canSustainPlant(world, pos, Direction.UP, (SaplingBlock)Blocks.OAK_SAPLING);
-            this.replace = (world, pos) -> world.getBlockState(pos).canBeReplacedByLeaves(world, pos) || world.getBlockState(pos).getBlock().is(BlockTags.SAPLINGS) || world.getBlockState(pos).getBlock() == Blocks.VINE || world.getBlockState(pos).getBlock() == BOPBlocks.willow_vine || world.getBlockState(pos).getBlock() == BOPBlocks.dead_branch || world.getBlockState(pos).getBlock() instanceof BushBlock;
+            this.replace = BlockStateQuery.replaceableByLeavesOr((state) -> state.is(BlockTags.SAPLINGS) || state.is(Blocks.VINE) || state.is(BOPBlocks.willow_vine) || state.is(BOPBlocks.dead_branch) || state.getBlock() instanceof BushBlock);
             this.log = Blocks.OAK_LOG.defaultBlockState();
             this.leaves = Blocks.OAK_LEAVES.defaultBlockState();
             this.vine = Blocks.AIR.defaultBlockState();
@@ -85,7 +87,7 @@ public abstract class TreeFeatureBase extends TreeFeature
     }
 
     protected final IBlockPosQuery placeOn;
-    protected final IBlockPosQuery replace;
+    protected final IBlockStateQuery replace;
 
     protected final BlockState log;
     protected final BlockState leaves;
@@ -104,7 +106,7 @@ public abstract class TreeFeatureBase extends TreeFeature
         super(BaseTreeFeatureConfig.CODEC.stable());
 
         this.placeOn = placeOn;
-        this.replace = replace;
+        this.replace = IBlockStateQuery.of(replace);
         this.log = log;
         this.leaves = leaves;
         this.logAxisProperty = BlockUtil.getAxisProperty(log);
@@ -116,9 +118,27 @@ public abstract class TreeFeatureBase extends TreeFeature
         this.maxHeight = maxHeight;
     }
 
+    /**
+     * Equivalent to replace.matches(world, pos), answered from the occupancy bitmap whilst a tree is being placed.
+     */
+    protected boolean canReplace(IWorld world, BlockPos pos)
+    {
+        TreePlacementBuffer buffer = TreePlacementBuffer.getActive();
+        return buffer != null ? buffer.occupancy.matches(world, pos, this.replace) : this.replace.matches(world, pos);
+    }
+
+    // Anything written whilst a tree is being placed must be forgotten by the occupancy bitmap
+    protected static void invalidateOccupancy(BlockPos pos)
+    {
+        TreePlacementBuffer buffer = TreePlacementBuffer.getActive();
+
+        if (buffer != null)
+            buffer.occupancy.invalidate(pos);
+    }
+
     public boolean placeLeaves(IWorld world, BlockPos pos, Set<BlockPos> changedBlocks, MutableBoundingBox boundingBox)
     {
-        if (this.replace.matches(world, pos))
+        if (this.canReplace(world, pos))
         {
             this.placeBlock(world, pos, this.leaves, changedBlocks, boundingBox);
             return true;
@@ -134,7 +154,7 @@ public abstract class TreeFeatureBase extends TreeFeature
     public boolean placeLog(IWorld world, BlockPos pos, Direction.Axis axis, Set<BlockPos> changedBlocks, MutableBoundingBox boundingBox)
     {
         BlockState directedLog = (axis != null && this.logAxisProperty != null) ? this.log.setValue(this.logAxisProperty, axis) : this.log;
-        if (this.replace.matches(world, pos))
+        if (this.canReplace(world, pos))
         {
             // Logs must be added to the "changedBlocks" so that the leaves have their distance property updated,
             // preventing incorrect decay
@@ -160,7 +180,7 @@ public abstract class TreeFeatureBase extends TreeFeature
 
     public boolean setHanging(IWorld world, BlockPos pos)
     {
-        if (this.replace.matches(world, pos))
+        if (this.canReplace(world, pos))
         {
             setBlock(world, pos, this.hanging);
         }
@@ -170,7 +190,7 @@ public abstract class TreeFeatureBase extends TreeFeature
     public boolean setTrunkFruit(IWorld world, BlockPos pos)
     {
         if (this.trunkFruit == null) {return false;}
-        if (this.replace.matches(world, pos))
+        if (this.canReplace(world, pos))
         {
             setBlock(world, pos, this.trunkFruit);
         }
@@ -179,7 +199,7 @@ public abstract class TreeFeatureBase extends TreeFeature
 
     public boolean setAltLeaves(IWorld world, BlockPos pos, Set<BlockPos> changedBlocks, MutableBoundingBox boundingBox)
     {
-        if (this.replace.matches(world, pos))
+        if (this.canReplace(world, pos))
         {
             this.placeBlock(world, pos, this.altLeaves, changedBlocks, boundingBox);
             return true;
@@ -190,7 +210,21 @@ public abstract class TreeFeatureBase extends TreeFeature
     @Override
     public boolean doPlace(IWorldGenerationReader reader, Random random, BlockPos pos, Set<BlockPos> changedLogs, Set<BlockPos> changedLeaves, MutableBoundingBox boundingBox, BaseTreeFeatureConfig config)
     {
-        return place(changedLogs, changedLeaves, (IWorld)reader, random, pos, boundingBox);
+        TreePlacementBuffer buffer = TreePlacementBuffer.acquire();
+
+        try
+        {
+            boolean placed = place(buffer.logs, buffer.leaves, (IWorld)reader, random, pos, boundingBox);
+
+            // Vanilla's leaf distance pass and decorators still expect sets of BlockPos
+            buffer.logs.copyTo(changedLogs);
+            buffer.leaves.copyTo(changedLeaves);
+            return placed;
+        }
+        finally
+        {
+            buffer.release();
+        }
     }
 
     protected boolean place(Set<BlockPos> changedLogs, Set<BlockPos> changedLeaves, IWorld world, Random rand, BlockPos position, MutableBoundingBox boundingBox)
@@ -207,14 +241,35 @@ public abstract class TreeFeatureBase extends TreeFeature
         else
         {
             setBlock(world, pos, state, boundingBox);
-            changedBlocks.add(pos.immutable());
+
+            // Packed sets don't keep the position, so there's no need for an immutable copy
+            changedBlocks.add(changedBlocks instanceof TreePlacementBuffer.PositionSet ? pos : pos.immutable());
             return true;
         }
     }
 
+    @Override
+    protected void setBlock(IWorldWriter world, BlockPos pos, BlockState state)
+    {
+        super.setBlock(world, pos, state);
+        invalidateOccupancy(pos);
+    }
+
     protected static void setBlock(IWorldWriter world, BlockPos pos, BlockState state, MutableBoundingBox boundingBox)
     {
         setBlockKnownShape(world, pos, state);
-        boundingBox.expand(new MutableBoundingBox(pos, pos));
+        invalidateOccupancy(pos);
+        expand(boundingBox, pos);
+    }
+
+    // Equivalent to boundingBox.expand(new MutableBoundingBox(pos, pos)), without creating a box for every block
+    protected static void expand(MutableBoundingBox boundingBox, BlockPos pos)
+    {
+        boundingBox.x0 = Math.min(boundingBox.x0, pos.getX());
+        boundingBox.y0 = Math.min(boundingBox.y0, pos.getY());
+        boundingBox.z0 = Math.min(boundingBox.z0, pos.getZ());
+        boundingBox.x1 = Math.max(boundingBox.x1, pos.getX());
+        boundingBox.y1 = Math.max(boundingBox.y1, pos.getY());
+        boundingBox.z1 = Math.max(boundingBox.z1, pos.getZ());
     }
 }
@@ -0,0 +1,176 @@
+/*******************************************************************************
+ * Copyright 2014-2019, the Biomes O' Plenty Team
+ *
+ * This work is licensed under a Creative Commons Attribution-NonCommercial-NoDerivatives 4.0 International Public License.
+ *
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/4.0/.
+ ******************************************************************************/
+package biomesoplenty.common.world.gen.feature.tree;
+
+import biomesoplenty.common.util.block.IBlockStateQuery;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.SectionPos;
+import net.minecraft.world.IWorld;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.gen.WorldGenRegion;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/***
+ * A bitmap of the answers a tree's replace query has given, so the space check and the placement which follows
+ * only read each position from the world once. States are read from the chunk sections directly, and each section
+ * is only fetched from its chunk once, rather than looking the chunk up again for every position.
+ *
+ * Only answers which depend on the state alone are remembered, and positions are forgotten whenever the tree writes
+ * to them, so the answers are always the same as asking the query itself. That only holds where the tree's writes are
+ * the only ones, so answers are only remembered in world generation regions. In a live world, placing a block may
+ * update the shape of its neighbours, and other writes may happen between a tree's checks.
+ */
+public class TreeOccupancy
+{
+    private final Long2ObjectOpenHashMap<Section> sections = new Long2ObjectOpenHashMap<>();
+    private final List<Section> spareSections = new ArrayList<>();
+
+    private IWorld world;
+    private IBlockStateQuery query;
+
+    // Consecutive positions are usually within the same section
+    private Section lastSection;
+
+    public boolean matches(IWorld world, BlockPos pos, IBlockStateQuery query)
+    {
+        // Answers are only remembered in generation regions, and positions outside the world have no section to read from
+        if (!(world instanceof WorldGenRegion) || World.isOutsideBuildHeight(pos))
+            return query.matches(world, pos);
+
+        if (world != this.world || query != this.query)
+        {
+            this.clear();
+            this.world = world;
+            this.query = query;
+        }
+
+        Section section = this.getSection(pos);
+        int index = getIndex(pos);
+        int word = index >>> 6;
+        long bit = 1L << index;
+
+        if ((section.known[word] & bit) != 0)
+            return (section.matching[word] & bit) != 0;
+
+        BlockState state = section.getBlockState(world, pos);
+        boolean matches = query.matches(world, pos, state);
+
+        if (!query.dependsOnPosition(state))
+        {
+            section.known[word] |= bit;
+
+            if (matches)
+                section.matching[word] |= bit;
+        }
+
+        return matches;
+    }
+
+    /**
+     * Forgets the answer for a position which has been written to.
+     */
+    public void invalidate(BlockPos pos)
+    {
+        if (World.isOutsideBuildHeight(pos))
+            return;
+
+        Section section = this.sections.get(SectionPos.asLong(pos.getX() >> 4, pos.getY() >> 4, pos.getZ() >> 4));
+
+        if (section != null)
+        {
+            int index = getIndex(pos);
+            section.known[index >>> 6] &= ~(1L << index);
+
+            // Writing to an empty section gives the chunk a new one
+            section.loaded = false;
+        }
+    }
+
+    public void clear()
+    {
+        for (Section section : this.sections.values())
+        {
+            section.clear();
+            this.spareSections.add(section);
+        }
+
+        this.sections.clear();
+        this.lastSection = null;
+        this.world = null;
+        this.query = null;
+    }
+
+    private Section getSection(BlockPos pos)
+    {
+        long key = SectionPos.asLong(pos.getX() >> 4, pos.getY() >> 4, pos.getZ() >> 4);
+        Section section = this.lastSection;
+
+        if (section != null && section.key == key)
+            return section;
+
+        section = this.sections.get(key);
+
+        if (section == null)
+        {
+            section = this.spareSections.isEmpty() ? new Section() : this.spareSections.remove(this.spareSections.size() - 1);
+            section.key = key;
+            this.sections.put(key, section);
+        }
+
+        this.lastSection = section;
+        return section;
+    }
+
+    private static int getIndex(BlockPos pos)
+    {
+        return (pos.getY() & 15) << 8 | (pos.getZ() & 15) << 4 | pos.getX() & 15;
+    }
+
+    private static class Section
+    {
+        private final long[] known = new long[64];
+        private final long[] matching = new long[64];
+        private long key;
+        private boolean loaded;
+
+        @Nullable
+        private ChunkSection blocks;
+
+        // Equivalent to world.getBlockState(pos), which looks the chunk up every time
+        private BlockState getBlockState(IWorld world, BlockPos pos)
+        {
+            // Other regions, such as those used to plan sapling growth, may not keep their blocks in their chunks
+            if (world.getClass() != WorldGenRegion.class)
+                return world.getBlockState(pos);
+
+            if (!this.loaded)
+            {
+                this.blocks = world.getChunk(pos.getX() >> 4, pos.getZ() >> 4).getSections()[pos.getY() >> 4];
+                this.loaded = true;
+            }
+
+            return ChunkSection.isEmpty(this.blocks) ? Blocks.AIR.defaultBlockState() : this.blocks.getBlockState(pos.getX() & 15, pos.getY() & 15, pos.getZ() & 15);
+        }
+
+        private void clear()
+        {
+            Arrays.fill(this.known, 0L);
+            Arrays.fill(this.matching, 0L);
+            this.loaded = false;
+            this.blocks = null;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*******************************************************************************
+ * Copyright 2014-2019, the Biomes O' Plenty Team
+ *
+ * This work is licensed under a Creative Commons Attribution-NonCommercial-NoDerivatives 4.0 International Public License.
+ *
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/4.0/.
+ ******************************************************************************/
+package biomesoplenty.common.world.gen.feature.tree;
+
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.util.math.BlockPos;
+
+import javax.annotation.Nullable;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+
+/***
+ * Collects the positions of the logs and leaves placed by a tree as packed longs, rather than allocating an
+ * immutable BlockPos for every block placed. Buffers are reused by each thread, so placing a tree allocates nothing
+ * until the positions are handed over to vanilla's leaf distance pass.
+ *
+ * The buffer of the tree currently being placed by a thread also holds its occupancy bitmap, which the tree's
+ * helpers consult without having it passed to them.
+ */
+public class TreePlacementBuffer
+{
+    private static final ThreadLocal<TreePlacementBuffer> BUFFERS = ThreadLocal.withInitial(TreePlacementBuffer::new);
+    private static final ThreadLocal<TreePlacementBuffer> ACTIVE = new ThreadLocal<>();
+
+    public final PositionSet logs = new PositionSet();
+    public final PositionSet leaves = new PositionSet();
+    public final TreeOccupancy occupancy = new TreeOccupancy();
+    private boolean inUse;
+
+    // The buffer of the tree being placed when this one was acquired
+    private TreePlacementBuffer outer;
+
+    /**
+     * Gets an empty buffer for the current thread. Trees placed whilst another is being placed get a buffer of their
+     * own.
+     */
+    public static TreePlacementBuffer acquire()
+    {
+        TreePlacementBuffer buffer = BUFFERS.get();
+
+        if (buffer.inUse)
+            buffer = new TreePlacementBuffer();
+
+        buffer.inUse = true;
+        buffer.outer = ACTIVE.get();
+        ACTIVE.set(buffer);
+        return buffer;
+    }
+
+    /**
+     * Gets the buffer of the tree being placed by the current thread, or null if no tree is being placed.
+     */
+    @Nullable
+    public static TreePlacementBuffer getActive()
+    {
+        return ACTIVE.get();
+    }
+
+    public void release()
+    {
+        this.logs.clear();
+        this.leaves.clear();
+        this.occupancy.clear();
+        ACTIVE.set(this.outer);
+        this.outer = null;
+        this.inUse = false;
+    }
+
+    public static class PositionSet extends AbstractSet<BlockPos>
+    {
+        private final LongOpenHashSet positions = new LongOpenHashSet();
+
+        @Override
+        public boolean add(BlockPos pos)
+        {
+            return this.positions.add(pos.asLong());
+        }
+
+        @Override
+        public boolean contains(Object o)
+        {
+            return o instanceof BlockPos && this.positions.contains(((BlockPos)o).asLong());
+        }
+
+        @Override
+        public boolean remove(Object o)
+        {
+            return o instanceof BlockPos && this.positions.remove(((BlockPos)o).asLong());
+        }
+
+        @Override
+        public int size()
+        {
+            return this.positions.size();
+        }
+
+        @Override
+        public void clear()
+        {
+            // Keeps the table's capacity for the next tree
+            this.positions.clear();
+        }
+
+        @Override
+        public Iterator<BlockPos> iterator()
+        {
+            LongIterator iterator = this.positions.iterator();
+
+            return new Iterator<BlockPos>()
+            {
+                @Override
+                public boolean hasNext()
+                {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public BlockPos next()
+                {
+                    return BlockPos.of(iterator.nextLong());
+                }
+
+                @Override
+                public void remove()
+                {
+                    iterator.remove();
+                }
+            };
+        }
+
+        /**
+         * Adds every position to the given collection, creating each BlockPos only once.
+         */
+        public void copyTo(Collection<BlockPos> target)
+        {
+            LongIterator iterator = this.positions.iterator();
+
+            while (iterator.hasNext())
+            {
+                target.add(BlockPos.of(iterator.nextLong()));
+            }
+        }
+    }
+}
@@ -5,6 +5,7 @@ import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import biomesoplenty.common.world.AlphaOctavePerlinNoise;
+import biomesoplenty.common.world.SeededNoiseCache;
 import com.mojang.serialization.Codec;
 
 import net.minecraft.util.math.BlockPos;
@@ -14,8 +15,7 @@ import net.minecraft.world.gen.placement.Placement;
 
 public class AlphaTreePlacement extends Placement<NoPlacementConfig>
 {
-	private AlphaOctavePerlinNoise treeNoise;
-	private long seed;
+	private final SeededNoiseCache<AlphaOctavePerlinNoise> treeNoise = new SeededNoiseCache<>((seed) -> new AlphaOctavePerlinNoise(new Random(seed), 8));
 
 	public AlphaTreePlacement(Codec<NoPlacementConfig> codec)
 	{
@@ -25,15 +25,11 @@ public class AlphaTreePlacement extends Placement<NoPlacementConfig>
 	@Override
 	public Stream<BlockPos> getPositions(WorldDecoratingHelper decoratorContext, Random random, NoPlacementConfig config, BlockPos pos)
 	{
-		// If the seed has changed, then re-initialize the noise.
-		long seed = decoratorContext.level.getSeed();
-		if (this.treeNoise == null || seed != this.seed) {
-			this.treeNoise = new AlphaOctavePerlinNoise(new Random(seed), 8);
-			this.seed = seed;
-		}
+		// Several worlds may be generating at once, so look the noise up by seed
+		AlphaOctavePerlinNoise treeNoise = this.treeNoise.get(decoratorContext.level.getSeed());
 
 		// Sample the tree gen noise for the base amount of trees in this chunk
-		int treeCount = (int)((this.treeNoise.sample((double) pos.getX() * 0.5D, (double) pos.getZ() * 0.5D) / 8.0D + random.nextDouble() * 4.0D + 4.0D) / 3.0D);
+		int treeCount = (int)((treeNoise.sample((double) pos.getX() * 0.5D, (double) pos.getZ() * 0.5D) / 8.0D + random.nextDouble() * 4.0D + 4.0D) / 3.0D);
 
 		// Add extra trees randomly
 		if (random.nextInt(10) == 0) {
@@ -1,6 +1,7 @@
 package biomesoplenty.common.world.gen.surfacebuilders;
 
 import biomesoplenty.common.world.AlphaOctavePerlinNoise;
+import biomesoplenty.common.world.SeededNoiseCache;
 import com.google.common.collect.ImmutableList;
 import com.mojang.serialization.Codec;
 import net.minecraft.block.BlockState;
@@ -18,19 +19,23 @@ import java.util.stream.IntStream;
 
 public class OriginValleySurfaceBuilder extends SurfaceBuilder<SurfaceBuilderConfig>
 {
-    protected long seed;
-    protected AlphaOctavePerlinNoise sandNoise;
-    protected AlphaOctavePerlinNoise gravelNoise;
+    // Several worlds may be generating at once, so the noise is looked up by seed rather than held here
+    private final SeededNoiseCache<Noise> noise = new SeededNoiseCache<>(Noise::new);
+
+    // The noise of the chunk most recently built by each thread. Columns are built one at a time, so the whole chunk
+    // is sampled when its first column is reached.
+    private final ThreadLocal<ChunkNoise> chunkNoise = ThreadLocal.withInitial(ChunkNoise::new);
+
     public OriginValleySurfaceBuilder(Codec<SurfaceBuilderConfig> p_i232124_1_)
     {
         super(p_i232124_1_);
     }
 
     public void apply(Random random, IChunk chunkIn, Biome biomeIn, int x, int z, int startHeight, double noise, BlockState defaultBlock, BlockState defaultFluid, int seaLevel, long seed, SurfaceBuilderConfig config) {
-        this.apply(random, chunkIn, biomeIn, x, z, startHeight, noise, defaultBlock, defaultFluid, config.getTopMaterial(), config.getUnderMaterial(), config.getUnderwaterMaterial(), seaLevel);
+        this.apply(random, chunkIn, biomeIn, x, z, startHeight, noise, defaultBlock, defaultFluid, config.getTopMaterial(), config.getUnderMaterial(), config.getUnderwaterMaterial(), seaLevel, seed);
     }
 
-    protected void apply(Random random, IChunk chunkIn, Biome biomeIn, int x, int z, int startHeight, double noise, BlockState defaultBlock, BlockState defaultFluid, BlockState top, BlockState middle, BlockState bottom, int sealevel) {
+    protected void apply(Random random, IChunk chunkIn, Biome biomeIn, int x, int z, int startHeight, double noise, BlockState defaultBlock, BlockState defaultFluid, BlockState top, BlockState middle, BlockState bottom, int sealevel, long seed) {
         BlockState topState = top;
         BlockState middleState = middle;
         BlockPos.Mutable mutable = new BlockPos.Mutable();
@@ -40,8 +45,10 @@ public class OriginValleySurfaceBuilder extends SurfaceBuilder<SurfaceBuilderCon
         int localX = x & 15;
         int localZ = z & 15;
 
-        boolean gravelGen = gravelNoise.sample(x, 109.0134, z, 0.03125, 1, 0.03125) + random.nextDouble() * 0.2 > 3.0;
-        boolean sandGen = sandNoise.sample(x, z, 0, 0.03125, 0.03125, 1) + random.nextDouble() * 0.2 > 0.0;
+        ChunkNoise chunkNoise = this.getChunkNoise(this.noise.get(seed), x, z);
+        int noiseIndex = localX * 16 + localZ;
+        boolean gravelGen = chunkNoise.gravel[noiseIndex] + random.nextDouble() * 0.2 > 3.0;
+        boolean sandGen = chunkNoise.sand[noiseIndex] + random.nextDouble() * 0.2 > 0.0;
 
         for (int y = startHeight; y >= 0; --y)
         {
@@ -110,17 +117,51 @@ public class OriginValleySurfaceBuilder extends SurfaceBuilder<SurfaceBuilderCon
         }
     }
 
+    private ChunkNoise getChunkNoise(Noise noise, int x, int z)
+    {
+        ChunkNoise chunkNoise = this.chunkNoise.get();
+        int chunkX = x >> 4;
+        int chunkZ = z >> 4;
+
+        if (chunkNoise.noise != noise || chunkNoise.chunkX != chunkX || chunkNoise.chunkZ != chunkZ)
+        {
+            // Equivalent to gravelNoise.sample(x, 109.0134, z, ...) and sandNoise.sample(x, z, 0, ...) for each column
+            noise.gravelNoise.sampleArea(chunkNoise.gravel, chunkX << 4, 109.0134, chunkZ << 4, 16, 1, 16, 0.03125, 1, 0.03125);
+            noise.sandNoise.sampleArea(chunkNoise.sand, chunkX << 4, chunkZ << 4, 0, 16, 16, 1, 0.03125, 0.03125, 1);
+            chunkNoise.noise = noise;
+            chunkNoise.chunkX = chunkX;
+            chunkNoise.chunkZ = chunkZ;
+        }
+
+        return chunkNoise;
+    }
+
     @Override
     public void initNoise(long seed)
     {
-        // If the seed has changed, then re-initialize the noise.
-        if (this.seed != seed || this.sandNoise == null || this.gravelNoise == null)
+        // Build the noise ahead of time for this seed
+        this.noise.get(seed);
+    }
+
+    private static class Noise
+    {
+        private final AlphaOctavePerlinNoise sandNoise;
+        private final AlphaOctavePerlinNoise gravelNoise;
+
+        private Noise(long seed)
         {
             SharedSeedRandom random = new SharedSeedRandom(seed);
             this.sandNoise = new AlphaOctavePerlinNoise(random, 4);
             this.gravelNoise = new AlphaOctavePerlinNoise(random, 4);
         }
+    }
 
-        this.seed = seed;
+    private static class ChunkNoise
+    {
+        private final double[] sand = new double[16 * 16];
+        private final double[] gravel = new double[16 * 16];
+        private Noise noise;
+        private int chunkX;
+        private int chunkZ;
     }
 }
\ No newline at end of file
@@ -9,20 +9,29 @@ package biomesoplenty.common.world.layer;
 
 import biomesoplenty.api.enums.BOPClimates;
 import biomesoplenty.common.util.biome.BiomeUtil;
-import biomesoplenty.init.ModBiomes;
+import biomesoplenty.common.world.BiomePropertyTable;
+import biomesoplenty.common.world.ClimateBiomeTable;
 import net.minecraft.world.biome.Biomes;
 import net.minecraft.world.gen.INoiseRandom;
 import net.minecraft.world.gen.area.IArea;
 import net.minecraft.world.gen.layer.traits.IAreaTransformer2;
 import net.minecraft.world.gen.layer.traits.IDimOffset0Transformer;
 
-public enum BOPBiomeLayer implements IAreaTransformer2, IDimOffset0Transformer
+public class BOPBiomeLayer implements IAreaTransformer2, IDimOffset0Transformer
 {
-    INSTANCE;
-
+    private static final int OCEAN = BiomeUtil.getBiomeId(Biomes.OCEAN);
     private static final int DEEP_OCEAN = BiomeUtil.getBiomeId(Biomes.DEEP_OCEAN);
     private static final int MUSHROOM_FIELDS = BiomeUtil.getBiomeId(Biomes.MUSHROOM_FIELDS);
 
+    private final BiomePropertyTable properties;
+    private final ClimateBiomeTable climateBiomes;
+
+    public BOPBiomeLayer(BiomePropertyTable properties)
+    {
+        this.properties = properties;
+        this.climateBiomes = properties.getClimateBiomes();
+    }
+
     @Override
     public int applyPixel(INoiseRandom context, IArea area1, IArea area2, int x, int z)
     {
@@ -46,20 +55,20 @@ public enum BOPBiomeLayer implements IAreaTransformer2, IDimOffset0Transformer
         // At this point, oceans and land have been assigned, and so have mushroom islands
         if (landSeaVal == DEEP_OCEAN)
         {
-            return BiomeUtil.getBiomeId(climate.getRandomOceanBiome(context, true));
+            return DEEP_OCEAN;
         }
-        else if ((landSeaVal == MUSHROOM_FIELDS || ModBiomes.islandBiomeIds.contains(landSeaVal)) && !(climate == BOPClimates.ICE_CAP || climate == BOPClimates.TUNDRA))
+        else if ((landSeaVal == MUSHROOM_FIELDS || this.properties.isIsland(landSeaVal)) && !(climate == BOPClimates.ICE_CAP || climate == BOPClimates.TUNDRA))
         {
             // keep islands, unless it's in an icy climate in which case, replace
             return landSeaVal;
         }
         else if (landSeaVal == 0)
         {
-            return BiomeUtil.getBiomeId(climate.getRandomOceanBiome(context, false));
+            return OCEAN;
         }
         else
         {
-        	return BiomeUtil.getBiomeId(climate.getRandomBiome(context, Biomes.OCEAN));
+        	return this.climateBiomes.getRandomBiome(climate, context, OCEAN);
         }
     }
 }
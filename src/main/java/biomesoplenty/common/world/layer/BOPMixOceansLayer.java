@@ -9,8 +9,8 @@ package biomesoplenty.common.world.layer;
 
 import biomesoplenty.api.biome.BOPBiomes;
 import biomesoplenty.api.enums.BOPClimates;
-import biomesoplenty.common.util.biome.BiomeUtil;
 import biomesoplenty.common.world.BOPLayerUtil;
+import biomesoplenty.common.world.BiomePropertyTable;
 import biomesoplenty.common.world.layer.traits.IAreaTransformer3;
 import net.minecraft.util.registry.Registry;
 import net.minecraft.world.biome.Biomes;
@@ -18,9 +18,18 @@ import net.minecraft.world.gen.INoiseRandom;
 import net.minecraft.world.gen.area.IArea;
 import net.minecraft.world.gen.layer.traits.IDimOffset0Transformer;
 
-public enum BOPMixOceansLayer implements IAreaTransformer3, IDimOffset0Transformer
+import java.util.function.IntConsumer;
+
+public class BOPMixOceansLayer implements IAreaTransformer3, IDimOffset0Transformer
 {
-    INSTANCE;
+    private final BiomePropertyTable properties;
+    private final int wastelandId;
+
+    public BOPMixOceansLayer(BiomePropertyTable properties)
+    {
+        this.properties = properties;
+        this.wastelandId = properties.getId(BOPBiomes.wasteland);
+    }
 
     @Override
     public int applyPixel(INoiseRandom context, IArea biomeArea, IArea oceanArea, IArea climateArea, int x, int z)
@@ -30,7 +39,7 @@ public enum BOPMixOceansLayer implements IAreaTransformer3, IDimOffset0Transform
         int climateVal = climateArea.get(x, z);
         BOPClimates climate = BOPClimates.lookup(climateVal);
 
-        if (!BOPLayerUtil.isOcean(biomeId))
+        if (!this.properties.isOcean(biomeId))
         {
             return biomeId;
         }
@@ -114,13 +123,36 @@ public enum BOPMixOceansLayer implements IAreaTransformer3, IDimOffset0Transform
                     return BOPLayerUtil.DEEP_FROZEN_OCEAN;
                 }
 
-                if (BiomeUtil.exists(BOPBiomes.wasteland) && oceanId == BiomeUtil.getBiomeId(BOPBiomes.wasteland))
+                if (this.wastelandId != BiomePropertyTable.NONE && oceanId == this.wastelandId)
                 {
-                    return BiomeUtil.getBiomeId(BOPBiomes.wasteland);
+                    return this.wastelandId;
                 }
             }
 
             return oceanId;
         }
     }
+
+    /**
+     * Calls the consumer with every ocean the given biome may be replaced with.
+     */
+    public void forEachPossibleResult(int biomeId, IntConsumer consumer)
+    {
+        if (!this.properties.isOcean(biomeId))
+            return;
+
+        consumer.accept(BOPLayerUtil.WARM_OCEAN);
+        consumer.accept(BOPLayerUtil.LUKEWARM_OCEAN);
+        consumer.accept(BOPLayerUtil.OCEAN);
+        consumer.accept(BOPLayerUtil.COLD_OCEAN);
+        consumer.accept(BOPLayerUtil.FROZEN_OCEAN);
+        consumer.accept(BOPLayerUtil.DEEP_WARM_OCEAN);
+        consumer.accept(BOPLayerUtil.DEEP_LUKEWARM_OCEAN);
+        consumer.accept(BOPLayerUtil.DEEP_OCEAN);
+        consumer.accept(BOPLayerUtil.DEEP_COLD_OCEAN);
+        consumer.accept(BOPLayerUtil.DEEP_FROZEN_OCEAN);
+
+        if (this.wastelandId != BiomePropertyTable.NONE)
+            consumer.accept(this.wastelandId);
+    }
 }
@@ -7,12 +7,10 @@
  ******************************************************************************/
 package biomesoplenty.common.world.layer;
 
-import biomesoplenty.common.biome.BiomeMetadata;
 import biomesoplenty.common.biome.BiomeRegistry;
 import biomesoplenty.common.biome.BiomeTemplate;
 import biomesoplenty.common.util.biome.BiomeUtil;
-import biomesoplenty.common.world.BOPLayerUtil;
-import net.minecraft.util.RegistryKey;
+import biomesoplenty.common.world.BiomePropertyTable;
 import net.minecraft.util.registry.Registry;
 import net.minecraft.world.biome.Biome;
 import net.minecraft.world.biome.Biomes;
@@ -21,24 +19,30 @@ import net.minecraft.world.gen.area.IArea;
 import net.minecraft.world.gen.layer.traits.IAreaTransformer2;
 import net.minecraft.world.gen.layer.traits.IDimOffset0Transformer;
 
-public enum BOPRiverMixLayer implements IAreaTransformer2, IDimOffset0Transformer
-{
-    INSTANCE;
+import java.util.function.IntConsumer;
 
+public class BOPRiverMixLayer implements IAreaTransformer2, IDimOffset0Transformer
+{
     private static final int FROZEN_RIVER = BiomeUtil.getBiomeId(Biomes.FROZEN_RIVER);
     private static final int SNOWY_TUNDRA = BiomeUtil.getBiomeId(Biomes.SNOWY_TUNDRA);
     private static final int MUSHROOM_FIELDS = BiomeUtil.getBiomeId(Biomes.MUSHROOM_FIELDS);
     private static final int MUSHROOM_FIELD_SHORE = BiomeUtil.getBiomeId(Biomes.MUSHROOM_FIELD_SHORE);
     private static final int RIVER = BiomeUtil.getBiomeId(Biomes.RIVER);
 
+    private final BiomePropertyTable properties;
+
+    public BOPRiverMixLayer(BiomePropertyTable properties)
+    {
+        this.properties = properties;
+    }
+
     @Override
     public int applyPixel(INoiseRandom context, IArea biomeArea, IArea riverArea, int x, int z)
     {
         int biomeId = biomeArea.get(x, z);
         int riverId = riverArea.get(x, z);
-        RegistryKey<Biome> biome = BiomeUtil.createKey(biomeId);
 
-        if (BOPLayerUtil.isOcean(biomeId))
+        if (this.properties.isOcean(biomeId))
         {
             return biomeId;
         }
@@ -48,14 +52,9 @@ public enum BOPRiverMixLayer implements IAreaTransformer2, IDimOffset0Transforme
             {
                 return FROZEN_RIVER;
             }
-            else if (BiomeUtil.hasMetadata(biome))
+            else if (this.properties.hasMetadata(biomeId))
             {
-                BiomeMetadata meta = BiomeUtil.getMetadata(biome);
-
-                if (meta.getRiverBiome() != null)
-                    return BiomeUtil.getBiomeId(meta.getRiverBiome());
-                else
-                    return biomeId;
+                return this.properties.getRiverId(biomeId);
             }
             else
             {
@@ -67,4 +66,27 @@ public enum BOPRiverMixLayer implements IAreaTransformer2, IDimOffset0Transforme
             return biomeId;
         }
     }
+
+    /**
+     * Calls the consumer with the river the given biome may be replaced with, if any.
+     */
+    public void forEachPossibleResult(int biomeId, IntConsumer consumer)
+    {
+        if (this.properties.isOcean(biomeId))
+        {
+            return;
+        }
+        else if (biomeId == SNOWY_TUNDRA)
+        {
+            consumer.accept(FROZEN_RIVER);
+        }
+        else if (this.properties.hasMetadata(biomeId))
+        {
+            consumer.accept(this.properties.getRiverId(biomeId));
+        }
+        else
+        {
+            consumer.accept(biomeId != MUSHROOM_FIELDS && biomeId != MUSHROOM_FIELD_SHORE ? RIVER & 255 : MUSHROOM_FIELD_SHORE);
+        }
+    }
 }
@@ -8,33 +8,59 @@
 package biomesoplenty.common.world.layer;
 
 import biomesoplenty.api.enums.BOPClimates;
+import biomesoplenty.common.world.layer.traits.IBOPAreaTransformer0;
+import biomesoplenty.common.world.layer.traits.IBOPContextExtended;
+import biomesoplenty.common.world.layer.traits.IBOPLayerRandom;
 import net.minecraft.util.math.MathHelper;
-import net.minecraft.world.gen.INoiseRandom;
-import net.minecraft.world.gen.area.IArea;
-import net.minecraft.world.gen.layer.traits.IAreaTransformer2;
-import net.minecraft.world.gen.layer.traits.IDimOffset0Transformer;
 
-public enum ClimateLayer implements IAreaTransformer2, IDimOffset0Transformer
+import javax.annotation.Nullable;
+
+/***
+ * Samples temperature and rainfall together and maps them straight to a climate, rather than caching each of them
+ * in a layer of their own.
+ */
+public class ClimateLayer implements IBOPAreaTransformer0
 {
-    INSTANCE;
+    private static final int[] CLIMATE_MAPPING = BOPClimates.getClimateMappingInts();
 
-    private final int[] climateMapping;
+    private final IClimateSampler temperatureSampler;
+    private final IBOPLayerRandom temperatureRandom;
+    private final IClimateSampler rainfallSampler;
+    private final IBOPLayerRandom rainfallRandom;
 
-    ClimateLayer()
+    /**
+     * Samplers which make use of randomness must be given a source of randomness of their own, seeded as their context
+     * would be if they were a separate layer. Samplers which don't may share the context of the climate layer.
+     */
+    public ClimateLayer(IClimateSampler temperatureSampler, @Nullable IBOPLayerRandom temperatureRandom, IClimateSampler rainfallSampler, @Nullable IBOPLayerRandom rainfallRandom)
     {
-        this.climateMapping = BOPClimates.getClimateMappingInts();
+        this.temperatureSampler = temperatureSampler;
+        this.temperatureRandom = temperatureRandom;
+        this.rainfallSampler = rainfallSampler;
+        this.rainfallRandom = rainfallRandom;
     }
 
     @Override
-    public int applyPixel(INoiseRandom context, IArea area1, IArea area2, int x, int z)
+    public int applyPixel(IBOPContextExtended context, int x, int z)
     {
-        int temperature = area1.get(x, z);
-        int rainfall = area2.get(x, z);
+        int temperature = sample(this.temperatureSampler, this.temperatureRandom, context, x, z);
+        int rainfall = sample(this.rainfallSampler, this.rainfallRandom, context, x, z);
 
         // temperature values from 0 (cold) to 8 (hot) and rainfall values from 0 (wet) to 11 (dry), index is (temperatureValue * 12) + rainfallValue
         // clamp as a precaution against potential rounding errors due to use of doubles/floats in noise calculations
         // this guarantees index is between 0 and 108 (= 9 * 12), the range of indexes in BOPClimates.getClimateMappingInts()
         int index = ( MathHelper.clamp(temperature, 0, 8) * 12 ) + MathHelper.clamp(rainfall, 0, 11);
-        return this.climateMapping[index];
+        return CLIMATE_MAPPING[index];
+    }
+
+    private static int sample(IClimateSampler sampler, @Nullable IBOPLayerRandom random, IBOPContextExtended context, int x, int z)
+    {
+        if (random == null)
+        {
+            return sampler.sample(context, x, z);
+        }
+
+        random.initRandom((long)x, (long)z);
+        return sampler.sample(random, x, z);
     }
 }
@@ -0,0 +1,241 @@
+/*******************************************************************************
+ * Copyright 2014-2019, the Biomes O' Plenty Team
+ *
+ * This work is licensed under a Creative Commons Attribution-NonCommercial-NoDerivatives 4.0 International Public License.
+ *
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/4.0/.
+ ******************************************************************************/
+package biomesoplenty.common.world.layer;
+
+import biomesoplenty.common.world.layer.traits.IBOPContextExtended;
+import net.minecraft.world.gen.IExtendedNoiseRandom;
+import net.minecraft.world.gen.LazyAreaLayerContext;
+import net.minecraft.world.gen.area.IArea;
+import net.minecraft.world.gen.area.IAreaFactory;
+import net.minecraft.world.gen.layer.ZoomLayer;
+
+import java.util.Arrays;
+
+/***
+ * Equivalent of several consecutive ZoomLayers, the first seeded with the given seed modifier and each subsequent
+ * layer with the next. Rather than every level having a lazy area of its own, blocks of output are evaluated through
+ * all of the levels at once in flat arrays. Each level draws from its own random with its original seed modifier,
+ * so the output is identical to that of the individual layers.
+ */
+public class FusedZoomLayer
+{
+    // Output is evaluated in aligned blocks of this width
+    private static final int BLOCK_SHIFT = 4;
+    private static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+
+    // The number of recently evaluated blocks retained by each area
+    private static final int CACHED_BLOCKS = 16;
+
+    private final boolean fuzzy;
+    private final long seedModifier;
+    private final int levels;
+
+    public FusedZoomLayer(ZoomLayer zoomLayer, long seedModifier, int levels)
+    {
+        if (levels < 1)
+            throw new IllegalArgumentException("A fused zoom must have at least one level");
+
+        this.fuzzy = zoomLayer == ZoomLayer.FUZZY;
+        this.seedModifier = seedModifier;
+        this.levels = levels;
+    }
+
+    public <R extends IArea> IAreaFactory<R> run(IExtendedNoiseRandom<R> context, IAreaFactory<R> parentFactory)
+    {
+        if (!(context instanceof IBOPContextExtended))
+            throw new IllegalArgumentException("Context must be an IBOPContextExtended");
+
+        // Safe, as the context's area type is R whichever context it is
+        @SuppressWarnings("unchecked")
+        IBOPContextExtended<R> bopContext = (IBOPContextExtended<R>)context;
+        long worldSeed = bopContext.getWorldSeed();
+
+        return () ->
+        {
+            R parent = parentFactory.make();
+            Evaluator evaluator = new Evaluator(worldSeed, parent);
+            return context.createResult(evaluator::get, parent);
+        };
+    }
+
+    private class Evaluator
+    {
+        private final IArea parent;
+        private final LazyAreaLayerContext[] randoms;
+
+        // The region evaluated at each level for the current block, level 0 being the parent
+        private final int[] regionX;
+        private final int[] regionZ;
+        private final int[] regionWidth;
+        private final int[] regionHeight;
+        private final int[][] scratch;
+
+        private final long[] blockKeys = new long[CACHED_BLOCKS];
+        private final int[][] blocks = new int[CACHED_BLOCKS][BLOCK_SIZE * BLOCK_SIZE];
+
+        private Evaluator(long worldSeed, IArea parent)
+        {
+            int levels = FusedZoomLayer.this.levels;
+            this.parent = parent;
+            this.randoms = new LazyAreaLayerContext[levels];
+
+            for (int level = 0; level < levels; level++)
+            {
+                this.randoms[level] = new LazyAreaLayerContext(1, worldSeed, FusedZoomLayer.this.seedModifier + (long)level);
+            }
+
+            this.regionX = new int[levels + 1];
+            this.regionZ = new int[levels + 1];
+            this.regionWidth = new int[levels + 1];
+            this.regionHeight = new int[levels + 1];
+            this.regionWidth[levels] = BLOCK_SIZE;
+            this.regionHeight[levels] = BLOCK_SIZE;
+
+            // Sampling a pixel reads the parent at (x >> 1) and ((x + 1) >> 1), so each level's region needs to be a
+            // little over half as wide as that of the level above. Allow for regions starting on an odd coordinate.
+            this.scratch = new int[levels][];
+
+            for (int level = levels; level > 0; level--)
+            {
+                this.regionWidth[level - 1] = ((this.regionWidth[level] + 1) >> 1) + 1;
+                this.regionHeight[level - 1] = ((this.regionHeight[level] + 1) >> 1) + 1;
+                this.scratch[level - 1] = new int[this.regionWidth[level - 1] * this.regionHeight[level - 1]];
+            }
+
+            // No block key can be confused with this, as block coordinates are shifted down
+            Arrays.fill(this.blockKeys, Long.MIN_VALUE);
+        }
+
+        private synchronized int get(int x, int z)
+        {
+            int blockX = x >> BLOCK_SHIFT;
+            int blockZ = z >> BLOCK_SHIFT;
+            long key = (long)blockX & 0xFFFFFFFFL | ((long)blockZ & 0xFFFFFFFFL) << 32;
+            int slot = (blockX * 31 + blockZ) & (CACHED_BLOCKS - 1);
+            int[] block = this.blocks[slot];
+
+            if (this.blockKeys[slot] != key)
+            {
+                this.evaluateBlock(blockX << BLOCK_SHIFT, blockZ << BLOCK_SHIFT, block);
+                this.blockKeys[slot] = key;
+            }
+
+            return block[(z & (BLOCK_SIZE - 1)) * BLOCK_SIZE + (x & (BLOCK_SIZE - 1))];
+        }
+
+        private void evaluateBlock(int x, int z, int[] out)
+        {
+            int levels = FusedZoomLayer.this.levels;
+            this.regionX[levels] = x;
+            this.regionZ[levels] = z;
+
+            for (int level = levels; level > 0; level--)
+            {
+                this.regionX[level - 1] = this.regionX[level] >> 1;
+                this.regionZ[level - 1] = this.regionZ[level] >> 1;
+            }
+
+            // Read the parent region
+            int[] in = this.scratch[0];
+            int parentX = this.regionX[0];
+            int parentZ = this.regionZ[0];
+            int parentWidth = this.regionWidth[0];
+            int parentHeight = this.regionHeight[0];
+
+            for (int localZ = 0; localZ < parentHeight; ++localZ)
+            {
+                for (int localX = 0; localX < parentWidth; ++localX)
+                {
+                    in[localZ * parentWidth + localX] = this.parent.get(parentX + localX, parentZ + localZ);
+                }
+            }
+
+            // Zoom through each level in turn, the last writing into the output block
+            for (int level = 1; level <= levels; level++)
+            {
+                int[] zoomed = level == levels ? out : this.scratch[level];
+                this.zoom(this.randoms[level - 1], in, this.regionX[level - 1], this.regionZ[level - 1], this.regionWidth[level - 1], zoomed, this.regionX[level], this.regionZ[level], this.regionWidth[level], this.regionHeight[level]);
+                in = zoomed;
+            }
+        }
+
+        // Mirrors ZoomLayer.applyPixel for every pixel of the output region, drawing random numbers in the same order
+        private void zoom(LazyAreaLayerContext random, int[] in, int inX, int inZ, int inWidth, int[] out, int outX, int outZ, int outWidth, int outHeight)
+        {
+            for (int localZ = 0; localZ < outHeight; ++localZ)
+            {
+                int z = outZ + localZ;
+                int row0 = ((z >> 1) - inZ) * inWidth;
+                int row1 = (((z + 1) >> 1) - inZ) * inWidth;
+
+                for (int localX = 0; localX < outWidth; ++localX)
+                {
+                    int x = outX + localX;
+                    int column0 = (x >> 1) - inX;
+                    int column1 = ((x + 1) >> 1) - inX;
+                    int result;
+
+                    int a = in[row0 + column0];
+                    random.initRandom((long)(x >> 1 << 1), (long)(z >> 1 << 1));
+
+                    if ((x & 1) == 0 && (z & 1) == 0)
+                    {
+                        result = a;
+                    }
+                    else
+                    {
+                        int below = in[row1 + column0];
+                        int belowOrA = random.nextRandom(2) == 0 ? a : below;
+
+                        if ((x & 1) == 0)
+                        {
+                            result = belowOrA;
+                        }
+                        else
+                        {
+                            int right = in[row0 + column1];
+                            int rightOrA = random.nextRandom(2) == 0 ? a : right;
+
+                            if ((z & 1) == 0)
+                            {
+                                result = rightOrA;
+                            }
+                            else
+                            {
+                                int diagonal = in[row1 + column1];
+                                result = FusedZoomLayer.this.fuzzy ? pickRandom(random, a, right, below, diagonal) : modeOrRandom(random, a, right, below, diagonal);
+                            }
+                        }
+                    }
+
+                    out[localZ * outWidth + localX] = result;
+                }
+            }
+        }
+    }
+
+    private static int pickRandom(LazyAreaLayerContext random, int a, int b, int c, int d)
+    {
+        int i = random.nextRandom(4);
+        return i == 0 ? a : (i == 1 ? b : (i == 2 ? c : d));
+    }
+
+    private static int modeOrRandom(LazyAreaLayerContext random, int a, int b, int c, int d)
+    {
+        if (b == c && c == d) return b;
+        else if (a == b && a == c) return a;
+        else if (a == b && a == d) return a;
+        else if (a == c && a == d) return a;
+        else if (a == b && c != d) return a;
+        else if (a == c && b != d) return a;
+        else if (a == d && b != c) return a;
+        else if (b == c && a != d) return b;
+        else if (b == d && a != c) return b;
+        else return c == d && a != b ? c : pickRandom(random, a, b, c, d);
+    }
+}
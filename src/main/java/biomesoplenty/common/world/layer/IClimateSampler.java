@@ -0,0 +1,18 @@
+/*******************************************************************************
+ * Copyright 2014-2019, the Biomes O' Plenty Team
+ *
+ * This work is licensed under a Creative Commons Attribution-NonCommercial-NoDerivatives 4.0 International Public License.
+ *
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/4.0/.
+ ******************************************************************************/
+package biomesoplenty.common.world.layer;
+
+import biomesoplenty.common.world.layer.traits.IBOPLayerRandom;
+
+/***
+ * Samples the temperature or rainfall of a pixel of the climate layer.
+ */
+public interface IClimateSampler
+{
+    int sample(IBOPLayerRandom context, int x, int z);
+}
@@ -8,18 +8,22 @@
 package biomesoplenty.common.world.layer;
 
 import biomesoplenty.api.enums.BOPClimates;
-import biomesoplenty.common.util.biome.BiomeUtil;
-import net.minecraft.util.RegistryKey;
+import biomesoplenty.common.world.BiomePropertyTable;
+import biomesoplenty.common.world.ClimateBiomeTable;
 import net.minecraft.util.registry.Registry;
-import net.minecraft.world.biome.Biome;
 import net.minecraft.world.gen.INoiseRandom;
 import net.minecraft.world.gen.area.IArea;
 import net.minecraft.world.gen.layer.traits.IAreaTransformer2;
 import net.minecraft.world.gen.layer.traits.IDimOffset1Transformer;
 
-public enum LargeIslandLayer implements IAreaTransformer2, IDimOffset1Transformer
+public class LargeIslandLayer implements IAreaTransformer2, IDimOffset1Transformer
 {
-    INSTANCE;
+    private final ClimateBiomeTable climateBiomes;
+
+    public LargeIslandLayer(BiomePropertyTable properties)
+    {
+        this.climateBiomes = properties.getClimateBiomes();
+    }
 
     @Override
     public int applyPixel(INoiseRandom context, IArea landSeaArea, IArea climateArea, int x, int z)
@@ -50,16 +54,7 @@ public enum LargeIslandLayer implements IAreaTransformer2, IDimOffset1Transforme
 
             if (centerVal == 0 && northVal == 0 && eastVal == 0 && southVal == 0 && westVal == 0)
             {
-                RegistryKey<Biome> islandBiome = climate.getRandomIslandBiome(context, null);
-
-                if (islandBiome == null)
-                {
-                    return centerVal;
-                }
-                else
-                {
-                    return BiomeUtil.getBiomeId(islandBiome);
-                }
+                return this.climateBiomes.getRandomIslandBiome(climate, context, centerVal);
             }
             else return centerVal;
         } else {
@@ -9,19 +9,28 @@ package biomesoplenty.common.world.layer;
 
 import biomesoplenty.api.enums.BOPClimates;
 import biomesoplenty.common.util.biome.BiomeUtil;
+import biomesoplenty.common.world.BiomePropertyTable;
+import biomesoplenty.common.world.ClimateBiomeTable;
 import net.minecraft.util.registry.Registry;
 import net.minecraft.world.biome.Biomes;
 import net.minecraft.world.gen.INoiseRandom;
 import net.minecraft.world.gen.layer.traits.IAreaTransformer0;
 import net.minecraft.world.gen.layer.traits.IDimOffset0Transformer;
 
-public enum NetherBiomeLayer implements IAreaTransformer0, IDimOffset0Transformer
+public class NetherBiomeLayer implements IAreaTransformer0, IDimOffset0Transformer
 {
-    INSTANCE;
+    private static final int NETHER_WASTES = BiomeUtil.getBiomeId(Biomes.NETHER_WASTES);
+
+    private final ClimateBiomeTable climateBiomes;
+
+    public NetherBiomeLayer(BiomePropertyTable properties)
+    {
+        this.climateBiomes = properties.getClimateBiomes();
+    }
 
     @Override
     public int applyPixel(INoiseRandom context, int x, int z)
     {
-        return BiomeUtil.getBiomeId(BOPClimates.NETHER.getRandomBiome(context, Biomes.NETHER_WASTES));
+        return this.climateBiomes.getRandomBiome(BOPClimates.NETHER, context, NETHER_WASTES);
     }
 }
@@ -0,0 +1,79 @@
+/*******************************************************************************
+ * Copyright 2014-2019, the Biomes O' Plenty Team
+ *
+ * This work is licensed under a Creative Commons Attribution-NonCommercial-NoDerivatives 4.0 International Public License.
+ *
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/4.0/.
+ ******************************************************************************/
+package biomesoplenty.common.world.layer;
+
+/***
+ * Splits noise values into bands at a fixed set of ascending boundaries. A value falls in band i when it is below
+ * boundary i and not below any earlier boundary. Lookups use a table of buckets covering -1 to 1, only comparing
+ * against the boundaries for the few buckets which straddle one.
+ */
+class NoiseBands
+{
+    private static final int BUCKETS = 1024;
+    private static final double BUCKET_SCALE = BUCKETS / 2.0D;
+
+    // Buckets are widened by this much when checking for boundaries, guarding against rounding in the bucket index
+    private static final double EPSILON = 1.0E-9D;
+
+    private static final byte AMBIGUOUS = -1;
+
+    private final double[] boundaries;
+    private final byte[] buckets = new byte[BUCKETS];
+
+    NoiseBands(double... boundaries)
+    {
+        this.boundaries = boundaries.clone();
+
+        for (int bucket = 0; bucket < BUCKETS; bucket++)
+        {
+            // The outermost buckets also cover anything beyond -1 and 1
+            double min = bucket == 0 ? Double.NEGATIVE_INFINITY : bucket / BUCKET_SCALE - 1.0D - EPSILON;
+            double max = bucket == BUCKETS - 1 ? Double.POSITIVE_INFINITY : (bucket + 1) / BUCKET_SCALE - 1.0D + EPSILON;
+            int minBand = this.search(min);
+            this.buckets[bucket] = minBand == this.search(max) ? (byte)minBand : AMBIGUOUS;
+        }
+    }
+
+    int getBand(double value)
+    {
+        // NaN compares false against every boundary, so isn't below any of them
+        if (value != value)
+            return this.boundaries.length;
+
+        int bucket = (int)((value + 1.0D) * BUCKET_SCALE);
+
+        if (bucket < 0) bucket = 0;
+        else if (bucket >= BUCKETS) bucket = BUCKETS - 1;
+
+        byte band = this.buckets[bucket];
+        return band != AMBIGUOUS ? band : this.search(value);
+    }
+
+    // Counts the boundaries the value isn't below, using the same comparisons as a chain of ifs would
+    private int search(double value)
+    {
+        int low = 0;
+        int high = this.boundaries.length;
+
+        while (low < high)
+        {
+            int mid = (low + high) >>> 1;
+
+            if (value < this.boundaries[mid])
+            {
+                high = mid;
+            }
+            else
+            {
+                low = mid + 1;
+            }
+        }
+
+        return low;
+    }
+}
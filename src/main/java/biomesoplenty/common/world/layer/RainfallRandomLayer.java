@@ -7,15 +7,14 @@
  ******************************************************************************/
 package biomesoplenty.common.world.layer;
 
-import biomesoplenty.common.world.layer.traits.IBOPAreaTransformer0;
-import biomesoplenty.common.world.layer.traits.IBOPContextExtended;
+import biomesoplenty.common.world.layer.traits.IBOPLayerRandom;
 
-public enum RainfallRandomLayer implements IBOPAreaTransformer0
+public enum RainfallRandomLayer implements IClimateSampler
 {
     INSTANCE;
 
     @Override
-    public int applyPixel(IBOPContextExtended context, int x, int z)
+    public int sample(IBOPLayerRandom context, int x, int z)
     {
         // Choose a random heat value
         return context.nextRandom(12);
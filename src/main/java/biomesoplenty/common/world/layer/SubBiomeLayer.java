@@ -9,11 +9,10 @@ package biomesoplenty.common.world.layer;
 
 
 import biomesoplenty.api.biome.BOPBiomes;
-import biomesoplenty.api.enums.BOPClimates;
 import biomesoplenty.common.util.biome.BiomeUtil;
 import biomesoplenty.common.world.BOPLayerUtil;
-import biomesoplenty.init.ModBiomes;
-import com.google.common.collect.Lists;
+import biomesoplenty.common.world.BiomePropertyTable;
+import biomesoplenty.common.world.SubBiomeTable;
 import it.unimi.dsi.fastutil.ints.Int2IntMap;
 import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
 import net.minecraft.util.Util;
@@ -26,13 +25,10 @@ import net.minecraft.world.gen.layer.LayerUtil;
 import net.minecraft.world.gen.layer.traits.IAreaTransformer2;
 import net.minecraft.world.gen.layer.traits.IDimOffset1Transformer;
 
-import java.util.Iterator;
-import java.util.List;
+import java.util.function.IntConsumer;
 
-public enum SubBiomeLayer implements IAreaTransformer2, IDimOffset1Transformer
+public class SubBiomeLayer implements IAreaTransformer2, IDimOffset1Transformer
 {
-    INSTANCE;
-
     private static final int BIRCH_FOREST = BiomeUtil.getBiomeId(Biomes.BIRCH_FOREST);
     private static final int BIRCH_FOREST_HILLS = BiomeUtil.getBiomeId(Biomes.BIRCH_FOREST_HILLS);
     private static final int DESERT = BiomeUtil.getBiomeId(Biomes.DESERT);
@@ -84,6 +80,17 @@ public enum SubBiomeLayer implements IAreaTransformer2, IDimOffset1Transformer
         map.put(39, 167);
     });
 
+    private final BiomePropertyTable properties;
+    private final SubBiomeTable subBiomes;
+    private final int orchard;
+
+    public SubBiomeLayer(BiomePropertyTable properties)
+    {
+        this.properties = properties;
+        this.subBiomes = properties.getSubBiomes();
+        this.orchard = properties.getId(BOPBiomes.orchard);
+    }
+
     @Override
     public int applyPixel(INoiseRandom context, IArea biomeArea, IArea riverAndSubBiomesInitArea, int x, int z)
     {
@@ -95,7 +102,7 @@ public enum SubBiomeLayer implements IAreaTransformer2, IDimOffset1Transformer
         boolean tryRareBiome = subBiomeType == 1;
 
         Biome mutatedBiome;
-        if (!BOPLayerUtil.isShallowOcean(biomeId) && initVal >= 2 && tryRareBiome)
+        if (!this.properties.isShallowOcean(biomeId) && initVal >= 2 && tryRareBiome)
         {
             return MUTATIONS.getOrDefault(biomeId, biomeId);
         }
@@ -134,38 +141,23 @@ public enum SubBiomeLayer implements IAreaTransformer2, IDimOffset1Transformer
         return biomeId;
     }
 
-    public int getCommonSubBiomeId(INoiseRandom context, int originalBiomeId)
+    /**
+     * Calls the consumer with every biome this layer may replace the given biome with.
+     */
+    public void forEachPossibleResult(int biomeId, IntConsumer consumer)
     {
-        float rarity = (float)context.nextRandom(100) / 100.0f;
-        List<BOPClimates.WeightedBiomeEntry> weightedBiomeEntryList = Lists.newArrayList();
-        int selectedBiomeId = originalBiomeId;
-        int totalWeight = 0;
+        this.subBiomes.forEachSubBiome(biomeId, consumer);
 
-        // Find suitable candidates
-        for (ModBiomes.WeightedSubBiome entry : ModBiomes.subBiomes.get(originalBiomeId))
-        {
-            if (entry.rarity >= rarity)
-            {
-                weightedBiomeEntryList.add(new BOPClimates.WeightedBiomeEntry(entry.weight, entry.biome));
-                totalWeight += entry.weight;
-            }
-        }
-
-        if (totalWeight <= 0)
-            return selectedBiomeId;
-
-        int weight = context.nextRandom(totalWeight);
-        Iterator<BOPClimates.WeightedBiomeEntry> iterator = weightedBiomeEntryList.iterator();
-        BOPClimates.WeightedBiomeEntry item;
-        do
-        {
-            item = iterator.next();
-            weight -= item.weight;
-        }
-        while (weight >= 0);
+        // Rare sub biomes don't depend on the context
+        int rareSubBiomeId = this.getRareSubBiomeId(null, biomeId);
+        consumer.accept(rareSubBiomeId);
+        consumer.accept(MUTATIONS.getOrDefault(biomeId, biomeId));
+        consumer.accept(MUTATIONS.getOrDefault(rareSubBiomeId, biomeId));
+    }
 
-        selectedBiomeId = BiomeUtil.getBiomeId(item.biome);
-        return selectedBiomeId;
+    public int getCommonSubBiomeId(INoiseRandom context, int originalBiomeId)
+    {
+        return this.subBiomes.getRandomSubBiome(context, originalBiomeId);
     }
 
     public int getRareSubBiomeId(INoiseRandom context, int originalBiomeId)
@@ -180,7 +172,7 @@ public enum SubBiomeLayer implements IAreaTransformer2, IDimOffset1Transformer
         else if (originalBiomeId == SNOWY_TAIGA) mutatedBiomeId = SNOWY_TAIGA_HILLS;
         //Use BOP orchard instead of vanilla forest
         //else if (originalBiomeId == PLAINS) mutatedBiomeId = context.random(3) == 0 ? WOODED_HILLS : FOREST;
-        else if (originalBiomeId == PLAINS && BiomeUtil.exists(BOPBiomes.orchard)) mutatedBiomeId = BiomeUtil.getBiomeId(BOPBiomes.orchard);
+        else if (originalBiomeId == PLAINS && this.orchard != BiomePropertyTable.NONE) mutatedBiomeId = this.orchard;
         //////////
         else if (originalBiomeId == SNOWY_TUNDRA) mutatedBiomeId = SNOWY_MOUNTAINS;
         else if (originalBiomeId == JUNGLE) mutatedBiomeId = JUNGLE_HILLS;
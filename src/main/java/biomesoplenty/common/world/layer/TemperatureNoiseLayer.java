@@ -8,15 +8,17 @@
 package biomesoplenty.common.world.layer;
 
 import biomesoplenty.common.world.SimplexNoise;
-import biomesoplenty.common.world.layer.traits.IBOPAreaTransformer0;
-import biomesoplenty.common.world.layer.traits.IBOPContextExtended;
+import biomesoplenty.common.world.layer.traits.IBOPLayerRandom;
 
-public enum TemperatureNoiseLayer implements IBOPAreaTransformer0
+public enum TemperatureNoiseLayer implements IClimateSampler
 {
     SMALL_ZONES(0.16D),
     MEDIUM_ZONES(0.06D),
     LARGE_ZONES(0.01D);
 
+    // boundaries were determined empirically by analyzing statistically the output from the SimplexNoise function, and splitting into 9 equally likely groups
+    static final NoiseBands BANDS = new NoiseBands(-0.7290668901192167, -0.5226116882660503, -0.31460282189018446, -0.10524117177898246, 0.10524117177898246, 0.31460282189018446, 0.5226116882660503, 0.7290668901192167);
+
     private final double scale;
 
     TemperatureNoiseLayer(double scale)
@@ -25,20 +27,11 @@ public enum TemperatureNoiseLayer implements IBOPAreaTransformer0
     }
 
     @Override
-    public int applyPixel(IBOPContextExtended context, int x, int z)
+    public int sample(IBOPLayerRandom context, int x, int z)
     {
         long seed = context.getWorldSeed();
         double noiseVal = SimplexNoise.noise(seed ^ 0xAB1C154F2C586F42L, x * this.scale + SimplexNoise.TRIANGLE_START_X, z * this.scale + SimplexNoise.TRIANGLE_START_Y);
 
-        // boundaries were determined empirically by analyzing statistically the output from the SimplexNoise function, and splitting into 9 equally likely groups
-        if (noiseVal < -0.7290668901192167) return 0;
-        else if (noiseVal < -0.5226116882660503) return 1;
-        else if (noiseVal < -0.31460282189018446) return 2;
-        else if (noiseVal < -0.10524117177898246) return 3;
-        else if (noiseVal < 0.10524117177898246) return 4;
-        else if (noiseVal < 0.31460282189018446) return 5;
-        else if (noiseVal < 0.5226116882660503) return 6;
-        else if (noiseVal < 0.7290668901192167) return 7;
-        else return 8;
+        return BANDS.getBand(noiseVal);
     }
 }
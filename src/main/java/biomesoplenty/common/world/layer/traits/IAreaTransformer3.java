@@ -12,6 +12,7 @@ import net.minecraft.world.gen.INoiseRandom;
 import net.minecraft.world.gen.area.IArea;
 import net.minecraft.world.gen.area.IAreaFactory;
 import net.minecraft.world.gen.layer.traits.IDimTransformer;
+import net.minecraft.world.gen.layer.traits.IPixelTransformer;
 
 public interface IAreaTransformer3 extends IDimTransformer
 {
@@ -23,11 +24,20 @@ public interface IAreaTransformer3 extends IDimTransformer
             R area2 = areaFactory2.make();
             R area3 = areaFactory3.make();
 
-            return context.createResult
-                    ((x, z) -> {
+            IPixelTransformer transformer = (x, z) -> {
                 context.initRandom((long)x, (long)z);
                 return this.applyPixel(context, area1, area2, area3, x, z);
-            });
+            };
+
+            if (context instanceof IBOPContextExtended)
+            {
+                // Safe, as the context's area type is R whichever context it is
+                @SuppressWarnings("unchecked")
+                IBOPContextExtended<R> bopContext = (IBOPContextExtended<R>)context;
+                return bopContext.createResult(transformer, area1, area2, area3);
+            }
+
+            return context.createResult(transformer);
         };
     }
 
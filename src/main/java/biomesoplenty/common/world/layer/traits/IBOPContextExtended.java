@@ -9,11 +9,15 @@ package biomesoplenty.common.world.layer.traits;
 
 import net.minecraft.world.gen.IExtendedNoiseRandom;
 import net.minecraft.world.gen.area.IArea;
+import net.minecraft.world.gen.layer.traits.IPixelTransformer;
 
 /***
  * Provides extra information beyond that used by Mojang.
  */
-public interface IBOPContextExtended<R extends IArea> extends IExtendedNoiseRandom<R>
+public interface IBOPContextExtended<R extends IArea> extends IExtendedNoiseRandom<R>, IBOPLayerRandom
 {
-    long getWorldSeed();
+    default R createResult(IPixelTransformer transformer, R area1, R area2, R area3)
+    {
+        return this.createResult(transformer);
+    }
 }
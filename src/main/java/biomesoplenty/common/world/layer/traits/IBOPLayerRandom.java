@@ -0,0 +1,20 @@
+/*******************************************************************************
+ * Copyright 2014-2019, the Biomes O' Plenty Team
+ *
+ * This work is licensed under a Creative Commons Attribution-NonCommercial-NoDerivatives 4.0 International Public License.
+ *
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/4.0/.
+ ******************************************************************************/
+package biomesoplenty.common.world.layer.traits;
+
+/***
+ * The randomness available to a layer's pixels, without the ability to create areas.
+ */
+public interface IBOPLayerRandom
+{
+    long getWorldSeed();
+
+    void initRandom(long x, long z);
+
+    int nextRandom(int bound);
+}
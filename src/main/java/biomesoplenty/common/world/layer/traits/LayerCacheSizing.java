@@ -0,0 +1,150 @@
+/*******************************************************************************
+ * Copyright 2014-2019, the Biomes O' Plenty Team
+ *
+ * This work is licensed under a Creative Commons Attribution-NonCommercial-NoDerivatives 4.0 International Public License.
+ *
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/4.0/.
+ ******************************************************************************/
+package biomesoplenty.common.world.layer.traits;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import net.minecraft.util.math.MathHelper;
+
+import java.util.List;
+
+/***
+ * Sizes the caches of a single layer stack. Each layer starts with a capacity derived from how deep it is in the
+ * stack and how many zooms separate it from the roots, then grows or shrinks depending on the hit rate it achieves.
+ */
+public class LayerCacheSizing
+{
+    public static final int MIN_CACHE_SIZE = 16;
+    public static final int INITIAL_MAX_CACHE_SIZE = 1024;
+    public static final int MAX_CACHE_SIZE = 8192;
+
+    // The width of the region we expect to be queried at the roots of the stack
+    private static final int ROOT_WINDOW_SIZE = 4;
+
+    static final int ADJUSTMENT_INTERVAL = 4096;
+    static final double TARGET_HIT_RATE = 0.9D;
+    static final double MIN_HIT_RATE_GAIN = 0.02D;
+    static final int STALL_WINDOWS = 16;
+
+    private final List<LazyAreaLayerContextBOP> contexts = Lists.newArrayList();
+
+    // The thread whose tile windows are installed, if any
+    private Thread tileOwner;
+
+    synchronized void register(LazyAreaLayerContextBOP context)
+    {
+        this.contexts.add(context);
+    }
+
+    int getInitialCacheSize(int depth, int scale)
+    {
+        // Every zoom doubles the width of the region which must be covered. Every other layer samples its neighbours,
+        // adding a pixel of margin on each side.
+        int windowSize = (ROOT_WINDOW_SIZE << Math.min(scale, 12)) + 2 * Math.max(0, depth - scale);
+        long area = (long)windowSize * (long)windowSize;
+        return MathHelper.smallestEncompassingPowerOfTwo((int)Math.min(INITIAL_MAX_CACHE_SIZE, Math.max(MIN_CACHE_SIZE, area)));
+    }
+
+    /**
+     * Installs tile windows on every layer of the stack, covering the given region of the output layer. The window
+     * of each layer is the output region scaled down by the zooms between the two layers, padded to account for
+     * neighbour sampling by the layers in between. Lookups which fall outside of a window still use the cache.
+     *
+     * Only the calling thread is served from the windows. Returns false without installing anything if another
+     * thread's windows are still in place, in which case the caller should use the caches alone.
+     */
+    synchronized boolean beginTile(LazyAreaLayerContextBOP output, int x, int z, int width, int height)
+    {
+        if (this.tileOwner != null)
+        {
+            return false;
+        }
+
+        this.tileOwner = Thread.currentThread();
+
+        for (LazyAreaLayerContextBOP context : this.contexts)
+        {
+            int shift = Math.max(0, output.getScale() - context.getScale());
+            int padding = (Math.max(0, output.getDepth() - context.getDepth()) >> shift) + 2;
+            int startX = (x >> shift) - padding;
+            int startZ = (z >> shift) - padding;
+            int endX = ((x + width - 1) >> shift) + padding;
+            int endZ = ((z + height - 1) >> shift) + padding;
+            context.beginTile(this.tileOwner, startX, startZ, endX - startX + 1, endZ - startZ + 1);
+        }
+
+        return true;
+    }
+
+    synchronized void endTile()
+    {
+        this.contexts.forEach(LazyAreaLayerContextBOP::endTile);
+        this.tileOwner = null;
+    }
+
+    public synchronized ImmutableList<Stats> getStats()
+    {
+        ImmutableList.Builder<Stats> builder = ImmutableList.builder();
+        this.contexts.forEach((context) -> builder.add(context.getStats()));
+        return builder.build();
+    }
+
+    public static class Stats
+    {
+        public final long seedModifier;
+        public final int depth;
+        public final int scale;
+        public final boolean zoom;
+        public final int capacity;
+        public final int size;
+        public final long hits;
+        public final long misses;
+        public final long evictions;
+        public final long tileHits;
+        public final long tileMisses;
+
+        public Stats(long seedModifier, int depth, int scale, boolean zoom, int capacity, int size, long hits, long misses, long evictions, long tileHits, long tileMisses)
+        {
+            this.seedModifier = seedModifier;
+            this.depth = depth;
+            this.scale = scale;
+            this.zoom = zoom;
+            this.capacity = capacity;
+            this.size = size;
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.tileHits = tileHits;
+            this.tileMisses = tileMisses;
+        }
+
+        public double getHitRate()
+        {
+            long lookups = this.hits + this.misses;
+            return lookups == 0 ? 0.0D : (double)this.hits / (double)lookups;
+        }
+
+        /** The number of times the layer's transformer was run, whether for its cache or for a tile. */
+        public long getEvaluations()
+        {
+            return this.misses + this.tileMisses;
+        }
+
+        /** Sums the counters of the same layer from two stacks. */
+        public Stats combine(Stats other)
+        {
+            return new Stats(this.seedModifier, this.depth, this.scale, this.zoom, this.capacity + other.capacity, this.size + other.size, this.hits + other.hits, this.misses + other.misses, this.evictions + other.evictions, this.tileHits + other.tileHits, this.tileMisses + other.tileMisses);
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("seed=%d depth=%d scale=%d%s capacity=%d size=%d hits=%d misses=%d evictions=%d hitRate=%.3f tileHits=%d tileMisses=%d", this.seedModifier, this.depth, this.scale, this.zoom ? " (zoom)" : "", this.capacity, this.size, this.hits, this.misses, this.evictions, this.getHitRate(), this.tileHits, this.tileMisses);
+        }
+    }
+}
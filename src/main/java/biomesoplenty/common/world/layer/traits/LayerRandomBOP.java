@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Copyright 2014-2019, the Biomes O' Plenty Team
+ *
+ * This work is licensed under a Creative Commons Attribution-NonCommercial-NoDerivatives 4.0 International Public License.
+ *
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/4.0/.
+ ******************************************************************************/
+package biomesoplenty.common.world.layer.traits;
+
+import net.minecraft.world.gen.IExtendedNoiseRandom;
+import net.minecraft.world.gen.LazyAreaLayerContext;
+
+/***
+ * A source of randomness seeded as a layer's context would be, for layers which are sampled as part of another
+ * rather than backing an area of their own. It has no cache, so it is not registered for cache sizing.
+ */
+public class LayerRandomBOP implements IBOPLayerRandom
+{
+    private final long worldSeed;
+
+    // Random number generation is delegated to Mojang's context so our output is identical to theirs
+    private final LazyAreaLayerContext random;
+
+    public LayerRandomBOP(long seed, long seedModifier)
+    {
+        this.worldSeed = seed;
+        this.random = new LazyAreaLayerContext(1, seed, seedModifier);
+    }
+
+    /** Creates a source of randomness for the same world as the given context, with its own seed modifier. */
+    public static LayerRandomBOP of(IExtendedNoiseRandom<?> context, long seedModifier)
+    {
+        if (!(context instanceof IBOPLayerRandom))
+            throw new IllegalArgumentException("Context must be an IBOPLayerRandom");
+
+        return new LayerRandomBOP(((IBOPLayerRandom)context).getWorldSeed(), seedModifier);
+    }
+
+    @Override
+    public long getWorldSeed()
+    {
+        return this.worldSeed;
+    }
+
+    @Override
+    public void initRandom(long x, long z)
+    {
+        this.random.initRandom(x, z);
+    }
+
+    @Override
+    public int nextRandom(int bound)
+    {
+        return this.random.nextRandom(bound);
+    }
+}
@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * Copyright 2014-2019, the Biomes O' Plenty Team
+ *
+ * This work is licensed under a Creative Commons Attribution-NonCommercial-NoDerivatives 4.0 International Public License.
+ *
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/4.0/.
+ ******************************************************************************/
+package biomesoplenty.common.world.layer.traits;
+
+import net.minecraft.world.gen.area.IArea;
+import net.minecraft.world.gen.layer.traits.IPixelTransformer;
+
+/***
+ * Equivalent of Mojang's LazyArea, except the cache is owned and sized by the layer's context
+ * rather than being fixed when the area is created.
+ */
+public final class LazyAreaBOP implements IArea
+{
+    private final LazyAreaLayerContextBOP context;
+    private final IPixelTransformer transformer;
+
+    public LazyAreaBOP(LazyAreaLayerContextBOP context, IPixelTransformer transformer)
+    {
+        this.context = context;
+        this.transformer = transformer;
+    }
+
+    @Override
+    public int get(int x, int z)
+    {
+        return this.context.getCached(this.transformer, x, z);
+    }
+
+    /**
+     * Evaluates a rectangle of this area in a single pass, storing the results in row-major order. Whilst the pass is
+     * in progress, every layer of the stack serves the region it needs from a flat array instead of its cache.
+     *
+     * The stack is only locked whilst the arrays are installed and removed. If the stack is shared and another thread
+     * is already filling, this pass is served from the caches instead.
+     */
+    public void fill(int x, int z, int width, int height, int[] out)
+    {
+        LayerCacheSizing sizing = this.context.getSizing();
+        boolean tiled = sizing.beginTile(this.context, x, z, width, height);
+
+        try
+        {
+            for (int localZ = 0; localZ < height; ++localZ)
+            {
+                for (int localX = 0; localX < width; ++localX)
+                {
+                    out[localZ * width + localX] = this.get(x + localX, z + localZ);
+                }
+            }
+        }
+        finally
+        {
+            if (tiled)
+            {
+                sizing.endTile();
+            }
+        }
+    }
+
+    public LazyAreaLayerContextBOP getContext()
+    {
+        return this.context;
+    }
+}
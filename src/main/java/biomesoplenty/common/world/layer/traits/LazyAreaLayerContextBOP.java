@@ -7,17 +7,72 @@
  ******************************************************************************/
 package biomesoplenty.common.world.layer.traits;
 
+import it.unimi.dsi.fastutil.longs.Long2IntLinkedOpenHashMap;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.gen.ImprovedNoiseGenerator;
 import net.minecraft.world.gen.LazyAreaLayerContext;
-import net.minecraft.world.gen.area.LazyArea;
+import net.minecraft.world.gen.layer.traits.IPixelTransformer;
 
-public class LazyAreaLayerContextBOP extends LazyAreaLayerContext implements IBOPContextExtended<LazyArea>
+import java.util.Arrays;
+
+public class LazyAreaLayerContextBOP implements IBOPContextExtended<LazyAreaBOP>
 {
-    private long worldSeed;
+    private final long worldSeed;
+    private final long seedModifier;
+    private final LayerCacheSizing sizing;
+
+    // Random number generation is delegated to Mojang's context so our output is identical to theirs
+    private final LazyAreaLayerContext random;
+
+    private final Long2IntLinkedOpenHashMap cache;
+    private int zoomLevels;
+    private int depth;
+    private int scale;
+    private int maxCacheSize;
 
-    public LazyAreaLayerContextBOP(int maxCacheSize, long seed, long seedModifier)
+    // The following fields are guarded by the cache
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long tileHits;
+    private long tileMisses;
+    private int windowLookups;
+    private int windowHits;
+    private int windowEvictions;
+    private double hitRateBeforeGrowth = -1.0D;
+    private int stalledWindows;
+
+    // Array backed window used whilst evaluating a tile, also guarded by the cache
+    private int[] tile = new int[0];
+    private Thread tileOwner;
+    private int tileX;
+    private int tileZ;
+    private int tileWidth;
+    private int tileHeight;
+
+    public LazyAreaLayerContextBOP(LayerCacheSizing sizing, long seed, long seedModifier)
     {
-        super(maxCacheSize, seed, seedModifier);
         this.worldSeed = seed;
+        this.seedModifier = seedModifier;
+        this.sizing = sizing;
+        this.random = new LazyAreaLayerContext(1, seed, seedModifier);
+        this.cache = new Long2IntLinkedOpenHashMap(16, 0.25F);
+        this.cache.defaultReturnValue(Integer.MIN_VALUE);
+        this.maxCacheSize = LayerCacheSizing.MIN_CACHE_SIZE;
+        sizing.register(this);
+    }
+
+    /** Marks this context as belonging to a zoom layer, which doubles the resolution of its parent. */
+    public LazyAreaLayerContextBOP asZoom()
+    {
+        return this.asZoom(1);
+    }
+
+    /** Marks this context as belonging to a layer which zooms its parent the given number of times. */
+    public LazyAreaLayerContextBOP asZoom(int levels)
+    {
+        this.zoomLevels = levels;
+        return this;
     }
 
     @Override
@@ -25,4 +80,240 @@ public class LazyAreaLayerContextBOP extends LazyAreaLayerContext implements IBO
     {
         return this.worldSeed;
     }
+
+    @Override
+    public void initRandom(long x, long z)
+    {
+        this.random.initRandom(x, z);
+    }
+
+    @Override
+    public int nextRandom(int bound)
+    {
+        return this.random.nextRandom(bound);
+    }
+
+    @Override
+    public ImprovedNoiseGenerator getBiomeNoise()
+    {
+        return this.random.getBiomeNoise();
+    }
+
+    @Override
+    public LazyAreaBOP createResult(IPixelTransformer transformer)
+    {
+        return this.createResult(transformer, 0, 0);
+    }
+
+    @Override
+    public LazyAreaBOP createResult(IPixelTransformer transformer, LazyAreaBOP area)
+    {
+        LazyAreaLayerContextBOP parent = area.getContext();
+        return this.createResult(transformer, parent.depth + 1, parent.scale);
+    }
+
+    @Override
+    public LazyAreaBOP createResult(IPixelTransformer transformer, LazyAreaBOP area1, LazyAreaBOP area2)
+    {
+        LazyAreaLayerContextBOP parent1 = area1.getContext();
+        LazyAreaLayerContextBOP parent2 = area2.getContext();
+        return this.createResult(transformer, Math.max(parent1.depth, parent2.depth) + 1, Math.max(parent1.scale, parent2.scale));
+    }
+
+    @Override
+    public LazyAreaBOP createResult(IPixelTransformer transformer, LazyAreaBOP area1, LazyAreaBOP area2, LazyAreaBOP area3)
+    {
+        LazyAreaLayerContextBOP parent1 = area1.getContext();
+        LazyAreaLayerContextBOP parent2 = area2.getContext();
+        LazyAreaLayerContextBOP parent3 = area3.getContext();
+        return this.createResult(transformer, Math.max(parent1.depth, Math.max(parent2.depth, parent3.depth)) + 1, Math.max(parent1.scale, Math.max(parent2.scale, parent3.scale)));
+    }
+
+    private LazyAreaBOP createResult(IPixelTransformer transformer, int depth, int parentScale)
+    {
+        synchronized (this.cache)
+        {
+            this.depth = depth;
+            this.scale = parentScale + this.zoomLevels;
+            this.maxCacheSize = this.sizing.getInitialCacheSize(this.depth, this.scale);
+        }
+
+        return new LazyAreaBOP(this, transformer);
+    }
+
+    int getCached(IPixelTransformer transformer, int x, int z)
+    {
+        long pos = ChunkPos.asLong(x, z);
+
+        synchronized (this.cache)
+        {
+            if (this.tileOwner == Thread.currentThread())
+            {
+                int tileIndex = this.getTileIndex(x, z);
+
+                if (tileIndex >= 0)
+                {
+                    int value = this.tile[tileIndex];
+
+                    // Counted apart from the cache so tiles don't skew its hit rate, which drives its sizing
+                    if (value != Integer.MIN_VALUE)
+                    {
+                        ++this.tileHits;
+                    }
+                    else
+                    {
+                        ++this.tileMisses;
+                        value = transformer.apply(x, z);
+                        this.tile[tileIndex] = value;
+                    }
+
+                    return value;
+                }
+            }
+
+            int value = this.cache.get(pos);
+            ++this.windowLookups;
+
+            if (value != Integer.MIN_VALUE)
+            {
+                ++this.hits;
+                ++this.windowHits;
+            }
+            else
+            {
+                ++this.misses;
+                value = transformer.apply(x, z);
+                this.cache.put(pos, value);
+
+                if (this.cache.size() > this.maxCacheSize)
+                {
+                    this.trim(this.maxCacheSize - Math.max(1, this.maxCacheSize / 16));
+                }
+            }
+
+            if (this.windowLookups >= LayerCacheSizing.ADJUSTMENT_INTERVAL)
+            {
+                this.adjust();
+            }
+
+            return value;
+        }
+    }
+
+    /**
+     * Begins serving lookups by the given thread within the given region (in this layer's coordinates) from a flat
+     * array rather than the cache. Other lookups, including those by other threads, continue to use the cache.
+     */
+    void beginTile(Thread owner, int x, int z, int width, int height)
+    {
+        synchronized (this.cache)
+        {
+            int size = width * height;
+
+            if (this.tile.length < size)
+            {
+                this.tile = new int[size];
+            }
+
+            Arrays.fill(this.tile, 0, size, Integer.MIN_VALUE);
+            this.tileX = x;
+            this.tileZ = z;
+            this.tileWidth = width;
+            this.tileHeight = height;
+            this.tileOwner = owner;
+        }
+    }
+
+    void endTile()
+    {
+        synchronized (this.cache)
+        {
+            this.tileOwner = null;
+        }
+    }
+
+    // Must be called whilst holding the cache lock
+    private int getTileIndex(int x, int z)
+    {
+        int localX = x - this.tileX;
+        int localZ = z - this.tileZ;
+
+        if (localX < 0 || localZ < 0 || localX >= this.tileWidth || localZ >= this.tileHeight)
+        {
+            return -1;
+        }
+
+        return localZ * this.tileWidth + localX;
+    }
+
+    LayerCacheSizing getSizing()
+    {
+        return this.sizing;
+    }
+
+    int getDepth()
+    {
+        return this.depth;
+    }
+
+    int getScale()
+    {
+        return this.scale;
+    }
+
+    // Must be called whilst holding the cache lock
+    private void trim(int targetSize)
+    {
+        while (this.cache.size() > targetSize)
+        {
+            this.cache.removeFirstInt();
+            ++this.evictions;
+            ++this.windowEvictions;
+        }
+    }
+
+    // Must be called whilst holding the cache lock
+    private void adjust()
+    {
+        double hitRate = (double)this.windowHits / (double)this.windowLookups;
+
+        if (this.hitRateBeforeGrowth >= 0.0D)
+        {
+            // We grew during the last window, shrink back down if it didn't pay off
+            if (hitRate < this.hitRateBeforeGrowth + LayerCacheSizing.MIN_HIT_RATE_GAIN)
+            {
+                this.maxCacheSize = Math.max(LayerCacheSizing.MIN_CACHE_SIZE, this.maxCacheSize / 2);
+                this.trim(this.maxCacheSize);
+                this.stalledWindows = LayerCacheSizing.STALL_WINDOWS;
+            }
+
+            this.hitRateBeforeGrowth = -1.0D;
+        }
+        else if (this.stalledWindows > 0)
+        {
+            --this.stalledWindows;
+        }
+        else if (this.windowEvictions > 0 && hitRate < LayerCacheSizing.TARGET_HIT_RATE && this.maxCacheSize < LayerCacheSizing.MAX_CACHE_SIZE)
+        {
+            this.hitRateBeforeGrowth = hitRate;
+            this.maxCacheSize = Math.min(LayerCacheSizing.MAX_CACHE_SIZE, this.maxCacheSize * 2);
+        }
+        else if (this.windowEvictions == 0 && this.cache.size() < this.maxCacheSize / 4 && this.maxCacheSize > LayerCacheSizing.MIN_CACHE_SIZE)
+        {
+            // The working set is much smaller than the cache, give some memory back
+            this.maxCacheSize = Math.max(LayerCacheSizing.MIN_CACHE_SIZE, this.maxCacheSize / 2);
+        }
+
+        this.windowLookups = 0;
+        this.windowHits = 0;
+        this.windowEvictions = 0;
+    }
+
+    public LayerCacheSizing.Stats getStats()
+    {
+        synchronized (this.cache)
+        {
+            return new LayerCacheSizing.Stats(this.seedModifier, this.depth, this.scale, this.zoomLevels > 0, this.maxCacheSize, this.cache.size(), this.hits, this.misses, this.evictions, this.tileHits, this.tileMisses);
+        }
+    }
 }
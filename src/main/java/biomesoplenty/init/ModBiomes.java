@@ -335,6 +335,7 @@ public class ModBiomes
 
         BiomeRegistry.configureVanillaBiomes();
         BiomeRegistry.finalizeRegistrations(BiomeRegistry.RegistrationType.VANILLA_BIOME);
+        BiomeRegistry.saveConfig();
 
         registerBiomeDictionaryTags();
         registerVillagerTypes();
@@ -51,6 +51,12 @@ public class ModConfig
         public static final ForgeConfigSpec.EnumValue<BOPOverworldGenSettings.RainfallVariationScheme> rainfallVariationScheme;
         public static final ForgeConfigSpec.BooleanValue enhanceVanillaBiomes;
         public static final ForgeConfigSpec.BooleanValue useBopNether;
+        public static final ForgeConfigSpec.BooleanValue useBiomeTiles;
+        public static final ForgeConfigSpec.BooleanValue useThreadLocalLayers;
+        public static final ForgeConfigSpec.BooleanValue useFastBiomeLocate;
+        public static final ForgeConfigSpec.BooleanValue useParallelBiomeLocate;
+        public static final ForgeConfigSpec.BooleanValue storeBiomeTiles;
+        public static final ForgeConfigSpec.BooleanValue usePlannedSaplingGrowth;
 
         static
         {
@@ -64,6 +70,15 @@ public class ModConfig
             useBopNether = BUILDER.comment("Enable nether generation from Biomes O' Plenty.").define("use_bop_nether", true);
             BUILDER.pop();
 
+            BUILDER.push("performance");
+            useBiomeTiles = BUILDER.comment("Evaluate overworld biomes a tile at a time rather than one position at a time.").define("use_biome_tiles", true);
+            useThreadLocalLayers = BUILDER.comment("Give each world generation thread its own biome layers, rather than sharing them between threads. Uses more memory.").define("use_thread_local_layers", true);
+            useFastBiomeLocate = BUILDER.comment("Skip regions whose climate can't hold a biome when locating biomes and picking the world spawn.").define("use_fast_biome_locate", true);
+            useParallelBiomeLocate = BUILDER.comment("Check the remaining positions across multiple threads when locating biomes. Requires thread local layers.").define("use_parallel_biome_locate", false);
+            storeBiomeTiles = BUILDER.comment("Store overworld biome tiles in the world directory, so biomes assigned in earlier sessions needn't be assigned again. Requires biome tiles.").define("store_biome_tiles", false);
+            usePlannedSaplingGrowth = BUILDER.comment("Plan the trees grown from saplings on a worker thread and only place them on the server thread. Trees whose surroundings change before they are placed are planned again.").define("use_planned_sapling_growth", false);
+            BUILDER.pop();
+
             SPEC = BUILDER.build();
         }
     }
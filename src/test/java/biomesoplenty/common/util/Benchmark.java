@@ -0,0 +1,50 @@
+/*******************************************************************************
+ * Copyright 2014-2019, the Biomes O' Plenty Team
+ *
+ * This work is licensed under a Creative Commons Attribution-NonCommercial-NoDerivatives 4.0 International Public License.
+ *
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/4.0/.
+ ******************************************************************************/
+package biomesoplenty.common.util;
+
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+
+/***
+ * A minimal harness for the benchmarks run by gradlew benchmark. Each round runs the body, which performs a fixed
+ * number of operations and returns a checksum of their results so they can't be optimized away. The median of the
+ * measured rounds is reported, after enough warmup rounds for the JIT to have compiled the body.
+ */
+public class Benchmark
+{
+    private static final int WARMUP_ROUNDS = 10;
+    private static final int MEASURED_ROUNDS = 15;
+
+    // Results are written here so the JIT can't discard the work done to produce them
+    public static volatile long sink;
+
+    /**
+     * Runs the body and prints the median time taken per operation. Returns that time in nanoseconds.
+     */
+    public static double run(String name, int operations, LongSupplier body)
+    {
+        for (int round = 0; round < WARMUP_ROUNDS; round++)
+        {
+            sink += body.getAsLong();
+        }
+
+        double[] times = new double[MEASURED_ROUNDS];
+
+        for (int round = 0; round < MEASURED_ROUNDS; round++)
+        {
+            long start = System.nanoTime();
+            sink += body.getAsLong();
+            times[round] = (double)(System.nanoTime() - start) / operations;
+        }
+
+        Arrays.sort(times);
+        double median = times[MEASURED_ROUNDS / 2];
+        System.out.println(String.format("%-60s %10.2f ns/op (min %.2f, max %.2f)", name, median, times[0], times[MEASURED_ROUNDS - 1]));
+        return median;
+    }
+}
@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright 2014-2019, the Biomes O' Plenty Team
+ *
+ * This work is licensed under a Creative Commons Attribution-NonCommercial-NoDerivatives 4.0 International Public License.
+ *
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/4.0/.
+ ******************************************************************************/
+package biomesoplenty.common.util.block;
+
+import biomesoplenty.common.util.Benchmark;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.block.BushBlock;
+import net.minecraft.tags.BlockTags;
+import net.minecraft.tags.TagRegistryManager;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.registry.Bootstrap;
+import net.minecraft.world.IWorld;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/***
+ * Compares the bitset query with the chain of Forge's hook and state predicates the tree features used to evaluate,
+ * over a shuffled pool of every registered state.
+ */
+@Tag("benchmark")
+public class BlockStateQueryBenchmark
+{
+    private static final int STATES = 1 << 16;
+    private static final BlockPos POS = new BlockPos(0, 64, 0);
+
+    @BeforeAll
+    public static void bootstrap()
+    {
+        Bootstrap.bootStrap();
+        TagRegistryManager.resetAllToEmpty();
+    }
+
+    @Test
+    public void treeReplacement()
+    {
+        // The replacement predicate of TreeFeatureBase
+        Predicate<BlockState> predicate = (state) -> state.is(BlockTags.SAPLINGS) || state.is(Blocks.VINE) || state.getBlock() instanceof BushBlock;
+        BlockStateQuery query = BlockStateQuery.replaceableByLeavesOr(predicate);
+
+        List<BlockState> registered = new ArrayList<>();
+        Block.BLOCK_STATE_REGISTRY.forEach(registered::add);
+        Collections.shuffle(registered, new Random(1234L));
+
+        BlockState[] states = new BlockState[STATES];
+
+        for (int i = 0; i < STATES; i++)
+        {
+            states[i] = registered.get(i % registered.size());
+        }
+
+        IWorld world = mock(IWorld.class);
+        when(world.getBlockState(any(BlockPos.class))).thenReturn(Blocks.STONE.defaultBlockState());
+
+        Benchmark.run("forge hook and predicates", STATES, () -> count(states, (state) -> state.canBeReplacedByLeaves(world, POS) || predicate.test(state)));
+        Benchmark.run("block state query", STATES, () -> count(states, (state) -> query.matches(world, POS, state)));
+        assertEquals(count(states, (state) -> state.canBeReplacedByLeaves(world, POS) || predicate.test(state)), count(states, (state) -> query.matches(world, POS, state)));
+    }
+
+    private static long count(BlockState[] states, Predicate<BlockState> predicate)
+    {
+        long count = 0;
+
+        for (BlockState state : states)
+        {
+            if (predicate.test(state))
+                count++;
+        }
+
+        return count;
+    }
+}
@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright 2014-2019, the Biomes O' Plenty Team
+ *
+ * This work is licensed under a Creative Commons Attribution-NonCommercial-NoDerivatives 4.0 International Public License.
+ *
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/4.0/.
+ ******************************************************************************/
+package biomesoplenty.common.util.block;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.tags.TagRegistryManager;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.registry.Bootstrap;
+import net.minecraft.world.IWorld;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/***
+ * Checks the cached answers against Forge's hooks for every registered state.
+ */
+public class BlockStateQueryTest
+{
+    private static final BlockPos POS = new BlockPos(0, 64, 0);
+
+    @BeforeAll
+    public static void bootstrap()
+    {
+        Bootstrap.bootStrap();
+        TagRegistryManager.resetAllToEmpty();
+    }
+
+    @Test
+    public void airMatchesForge()
+    {
+        BlockStateQuery query = BlockStateQuery.air();
+
+        for (BlockState state : Block.BLOCK_STATE_REGISTRY)
+        {
+            IWorld world = worldOf(state);
+            assertEquals(state.isAir(world, POS), query.matches(world, POS, state), state.toString());
+        }
+    }
+
+    @Test
+    public void leafReplacementMatchesForge()
+    {
+        BlockStateQuery query = BlockStateQuery.replaceableByLeavesOr((state) -> false);
+
+        for (BlockState state : Block.BLOCK_STATE_REGISTRY)
+        {
+            IWorld world = worldOf(state);
+            assertEquals(state.canBeReplacedByLeaves(world, POS), query.matches(world, POS, state), state.toString());
+        }
+    }
+
+    @Test
+    public void leafReplacementIncludesPredicate()
+    {
+        BlockStateQuery query = BlockStateQuery.replaceableByLeavesOr((state) -> state.is(Blocks.STONE));
+
+        assertTrue(query.matches(worldOf(Blocks.STONE.defaultBlockState()), POS, Blocks.STONE.defaultBlockState()));
+        assertFalse(query.matches(worldOf(Blocks.DIRT.defaultBlockState()), POS, Blocks.DIRT.defaultBlockState()));
+    }
+
+    @Test
+    public void blocksWhichDontFillTheirSpaceAreReplaceable()
+    {
+        BlockStateQuery query = BlockStateQuery.replaceableByLeavesOr((state) -> false);
+
+        for (Block block : new Block[] { Blocks.AIR, Blocks.WATER, Blocks.GLASS, Blocks.SNOW, Blocks.GRASS, Blocks.OAK_SLAB, Blocks.OAK_LEAVES })
+        {
+            BlockState state = block.defaultBlockState();
+            assertTrue(query.matches(worldOf(state), POS, state), state.toString());
+        }
+
+        for (Block block : new Block[] { Blocks.STONE, Blocks.DIRT, Blocks.OAK_LOG })
+        {
+            BlockState state = block.defaultBlockState();
+            assertFalse(query.matches(worldOf(state), POS, state), state.toString());
+        }
+    }
+
+    @Test
+    public void dynamicShapesArePositional()
+    {
+        assertTrue(BlockStateQuery.isLeafReplacementPositional(Blocks.MOVING_PISTON));
+        assertTrue(BlockStateQuery.replaceableByLeavesOr((state) -> false).dependsOnPosition(Blocks.MOVING_PISTON.defaultBlockState()));
+        assertFalse(BlockStateQuery.replaceableByLeavesOr((state) -> false).dependsOnPosition(Blocks.STONE.defaultBlockState()));
+    }
+
+    // A world holding the state at every position, so hooks which look at their surroundings see the state itself
+    private static IWorld worldOf(BlockState state)
+    {
+        IWorld world = mock(IWorld.class);
+        when(world.getBlockState(any(BlockPos.class))).thenReturn(state);
+        return world;
+    }
+}
@@ -0,0 +1,397 @@
+/*******************************************************************************
+ * Copyright 2014-2019, the Biomes O' Plenty Team
+ *
+ * This work is licensed under a Creative Commons Attribution-NonCommercial-NoDerivatives 4.0 International Public License.
+ *
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/4.0/.
+ ******************************************************************************/
+package biomesoplenty.common.world;
+
+import biomesoplenty.common.util.Benchmark;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/***
+ * Compares the compact table noise with the implementation it replaced, which is copied here as it was. Both are
+ * sampled with sixteen octaves, as the alpha generator's noises are.
+ */
+@Tag("benchmark")
+public class AlphaPerlinNoiseBenchmark
+{
+    private static final int OCTAVES = 16;
+    private static final int SIZE = 64;
+
+    @Test
+    public void sampling()
+    {
+        AlphaOctavePerlinNoise noise = new AlphaOctavePerlinNoise(new Random(1234L), OCTAVES);
+        OldOctavePerlinNoise oldNoise = new OldOctavePerlinNoise(new Random(1234L), OCTAVES);
+
+        Benchmark.run("old 2d samples", SIZE * SIZE, () -> sample2d(oldNoise::sample));
+        Benchmark.run("2d samples", SIZE * SIZE, () -> sample2d(noise::sample));
+        assertEquals(sample2d(oldNoise::sample), sample2d(noise::sample));
+
+        Benchmark.run("old 3d samples", SIZE * SIZE, () -> sample3d(oldNoise::sample));
+        Benchmark.run("3d samples", SIZE * SIZE, () -> sample3d(noise::sample));
+        assertEquals(sample3d(oldNoise::sample), sample3d(noise::sample));
+
+        // A chunk's worth of density noise, 5 * 17 * 5 samples
+        double[] out = new double[5 * 17 * 5];
+        Benchmark.run("old area samples", 5 * 17 * 5 * SIZE, () -> sampleAreas(oldNoise::sampleArea, out));
+        Benchmark.run("area samples", 5 * 17 * 5 * SIZE, () -> sampleAreas(noise::sampleArea, out));
+        assertEquals(sampleAreas(oldNoise::sampleArea, out), sampleAreas(noise::sampleArea, out));
+    }
+
+    private static long sample2d(Sampler2d sampler)
+    {
+        long checksum = 0;
+
+        for (int x = 0; x < SIZE; x++)
+        {
+            for (int z = 0; z < SIZE; z++)
+            {
+                checksum = checksum * 31 + Double.doubleToLongBits(sampler.sample((x - 1000) * 0.0625D, z * 0.0625D));
+            }
+        }
+
+        return checksum;
+    }
+
+    private static long sample3d(Sampler3d sampler)
+    {
+        long checksum = 0;
+
+        for (int x = 0; x < SIZE; x++)
+        {
+            for (int z = 0; z < SIZE; z++)
+            {
+                checksum = checksum * 31 + Double.doubleToLongBits(sampler.sample(x - 1000, z & 15, z, 684.412D, 684.412D, 684.412D));
+            }
+        }
+
+        return checksum;
+    }
+
+    private static long sampleAreas(AreaSampler sampler, double[] out)
+    {
+        long checksum = 0;
+
+        for (int chunk = 0; chunk < SIZE; chunk++)
+        {
+            sampler.sampleArea(out, chunk * 4 - 1000, 0, 40, 5, 17, 5, 684.412D, 684.412D, 684.412D);
+
+            for (double value : out)
+            {
+                checksum = checksum * 31 + Double.doubleToLongBits(value);
+            }
+        }
+
+        return checksum;
+    }
+
+    private interface Sampler2d
+    {
+        double sample(double x, double z);
+    }
+
+    private interface Sampler3d
+    {
+        double sample(double x, double y, double z, double xFreq, double yFreq, double zFreq);
+    }
+
+    private interface AreaSampler
+    {
+        void sampleArea(double[] out, double x, double y, double z, int sizeX, int sizeY, int sizeZ, double xFreq, double yFreq, double zFreq);
+    }
+
+    private static class OldOctavePerlinNoise
+    {
+        private final OldPerlinNoise samplers[];
+        private final int octaves;
+
+        private OldOctavePerlinNoise(Random random, int octaves)
+        {
+            this.octaves = octaves;
+            samplers = new OldPerlinNoise[octaves];
+            for(int i = 0; i < octaves; i++)
+            {
+                samplers[i] = new OldPerlinNoise(random);
+            }
+
+        }
+
+        public double sample(double x, double z)
+        {
+            double sum = 0.0;
+            double amplitude = 1.0;
+            for(int i = 0; i < this.octaves; i++)
+            {
+                sum += this.samplers[i].sample(x * amplitude, z * amplitude) / amplitude;
+                amplitude /= 2.0;
+            }
+
+            return sum;
+        }
+
+        public double sample(double x, double y, double z, double xFreq, double yFreq, double zFreq)
+        {
+            double sum = 0.0;
+
+            double amplitude = 1.0D;
+            for(int i = 0; i < octaves; i++)
+            {
+                sum += samplers[i].sample(x, y, z, xFreq * amplitude, yFreq * amplitude, zFreq * amplitude, amplitude);
+                amplitude /= 2D;
+            }
+
+            return sum;
+        }
+
+        public void sampleArea(double[] out, double x, double y, double z, int sizeX, int sizeY, int sizeZ, double xFreq, double yFreq, double zFreq)
+        {
+            Arrays.fill(out, 0, sizeX * sizeY * sizeZ, 0.0D);
+
+            double amplitude = 1.0D;
+            for(int i = 0; i < octaves; i++)
+            {
+                samplers[i].sampleArea(out, x, y, z, sizeX, sizeY, sizeZ, xFreq * amplitude, yFreq * amplitude, zFreq * amplitude, amplitude);
+                amplitude /= 2D;
+            }
+        }
+    }
+
+    private static class OldPerlinNoise
+    {
+        private final int[] permutations;
+        public final double offsetX;
+        public final double offsetY;
+        public final double offsetZ;
+
+        private OldPerlinNoise(Random random)
+        {
+            permutations = new int[512];
+            offsetX = random.nextDouble() * 256D;
+            offsetY = random.nextDouble() * 256D;
+            offsetZ = random.nextDouble() * 256D;
+            for(int i = 0; i < 256; i++)
+            {
+                permutations[i] = i;
+            }
+
+            for(int j = 0; j < 256; j++)
+            {
+                int k = random.nextInt(256 - j) + j;
+                int l = permutations[j];
+                permutations[j] = permutations[k];
+                permutations[k] = l;
+                permutations[j + 256] = permutations[j];
+            }
+
+        }
+
+        public double sample(double x, double y, double z)
+        {
+            double localX = x + offsetX;
+            double localY = y + offsetY;
+            double localZ = z + offsetZ;
+            int floorX = (int) localX;
+            int floorY = (int) localY;
+            int floorZ = (int) localZ;
+            if(localX < (double) floorX)
+            {
+                floorX--;
+            }
+            if(localY < (double) floorY)
+            {
+                floorY--;
+            }
+            if(localZ < (double) floorZ)
+            {
+                floorZ--;
+            }
+            int maskedX = floorX & 0xff;
+            int maskedY = floorY & 0xff;
+            int maskedZ = floorZ & 0xff;
+            localX -= floorX;
+            localY -= floorY;
+            localZ -= floorZ;
+            // Apply smoothstep on all axes
+            double smoothedX = localX * localX * localX * (localX * (localX * 6 - 15) + 10);
+            double smoothedY = localY * localY * localY * (localY * (localY * 6 - 15) + 10);
+            double smoothedZ = localZ * localZ * localZ * (localZ * (localZ * 6 - 15) + 10);
+            int perm1 = permutations[maskedX] + maskedY;
+            int perm2 = permutations[perm1] + maskedZ;
+            int perm3 = permutations[perm1 + 1] + maskedZ;
+            int perm4 = permutations[maskedX + 1] + maskedY;
+            int perm5 = permutations[perm4] + maskedZ;
+            int perm6 = permutations[perm4 + 1] + maskedZ;
+            // Apply trilinear interpolation on the noise to get the final result
+            return lerp(smoothedZ,
+                        lerp(smoothedY,
+                            lerp(smoothedX,
+                                    grad(permutations[perm2], localX, localY, localZ),
+                                    grad(permutations[perm5], localX - 1.0D, localY, localZ)),
+                            lerp(smoothedX,
+                                    grad(permutations[perm3], localX, localY - 1.0D, localZ),
+                                    grad(permutations[perm6], localX - 1.0D, localY - 1.0D, localZ))),
+                        lerp(smoothedY,
+                                lerp(smoothedX,
+                                        grad(permutations[perm2 + 1], localX, localY, localZ - 1.0D),
+                                        grad(permutations[perm5 + 1], localX - 1.0D, localY, localZ - 1.0D)),
+                                lerp(smoothedX,
+                                        grad(permutations[perm3 + 1], localX, localY - 1.0D, localZ - 1.0D),
+                                        grad(permutations[perm6 + 1], localX - 1.0D, localY - 1.0D, localZ - 1.0D))));
+        }
+
+        public double lerp(double delta, double start, double end)
+        {
+            return start + delta * (end - start);
+        }
+
+        public double grad(int i, double d, double d1, double d2)
+        {
+            int j = i & 0xf;
+            double d3 = j >= 8 ? d1 : d;
+            double d4 = j >= 4 ? j != 12 && j != 14 ? d2 : d : d1;
+            return ((j & 1) != 0 ? -d3 : d3) + ((j & 2) != 0 ? -d4 : d4);
+        }
+
+        // Note: Passing in the z value as the y coordinate is intended behavior here.
+        public double sample(double x, double z)
+        {
+            return sample(x, z, 0.0);
+        }
+
+        // Alternate sample method that provides frequency and amplitude modification functionality
+        public double sample(double x, double y, double z, double freqX, double freqY, double freqZ, double amplitude)
+        {
+            double noiseAmplitude = 1.0 / amplitude;
+            double localX = (x + (double) 0) * freqX + offsetX;
+            int floorX = (int) localX;
+            if(localX < (double) floorX)
+            {
+                floorX--;
+            }
+            int maskX = floorX & 0xff;
+            localX -= floorX;
+            double smoothedX = localX * localX * localX * (localX * (localX * 6D - 15D) + 10D);
+            double localZ = (z + (double) 0) * freqZ + offsetZ;
+            int floorZ = (int) localZ;
+            if(localZ < (double) floorZ)
+            {
+                floorZ--;
+            }
+            int maskZ = floorZ & 0xff;
+            localZ -= floorZ;
+            double smoothZ = localZ * localZ * localZ * (localZ * (localZ * 6D - 15D) + 10D);
+            double localY = (y + (double) 0) * freqY + offsetY;
+            int floorY = (int) localY;
+            if(localY < (double) floorY)
+            {
+                floorY--;
+            }
+            int maskY = floorY & 0xff;
+            localY -= floorY;
+            double smoothY = localY * localY * localY * (localY * (localY * 6D - 15D) + 10D);
+            int perm1 = permutations[maskX] + maskY;
+            int perm2 = permutations[perm1] + maskZ;
+            int perm3 = permutations[perm1 + 1] + maskZ;
+            int perm4 = permutations[maskX + 1] + maskY;
+            int perm5 = permutations[perm4] + maskZ;
+            int perm6 = permutations[perm4 + 1] + maskZ;
+            double lerp1 = lerp(smoothedX, grad(permutations[perm2], localX, localY, localZ), grad(permutations[perm5], localX - 1.0D, localY, localZ));
+            double lerp2 = lerp(smoothedX, grad(permutations[perm3], localX, localY - 1.0D, localZ), grad(permutations[perm6], localX - 1.0D, localY - 1.0D, localZ));
+            double lerp3 = lerp(smoothedX, grad(permutations[perm2 + 1], localX, localY, localZ - 1.0D), grad(permutations[perm5 + 1], localX - 1.0D, localY, localZ - 1.0D));
+            double lerp4 = lerp(smoothedX, grad(permutations[perm3 + 1], localX, localY - 1.0D, localZ - 1.0D), grad(permutations[perm6 + 1], localX - 1.0D, localY - 1.0D, localZ - 1.0D));
+            double biLerp1 = lerp(smoothY, lerp1, lerp2);
+            double biLerp2 = lerp(smoothY, lerp3, lerp4);
+            double finalNoise = lerp(smoothZ, biLerp1, biLerp2);
+
+            return finalNoise * noiseAmplitude;
+        }
+
+        /**
+         * Adds samples from a box of size sizeX * sizeY * sizeZ to out, using the frequency and amplitude modification
+         * of the method above. Samples are stored in the order out[(ix * sizeZ + iz) * sizeY + iy], and each is identical
+         * to sample(x + ix, y + iy, z + iz, freqX, freqY, freqZ, amplitude). The lattice lookups for each axis are only
+         * performed once per row rather than once per sample.
+         */
+        public void sampleArea(double[] out, double x, double y, double z, int sizeX, int sizeY, int sizeZ, double freqX, double freqY, double freqZ, double amplitude)
+        {
+            double noiseAmplitude = 1.0 / amplitude;
+
+            // The y axis is the same for every column
+            int[] maskYs = new int[sizeY];
+            double[] localYs = new double[sizeY];
+            double[] smoothYs = new double[sizeY];
+            for(int iy = 0; iy < sizeY; iy++)
+            {
+                double localY = (y + (double) iy) * freqY + offsetY;
+                int floorY = (int) localY;
+                if(localY < (double) floorY)
+                {
+                    floorY--;
+                }
+                maskYs[iy] = floorY & 0xff;
+                localY -= floorY;
+                localYs[iy] = localY;
+                smoothYs[iy] = localY * localY * localY * (localY * (localY * 6D - 15D) + 10D);
+            }
+
+            int index = 0;
+            for(int ix = 0; ix < sizeX; ix++)
+            {
+                double localX = (x + (double) ix) * freqX + offsetX;
+                int floorX = (int) localX;
+                if(localX < (double) floorX)
+                {
+                    floorX--;
+                }
+                int maskX = floorX & 0xff;
+                localX -= floorX;
+                double smoothedX = localX * localX * localX * (localX * (localX * 6D - 15D) + 10D);
+                int permX1 = permutations[maskX];
+                int permX2 = permutations[maskX + 1];
+
+                for(int iz = 0; iz < sizeZ; iz++)
+                {
+                    double localZ = (z + (double) iz) * freqZ + offsetZ;
+                    int floorZ = (int) localZ;
+                    if(localZ < (double) floorZ)
+                    {
+                        floorZ--;
+                    }
+                    int maskZ = floorZ & 0xff;
+                    localZ -= floorZ;
+                    double smoothZ = localZ * localZ * localZ * (localZ * (localZ * 6D - 15D) + 10D);
+
+                    for(int iy = 0; iy < sizeY; iy++)
+                    {
+                        int maskY = maskYs[iy];
+                        double localY = localYs[iy];
+                        int perm1 = permX1 + maskY;
+                        int perm2 = permutations[perm1] + maskZ;
+                        int perm3 = permutations[perm1 + 1] + maskZ;
+                        int perm4 = permX2 + maskY;
+                        int perm5 = permutations[perm4] + maskZ;
+                        int perm6 = permutations[perm4 + 1] + maskZ;
+                        double lerp1 = lerp(smoothedX, grad(permutations[perm2], localX, localY, localZ), grad(permutations[perm5], localX - 1.0D, localY, localZ));
+                        double lerp2 = lerp(smoothedX, grad(permutations[perm3], localX, localY - 1.0D, localZ), grad(permutations[perm6], localX - 1.0D, localY - 1.0D, localZ));
+                        double lerp3 = lerp(smoothedX, grad(permutations[perm2 + 1], localX, localY, localZ - 1.0D), grad(permutations[perm5 + 1], localX - 1.0D, localY, localZ - 1.0D));
+                        double lerp4 = lerp(smoothedX, grad(permutations[perm3 + 1], localX, localY - 1.0D, localZ - 1.0D), grad(permutations[perm6 + 1], localX - 1.0D, localY - 1.0D, localZ - 1.0D));
+                        double biLerp1 = lerp(smoothYs[iy], lerp1, lerp2);
+                        double biLerp2 = lerp(smoothYs[iy], lerp3, lerp4);
+                        double finalNoise = lerp(smoothZ, biLerp1, biLerp2);
+
+                        out[index++] += finalNoise * noiseAmplitude;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright 2014-2019, the Biomes O' Plenty Team
+ *
+ * This work is licensed under a Creative Commons Attribution-NonCommercial-NoDerivatives 4.0 International Public License.
+ *
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/4.0/.
+ ******************************************************************************/
+package biomesoplenty.common.world;
+
+import biomesoplenty.common.util.Benchmark;
+import biomesoplenty.common.world.layer.traits.LayerCacheSizing;
+import biomesoplenty.common.world.layer.traits.LazyAreaBOP;
+import biomesoplenty.common.world.layer.traits.LazyAreaLayerContextBOP;
+import net.minecraft.world.gen.area.IAreaFactory;
+import net.minecraft.world.gen.layer.AddIslandLayer;
+import net.minecraft.world.gen.layer.IslandLayer;
+import net.minecraft.world.gen.layer.SmoothLayer;
+import net.minecraft.world.gen.layer.ZoomLayer;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.LongFunction;
+
+/***
+ * Measures biome queries from several threads at once, with every thread sharing one layer stack and with each
+ * thread given its own. The stack is made of vanilla layers so it can be built without the registries, but its
+ * caches are the same as those of the real stacks.
+ */
+@Tag("benchmark")
+public class BOPLayerPoolBenchmark
+{
+    private static final int QUERIES_PER_THREAD = 20000;
+
+    @Test
+    public void contention() throws Exception
+    {
+        int maxThreads = Runtime.getRuntime().availableProcessors();
+
+        for (int threads = 1; threads <= maxThreads; threads *= 2)
+        {
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+            try
+            {
+                run("shared stack, " + threads + " threads", executor, threads, new BOPLayerPool(BOPLayerPoolBenchmark::createLayers, false));
+                run("thread confined stacks, " + threads + " threads", executor, threads, new BOPLayerPool(BOPLayerPoolBenchmark::createLayers, true));
+            }
+            finally
+            {
+                executor.shutdown();
+            }
+        }
+    }
+
+    private static void run(String name, ExecutorService executor, int threads, BOPLayerPool pool)
+    {
+        Benchmark.run(name, threads * QUERIES_PER_THREAD, () ->
+        {
+            List<Future<Long>> results = new ArrayList<>();
+
+            for (int thread = 0; thread < threads; thread++)
+            {
+                // Each thread wanders around its own part of the world, as worldgen workers do
+                long seed = thread;
+                results.add(executor.submit(() -> query(pool, new Random(seed), (int)seed * 100000)));
+            }
+
+            long checksum = 0;
+
+            try
+            {
+                for (Future<Long> result : results)
+                {
+                    checksum += result.get();
+                }
+            }
+            catch (Exception e)
+            {
+                throw new RuntimeException(e);
+            }
+
+            return checksum;
+        });
+    }
+
+    private static long query(BOPLayerPool pool, Random random, int startX)
+    {
+        long checksum = 0;
+        int x = startX;
+        int z = 0;
+
+        for (int i = 0; i < QUERIES_PER_THREAD; i++)
+        {
+            x += random.nextInt(9) - 4;
+            z += random.nextInt(9) - 4;
+            checksum += pool.get().getTile(x, z, 4, 4).get(x, z);
+        }
+
+        return checksum;
+    }
+
+    private static BOPLayer createLayers()
+    {
+        LayerCacheSizing sizing = new LayerCacheSizing();
+        LongFunction<LazyAreaLayerContextBOP> contextFactory = (seedModifier) -> new LazyAreaLayerContextBOP(sizing, 1234L, seedModifier);
+
+        IAreaFactory<LazyAreaBOP> factory = IslandLayer.INSTANCE.run(contextFactory.apply(1L));
+        factory = ZoomLayer.FUZZY.run(contextFactory.apply(2000L).asZoom(), factory);
+        factory = AddIslandLayer.INSTANCE.run(contextFactory.apply(1L), factory);
+
+        for (int i = 0; i < 6; i++)
+        {
+            factory = ZoomLayer.NORMAL.run(contextFactory.apply(1000L + i).asZoom(), factory);
+            factory = AddIslandLayer.INSTANCE.run(contextFactory.apply(2L + i), factory);
+        }
+
+        factory = SmoothLayer.INSTANCE.run(contextFactory.apply(1000L), factory);
+        return new BOPLayer(factory, sizing);
+    }
+}
@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright 2014-2019, the Biomes O' Plenty Team
+ *
+ * This work is licensed under a Creative Commons Attribution-NonCommercial-NoDerivatives 4.0 International Public License.
+ *
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/4.0/.
+ ******************************************************************************/
+package biomesoplenty.common.world;
+
+import biomesoplenty.common.util.Benchmark;
+import net.minecraft.world.gen.LazyAreaLayerContext;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/***
+ * Compares the compiled samplers with the linear scan of BOPClimates.getRandomBiome, for climates of a few sizes.
+ * The scan is measured without the registry lookup which used to follow it, so the real difference is larger.
+ */
+@Tag("benchmark")
+public class ClimateBiomeTableBenchmark
+{
+    private static final int SAMPLES = 1000000;
+
+    @Test
+    public void sampling()
+    {
+        compare("8 biomes", 8, 10);
+        compare("24 biomes", 24, 10);
+        compare("40 biomes, binary searched", 40, 5000);
+    }
+
+    private static void compare(String name, int biomes, int maxWeight)
+    {
+        Random random = new Random(biomes);
+        int[] biomeIds = new int[biomes];
+        int[] weights = new int[biomes];
+        List<Entry> entries = new ArrayList<>();
+        int totalWeight = 0;
+
+        for (int i = 0; i < biomes; i++)
+        {
+            biomeIds[i] = 50 + i;
+            weights[i] = 1 + random.nextInt(maxWeight);
+            entries.add(new Entry(weights[i], biomeIds[i]));
+            totalWeight += weights[i];
+        }
+
+        ClimateBiomeTable.Sampler sampler = new ClimateBiomeTable.Sampler(biomeIds, weights, totalWeight);
+        int scanTotalWeight = totalWeight;
+
+        Benchmark.run("linear scan, " + name, SAMPLES, () -> sampleAll((context) -> scan(entries, scanTotalWeight, context)));
+        Benchmark.run("compiled sampler, " + name, SAMPLES, () -> sampleAll(sampler::sample));
+
+        // Both must pick the same biomes from the same draws
+        assertEquals(sampleAll((context) -> scan(entries, scanTotalWeight, context)), sampleAll(sampler::sample));
+    }
+
+    private static long sampleAll(Picker picker)
+    {
+        LazyAreaLayerContext context = new LazyAreaLayerContext(1, 1234L, 200L);
+        long checksum = 0;
+
+        for (int i = 0; i < SAMPLES; i++)
+        {
+            context.initRandom(i & 1023, i >> 10);
+            checksum = checksum * 31 + picker.pick(context);
+        }
+
+        return checksum;
+    }
+
+    // Equivalent to BOPClimates.getRandomBiome
+    private static int scan(List<Entry> entries, int totalWeight, LazyAreaLayerContext context)
+    {
+        int weight = context.nextRandom(totalWeight);
+        Iterator<Entry> iterator = entries.iterator();
+        Entry item;
+        do
+        {
+            item = iterator.next();
+            weight -= item.weight;
+        }
+        while (weight >= 0);
+        return item.biomeId;
+    }
+
+    private interface Picker
+    {
+        int pick(LazyAreaLayerContext context);
+    }
+
+    private static class Entry
+    {
+        private final int weight;
+        private final int biomeId;
+
+        private Entry(int weight, int biomeId)
+        {
+            this.weight = weight;
+            this.biomeId = biomeId;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright 2014-2019, the Biomes O' Plenty Team
+ *
+ * This work is licensed under a Creative Commons Attribution-NonCommercial-NoDerivatives 4.0 International Public License.
+ *
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/4.0/.
+ ******************************************************************************/
+package biomesoplenty.common.world;
+
+import biomesoplenty.common.util.Benchmark;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/***
+ * Compares filling a grid with the lattice overload against sampling each point of it, at the coarse scales used by
+ * the climate layers and at finer ones where more samples share a cell.
+ */
+@Tag("benchmark")
+public class SimplexNoiseBenchmark
+{
+    private static final int SIZE = 256;
+    private static final long SEED = 1234L;
+
+    @Test
+    public void grids()
+    {
+        for (double scale : new double[] { 0.012D, 0.1D, 0.5D })
+        {
+            double[] out = new double[SIZE * SIZE];
+
+            Benchmark.run("point evaluation, scale " + scale, SIZE * SIZE, () -> checksum(points(scale, out)));
+            Benchmark.run("lattice evaluation, scale " + scale, SIZE * SIZE, () -> checksum(lattice(scale, out)));
+
+            // The lattice must give exactly the same values
+            assertEquals(checksum(points(scale, new double[SIZE * SIZE])), checksum(lattice(scale, new double[SIZE * SIZE])));
+        }
+    }
+
+    private static double[] points(double scale, double[] out)
+    {
+        for (int row = 0; row < SIZE; row++)
+        {
+            for (int column = 0; column < SIZE; column++)
+            {
+                out[row * SIZE + column] = SimplexNoise.noise(SEED, (100 + column) * scale + 0.5D, (-40 + row) * scale + 0.25D);
+            }
+        }
+
+        return out;
+    }
+
+    private static double[] lattice(double scale, double[] out)
+    {
+        SimplexNoise.noise(SEED, 100, -40, SIZE, SIZE, scale, 0.5D, 0.25D, out);
+        return out;
+    }
+
+    private static long checksum(double[] values)
+    {
+        long checksum = 0;
+
+        for (double value : values)
+        {
+            checksum = checksum * 31 + Double.doubleToLongBits(value);
+        }
+
+        return checksum;
+    }
+}
@@ -0,0 +1,257 @@
+/*******************************************************************************
+ * Copyright 2014-2019, the Biomes O' Plenty Team
+ *
+ * This work is licensed under a Creative Commons Attribution-NonCommercial-NoDerivatives 4.0 International Public License.
+ *
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/4.0/.
+ ******************************************************************************/
+package biomesoplenty.common.world.gen.feature;
+
+import net.minecraft.util.math.MathHelper;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/***
+ * Compares each stamp with the loops it replaced, which are copied here as they were. Cells must match in order as
+ * well as position, as features draw from their random once per cell.
+ */
+public class VoxelStampsTest
+{
+    @Test
+    public void discsMatchBigTreeCrossSection()
+    {
+        for (float radius = -1.0F; radius <= 5.0F; radius += 0.125F)
+        {
+            for (int limit = -1; limit <= 6; limit++)
+            {
+                List<String> expected = new ArrayList<>();
+
+                for (int dx = -limit; dx <= limit; dx++)
+                {
+                    for (int dz = -limit; dz <= limit; dz++)
+                    {
+                        if (Math.pow((double)Math.abs(dx) + 0.5D, 2.0D) + Math.pow((double)Math.abs(dz) + 0.5D, 2.0D) <= (double)(radius * radius))
+                        {
+                            expected.add(cell(dx, 0, dz, 0));
+                        }
+                    }
+                }
+
+                assertEquals(expected, cells(VoxelStamps.disc(radius, limit)), "disc of radius " + radius + " limited to " + limit);
+            }
+        }
+    }
+
+    @Test
+    public void squaresMatchLargeCrystalLayers()
+    {
+        for (int radius = 0; radius <= 8; radius++)
+        {
+            List<String> expected = new ArrayList<>();
+            int radiusStart = MathHelper.ceil(0.25D - radius / 2.0D);
+            int radiusEnd = MathHelper.floor(0.25D + radius / 2.0D);
+
+            for (int x = radiusStart; x <= radiusEnd; x++) {
+                for (int z = radiusStart; z <= radiusEnd; z++) {
+                    expected.add(cell(x, 0, z, 0));
+                }
+            }
+
+            assertEquals(expected, cells(VoxelStamps.square(radius)), "square of width " + radius);
+        }
+    }
+
+    @Test
+    public void glowshroomCapsMatchHugeGlowshroom()
+    {
+        for (int radius = 1; radius <= 6; radius++)
+        {
+            // The old loops placed the cap height blocks above the base, the stamp's origin is the top of the cap
+            int height = 0;
+            List<String> expected = new ArrayList<>();
+
+            for (int x = -(radius-1); x <= (radius-1); x++)
+            {
+                for (int z = -(radius-1); z <= (radius-1); z++)
+                {
+                    expected.add(cell(x, height, z, VoxelStamp.DOWN));
+                }
+            }
+
+            for (int x = -radius; x <= radius; x++)
+            {
+                for (int z = -radius; z <= radius; z++)
+                {
+                    if ((x == -radius || x == radius) && (z == -radius || z == radius))
+                    {
+                        continue;
+                    }
+                    else
+                    {
+                        if (x == radius)
+                        {
+                            expected.add(cell(x, height - 1, z, VoxelStamp.WEST));
+                            expected.add(cell(x, height - 2, z, VoxelStamp.WEST));
+                        }
+                        if (x == -radius)
+                        {
+                            expected.add(cell(x, height - 1, z, VoxelStamp.EAST));
+                            expected.add(cell(x, height - 2, z, VoxelStamp.EAST));
+                        }
+                        if (z == radius)
+                        {
+                            expected.add(cell(x, height - 1, z, VoxelStamp.NORTH));
+                            expected.add(cell(x, height - 2, z, VoxelStamp.NORTH));
+                        }
+                        if (z == -radius)
+                        {
+                            expected.add(cell(x, height - 1, z, VoxelStamp.SOUTH));
+                            expected.add(cell(x, height - 2, z, VoxelStamp.SOUTH));
+                        }
+                    }
+                }
+            }
+
+            assertEquals(expected, cells(VoxelStamps.glowshroomCap(radius)), "glowshroom cap of radius " + radius);
+        }
+    }
+
+    @Test
+    public void redMushroomCapsMatchBigRedMushroom()
+    {
+        for (int foliageRadius = 1; foliageRadius <= 6; foliageRadius++)
+        {
+            for (int height = 4; height <= 12; height++)
+            {
+                List<String> expected = new ArrayList<>();
+
+                for (int y = height - 3; y <= height; ++y)
+                {
+                    int radius = y < height ? foliageRadius : foliageRadius - 1;
+                    int innerRadius = foliageRadius - 2;
+
+                    for (int x = -radius; x <= radius; ++x)
+                    {
+                        for (int z = -radius; z <= radius; ++z)
+                        {
+                            boolean westEdge = x == -radius;
+                            boolean eastEdge = x == radius;
+                            boolean northEdge = z == -radius;
+                            boolean southEdge = z == radius;
+                            boolean eastOrWestEdge = westEdge || eastEdge;
+                            boolean northOrSouthEdge = northEdge || southEdge;
+                            if (y >= height || eastOrWestEdge != northOrSouthEdge)
+                            {
+                                int flags = 0;
+                                if (y >= height - 1) flags |= VoxelStamp.UP;
+                                if (x < -innerRadius) flags |= VoxelStamp.WEST;
+                                if (x > innerRadius) flags |= VoxelStamp.EAST;
+                                if (z < -innerRadius) flags |= VoxelStamp.NORTH;
+                                if (z > innerRadius) flags |= VoxelStamp.SOUTH;
+                                expected.add(cell(x, y - height, z, flags));
+                            }
+                        }
+                    }
+                }
+
+                assertEquals(expected, cells(VoxelStamps.redMushroomCap(foliageRadius)), "red mushroom cap of radius " + foliageRadius + " at height " + height);
+            }
+        }
+    }
+
+    @Test
+    public void brownMushroomCapsMatchBigBrownMushroom()
+    {
+        for (int radius = 1; radius <= 6; radius++)
+        {
+            List<String> expected = new ArrayList<>();
+
+            for (int x = -radius; x <= radius; ++x)
+            {
+                for (int z = -radius; z <= radius; ++z)
+                {
+                    boolean westEdge = x == -radius;
+                    boolean eastEdge = x == radius;
+                    boolean northEdge = z == -radius;
+                    boolean southEdge = z == radius;
+                    boolean eastOrWestEdge = westEdge || eastEdge;
+                    boolean northOrSouthEdge = northEdge || southEdge;
+                    if (!eastOrWestEdge || !northOrSouthEdge)
+                    {
+                        int flags = 0;
+                        if (westEdge || northOrSouthEdge && x == 1 - radius) flags |= VoxelStamp.WEST;
+                        if (eastEdge || northOrSouthEdge && x == radius - 1) flags |= VoxelStamp.EAST;
+                        if (northEdge || eastOrWestEdge && z == 1 - radius) flags |= VoxelStamp.NORTH;
+                        if (southEdge || eastOrWestEdge && z == radius - 1) flags |= VoxelStamp.SOUTH;
+                        expected.add(cell(x, 0, z, flags));
+                    }
+                }
+            }
+
+            assertEquals(expected, cells(VoxelStamps.brownMushroomCap(radius)), "brown mushroom cap of radius " + radius);
+        }
+    }
+
+    @Test
+    public void pumpkinBodyMatchesBigPumpkin()
+    {
+        List<String> expected = new ArrayList<>();
+
+        for (int x = 1; x < 4; x++)
+        {
+            for (int y = 0; y < 5; y++)
+            {
+                for (int z = 1; z < 4; z++)
+                {
+                    expected.add(cell(x, y, z, 0));
+                }
+            }
+        }
+
+        for (int x = 0; x < 5; x++)
+        {
+            for (int y = 1; y < 4; y++)
+            {
+                for (int z = 1; z < 4; z++)
+                {
+                    expected.add(cell(x, y, z, 0));
+                }
+            }
+        }
+
+        for (int x = 1; x < 4; x++)
+        {
+            for (int y = 1; y < 4; y++)
+            {
+                for (int z = 0; z < 5; z++)
+                {
+                    expected.add(cell(x, y, z, 0));
+                }
+            }
+        }
+
+        assertEquals(expected, cells(BigPumpkinFeature.BODY));
+    }
+
+    private static List<String> cells(VoxelStamp stamp)
+    {
+        List<String> cells = new ArrayList<>(stamp.size());
+
+        for (int i = 0; i < stamp.size(); i++)
+        {
+            cells.add(cell(stamp.getX(i), stamp.getY(i), stamp.getZ(i), stamp.getFlags(i)));
+        }
+
+        return cells;
+    }
+
+    // Cells are compared as strings so that failures show where the stamps differ
+    private static String cell(int x, int y, int z, int flags)
+    {
+        return x + "," + y + "," + z + ":" + flags;
+    }
+}
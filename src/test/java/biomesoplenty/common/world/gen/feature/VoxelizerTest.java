@@ -0,0 +1,155 @@
+/*******************************************************************************
+ * Copyright 2014-2019, the Biomes O' Plenty Team
+ *
+ * This work is licensed under a Creative Commons Attribution-NonCommercial-NoDerivatives 4.0 International Public License.
+ *
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/4.0/.
+ ******************************************************************************/
+package biomesoplenty.common.world.gen.feature;
+
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.util.math.vector.Vector3d;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/***
+ * Compares the voxelizer with the float stepping of big tree branches and flesh tendons, which is copied here as it
+ * was.
+ */
+public class VoxelizerTest
+{
+    private static final int LINES = 300000;
+    private static final int CURVES = 20000;
+
+    @Test
+    public void linesMatchBigTreeStepping()
+    {
+        Random random = new Random(1L);
+
+        for (int i = 0; i < LINES; i++)
+        {
+            BlockPos start = new BlockPos(random.nextInt(64) - 32, random.nextInt(256), random.nextInt(64) - 32);
+            BlockPos end = start.offset(random.nextInt(41) - 20, random.nextInt(41) - 20, random.nextInt(41) - 20);
+
+            // The old stepping divided by zero when both ends were the same
+            if (start.equals(end))
+                continue;
+
+            List<BlockPos> expected = new ArrayList<>();
+            BlockPos delta = end.offset(-start.getX(), -start.getY(), -start.getZ());
+            int steps = getGreatestDistance(delta);
+            float dx = (float)delta.getX() / (float)steps;
+            float dy = (float)delta.getY() / (float)steps;
+            float dz = (float)delta.getZ() / (float)steps;
+
+            for (int j = 0; j <= steps; ++j)
+            {
+                expected.add(start.offset((double)(0.5F + (float)j * dx), (double)(0.5F + (float)j * dy), (double)(0.5F + (float)j * dz)));
+            }
+
+            List<BlockPos> actual = new ArrayList<>();
+            Voxelizer.line(start, end, (step, pos) ->
+            {
+                assertEquals(actual.size(), step);
+                actual.add(pos.immutable());
+                return true;
+            });
+
+            assertEquals(expected, actual, "line from " + start + " to " + end);
+        }
+    }
+
+    @Test
+    public void linesStopWhereTheVisitorDoes()
+    {
+        BlockPos start = new BlockPos(0, 64, 0);
+        BlockPos end = new BlockPos(10, 70, -3);
+
+        assertEquals(4, Voxelizer.line(start, end, (step, pos) -> step < 4));
+        assertEquals(-1, Voxelizer.line(start, end, (step, pos) -> true));
+    }
+
+    @Test
+    public void degenerateLinesVisitTheirStart()
+    {
+        BlockPos start = new BlockPos(5, 64, -7);
+        List<BlockPos> actual = new ArrayList<>();
+
+        Voxelizer.line(start, start, (step, pos) -> actual.add(pos.immutable()));
+        assertEquals(Collections.singletonList(start), actual);
+    }
+
+    @Test
+    public void curvesMatchFleshTendonSampling()
+    {
+        Random random = new Random(2L);
+        float tendonStep = 0.005F;
+
+        for (int i = 0; i < CURVES; i++)
+        {
+            // Shaped like the tendons, which end up to 32 blocks away and curve through a point below their end
+            BlockPos pos = new BlockPos(random.nextInt(64) - 32, 32 + random.nextInt(96), random.nextInt(64) - 32);
+            int xOff = random.nextInt(64) - 32;
+            int zOff = random.nextInt(64) - 32;
+            BlockPos endPos = pos.offset(Math.abs(xOff) < 8 ? 8 : xOff, 1 + random.nextInt(64), Math.abs(zOff) < 8 ? -8 : zOff);
+            BlockPos midPos = endPos.offset(0, -(endPos.getY() - pos.getY()) * 0.9F, 0);
+
+            List<BlockPos> expected = new ArrayList<>();
+
+            for (float d = 0.0f; d < 1.0f; d += tendonStep)
+            {
+                BlockPos curPos = quadratic(d, pos, midPos, endPos);
+
+                if (curPos.getY() < 126)
+                {
+                    expected.add(curPos);
+                }
+                else
+                {
+                    break;
+                }
+            }
+
+            // Each visit stands in for every sample within its block
+            List<BlockPos> actual = new ArrayList<>();
+            Voxelizer.quadratic(pos, midPos, endPos, tendonStep, (curPos, samples) ->
+            {
+                if (curPos.getY() >= 126)
+                {
+                    return false;
+                }
+
+                for (int j = 0; j < samples; j++)
+                {
+                    actual.add(curPos.immutable());
+                }
+
+                return true;
+            });
+
+            assertEquals(expected, actual, "curve from " + pos + " through " + midPos + " to " + endPos);
+        }
+    }
+
+    private static int getGreatestDistance(BlockPos posIn)
+    {
+        int i = MathHelper.abs(posIn.getX());
+        int j = MathHelper.abs(posIn.getY());
+        int k = MathHelper.abs(posIn.getZ());
+        return k > i && k > j ? k : (j > i ? j : i);
+    }
+
+    private static BlockPos quadratic(float t, BlockPos v0, BlockPos v1, BlockPos v2)
+    {
+        float dt = 1f - t;
+        Vector3d v = new Vector3d(v0.getX(), v0.getY(), v0.getZ()).scale(dt * dt).add(new Vector3d(v1.getX(), v1.getY(), v1.getZ()).scale(2 * dt * t)).add(new Vector3d(v2.getX(), v2.getY(), v2.getZ()).scale(t * t));
+        return new BlockPos(v.x, v.y, v.z);
+    }
+}
@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright 2014-2019, the Biomes O' Plenty Team
+ *
+ * This work is licensed under a Creative Commons Attribution-NonCommercial-NoDerivatives 4.0 International Public License.
+ *
+ * To view a copy of this license, visit http://creativecommons.org/licenses/by-nc-nd/4.0/.
+ ******************************************************************************/
+package biomesoplenty.common.world.layer;
+
+import biomesoplenty.common.util.Benchmark;
+import biomesoplenty.common.world.BOPOverworldGenSettings;
+import biomesoplenty.common.world.layer.traits.LayerCacheSizing;
+import biomesoplenty.common.world.layer.traits.LazyAreaBOP;
+import biomesoplenty.common.world.layer.traits.LazyAreaLayerContextBOP;
+import net.minecraft.world.gen.area.IAreaFactory;
+import net.minecraft.world.gen.layer.AddIslandLayer;
+import net.minecraft.world.gen.layer.IslandLayer;
+import net.minecraft.world.gen.layer.ZoomLayer;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.function.LongFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/***
+ * Compares a fused zoom with the chain of zoom layers it replaces, for the runs of zooms used by each biome size.
+ * Every round builds a fresh stack, so the layer caches start out empty as they would for a newly loaded world.
+ */
+@Tag("benchmark")
+public class FusedZoomLayerBenchmark
+{
+    private static final int SIZE = 256;
+
+    @Test
+    public void zooms()
+    {
+        for (BOPOverworldGenSettings.BiomeSize biomeSize : BOPOverworldGenSettings.BiomeSize.values())
+        {
+            // The zooms following the biome layer, and those of the climate layer
+            if (biomeSize.getValue() > 2)
+                compare(biomeSize + " biomes", biomeSize.getValue() - 2);
+
+            compare(biomeSize + " climate", biomeSize.getValue() + 2);
+        }
+    }
+
+    private static void compare(String name, int levels)
+    {
+        Benchmark.run("chained zooms, " + name + ", " + levels + " levels", SIZE * SIZE, () -> sweep(levels, false));
+        Benchmark.run("fused zoom, " + name + ", " + levels + " levels", SIZE * SIZE, () -> sweep(levels, true));
+        assertEquals(sweep(levels, false), sweep(levels, true), name);
+    }
+
+    private static long sweep(int levels, boolean fused)
+    {
+        LazyAreaBOP area = createStack(levels, fused).make();
+        int[] out = new int[16 * 16];
+        long checksum = 0;
+
+        // Fill the area a chunk at a time, as the biome provider does
+        for (int z = 0; z < SIZE; z += 16)
+        {
+            for (int x = 0; x < SIZE; x += 16)
+            {
+                area.fill(x, z, 16, 16, out);
+
+                for (int id : out)
+                {
+                    checksum = checksum * 31 + id;
+                }
+            }
+        }
+
+        return checksum;
+    }
+
+    private static IAreaFactory<LazyAreaBOP> createStack(int levels, boolean fused)
+    {
+        LayerCacheSizing sizing = new LayerCacheSizing();
+        LongFunction<LazyAreaLayerContextBOP> contextFactory = (seedModifier) -> new LazyAreaLayerContextBOP(sizing, 1234L, seedModifier);
+
+        IAreaFactory<LazyAreaBOP> factory = IslandLayer.INSTANCE.run(contextFactory.apply(1L));
+        factory = AddIslandLayer.INSTANCE.run(contextFactory.apply(2L), factory);
+
+        if (fused)
+            return new FusedZoomLayer(ZoomLayer.NORMAL, 1000L, levels).run(contextFactory.apply(1000L).asZoom(levels), factory);
+
+        for (int i = 0; i < levels; i++)
+        {
+            factory = ZoomLayer.NORMAL.run(contextFactory.apply(1000L + i).asZoom(), factory);
+        }
+
+        return factory;
+    }
+}